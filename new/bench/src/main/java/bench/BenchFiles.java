@@ -0,0 +1,44 @@
+package bench;
+
+import java.io.*;
+import java.nio.file.*;
+import java.time.LocalDateTime;
+import java.util.Random;
+
+/** Synthetic input files shared by the benchmarks. */
+final class BenchFiles {
+    static final String[] CODES = {
+        "CHF", "HKD", "EUR", "DKK", "USD", "CAD", "MYR", "NOK", "INR", "VND", "THB",
+        "CNY", "AUD", "SGD", "KRW", "JPY", "GBP", "IDR", "SEK", "PHP", "NZD"
+    };
+
+    private BenchFiles() {}
+
+    static Path ratesFile() throws IOException {
+        Path file = Files.createTempFile("bench-rates", ".csv");
+        Random random = new Random(1);
+        try (PrintWriter pw = new PrintWriter(Files.newBufferedWriter(file))) {
+            for (String code : CODES) pw.println(code + "," + (0.001 + random.nextDouble() * 50));
+        }
+        file.toFile().deleteOnExit();
+        return file;
+    }
+
+    // ไฟล์ history ขนาด rows แถว รูปแบบเดียวกับ history.csv
+    static Path historyFile(int rows) throws IOException {
+        Path file = Files.createTempFile("bench-history-" + rows, ".csv");
+        Random random = new Random(rows);
+        LocalDateTime time = LocalDateTime.of(2025, 1, 1, 0, 0);
+        try (PrintWriter pw = new PrintWriter(Files.newBufferedWriter(file))) {
+            for (int i = 0; i < rows; i++) {
+                String from = CODES[random.nextInt(CODES.length)];
+                String to = CODES[random.nextInt(CODES.length)];
+                double amount = random.nextInt(1_000_000) / 100.0;
+                time = time.plusNanos(1 + random.nextInt(1_000_000_000));
+                pw.println(String.format("%s,%s,%.2f,%.2f,%s", from, to, amount, amount * 1.7, time));
+            }
+        }
+        file.toFile().deleteOnExit();
+        return file;
+    }
+}
\ No newline at end of file
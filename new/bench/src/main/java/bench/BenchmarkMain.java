@@ -0,0 +1,26 @@
+package bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Same as the stock JMH main, but always attaches the GC profiler so every
+ * run reports allocation rate ({@code gc.alloc.rate.norm}) next to time.
+ *
+ * <pre>
+ * java -jar bench/target/benchmarks.jar [jmh options] [benchmark regex]
+ * </pre>
+ */
+public class BenchmarkMain {
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions cmd = new CommandLineOptions(args);
+        new Runner(new OptionsBuilder()
+                .parent(cmd)
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,46 @@
+package bench;
+
+import model.CurrencyConverter;
+import model.CurrencyManager;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConvertBenchmark {
+    private CurrencyManager manager;
+    private CurrencyConverter converter;
+    private int usd;
+    private int thb;
+    private double amount = 123.45;
+
+    @Setup
+    public void setup() throws Exception {
+        Path rates = BenchFiles.ratesFile();
+        manager = new CurrencyManager(rates.toString());
+        converter = new CurrencyConverter(manager);
+        usd = manager.id("USD");
+        thb = manager.id("THB");
+    }
+
+    @Benchmark
+    public double managerConvert() {
+        return manager.convert("USD", "THB", amount);
+    }
+
+    @Benchmark
+    public double managerConvertById() {
+        return manager.convert(usd, thb, amount);
+    }
+
+    @Benchmark
+    public double converterConvert() {
+        return converter.convert("USD", "THB", amount);
+    }
+}
\ No newline at end of file
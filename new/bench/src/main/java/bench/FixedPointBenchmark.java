@@ -0,0 +1,69 @@
+package bench;
+
+import model.CurrencyManager;
+import model.FixedPoint;
+import model.RatesSnapshot;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One USD -> JPY conversion three ways: the double cross rate, BigDecimal
+ * with the same single rounding to minor units, and the long fixed-point
+ * engine. The fixed-point and BigDecimal results are identical; the
+ * allocation column (from {@link BenchmarkMain}'s GC profiler) shows the
+ * difference in garbage.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FixedPointBenchmark {
+    private CurrencyManager manager;
+    private int usd;
+    private int jpy;
+    private int toScale;
+    private BigDecimal fromRate;
+    private BigDecimal toRate;
+    private BigDecimal amountDecimal;
+    private long amountMinor = 12345;  // 123.45 USD
+    private double amount = 123.45;
+
+    @Setup
+    public void setup() throws Exception {
+        Path rates = BenchFiles.ratesFile();
+        manager = new CurrencyManager(rates.toString());
+        usd = manager.id("USD");
+        jpy = manager.id("JPY");
+        RatesSnapshot snapshot = manager.getSnapshot();
+        toScale = snapshot.scale(jpy);
+        fromRate = BigDecimal.valueOf(snapshot.scaledRate(usd), FixedPoint.RATE_SCALE);
+        toRate = BigDecimal.valueOf(snapshot.scaledRate(jpy), FixedPoint.RATE_SCALE);
+        amountDecimal = BigDecimal.valueOf(amountMinor, snapshot.scale(usd));
+    }
+
+    @Benchmark
+    public double doubleConvert() {
+        return manager.convert(usd, jpy, amount);
+    }
+
+    @Benchmark
+    public BigDecimal bigDecimalConvert() {
+        return amountDecimal.multiply(fromRate).divide(toRate, toScale, RoundingMode.HALF_EVEN);
+    }
+
+    @Benchmark
+    public long fixedPointConvert() {
+        return manager.convertMinor(usd, jpy, amountMinor, RoundingMode.HALF_EVEN);
+    }
+
+    @Benchmark
+    public long fixedPointConvertByCode() {
+        return manager.convertMinor("USD", "JPY", amountMinor, RoundingMode.HALF_EVEN);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,53 @@
+package bench;
+
+import model.ConcurrentExchangeHistory;
+import model.ExchangeHistory;
+import model.HistoryRecord;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Append throughput with many producer threads: {@link ConcurrentExchangeHistory}
+ * against {@link ExchangeHistory} behind one lock (what ConversionServer
+ * does). Run once per thread count and compare ops/us, e.g.
+ *
+ * <pre>
+ * java -jar bench/target/benchmarks.jar HistoryContention -t 1
+ * java -jar bench/target/benchmarks.jar HistoryContention -t 4
+ * java -jar bench/target/benchmarks.jar HistoryContention -t max
+ * </pre>
+ *
+ * Each iteration starts from an empty history so memory stays bounded.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class HistoryContentionBenchmark {
+    private static final long BASE_NANOS = 1_700_000_000_000_000_000L;
+
+    private ConcurrentExchangeHistory striped;
+    private ExchangeHistory locked;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        striped = new ConcurrentExchangeHistory();
+        locked = new ExchangeHistory();
+    }
+
+    @Benchmark
+    public void stripedAppend() {
+        striped.addRecord("USD", "THB", 100.0, 3650.0, BASE_NANOS + System.nanoTime());
+    }
+
+    @Benchmark
+    public void lockedAppend() {
+        HistoryRecord record = new HistoryRecord("USD", "THB", 100.0, 3650.0);
+        synchronized (locked) {
+            locked.addRecord(record);
+        }
+    }
+}
\ No newline at end of file
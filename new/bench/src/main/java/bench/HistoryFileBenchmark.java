@@ -0,0 +1,45 @@
+package bench;
+
+import model.ExchangeHistory;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/** Whole-file load and save of history.csv at several sizes. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class HistoryFileBenchmark {
+    @Param({"1000", "1000000", "10000000"})
+    public int rows;
+
+    private Path source;
+    private Path target;
+    private ExchangeHistory loaded;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        source = BenchFiles.historyFile(rows);
+        target = Files.createTempFile("bench-history-out", ".csv");
+        target.toFile().deleteOnExit();
+        loaded = new ExchangeHistory();
+        loaded.loadFromFile(source.toString());
+    }
+
+    @Benchmark
+    public ExchangeHistory loadFromFile() {
+        ExchangeHistory history = new ExchangeHistory();
+        history.loadFromFile(source.toString());
+        return history;
+    }
+
+    @Benchmark
+    public void saveToFile() {
+        loaded.saveToFile(target.toString());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,34 @@
+package bench;
+
+import model.HistoryRecord;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HistoryRecordBenchmark {
+    private HistoryRecord record;
+    private String line;
+
+    @Setup
+    public void setup() {
+        record = new HistoryRecord("USD", "THB", 1234.56, 45678.9, LocalDateTime.of(2025, 10, 8, 15, 3, 12, 838971600));
+        line = record.toCSV();
+    }
+
+    @Benchmark
+    public String toCSV() {
+        return record.toCSV();
+    }
+
+    @Benchmark
+    public HistoryRecord fromCSV() {
+        return HistoryRecord.fromCSV(line);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,27 @@
+package bench;
+
+import model.CurrencyManager;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RatesLoadBenchmark {
+    private CurrencyManager manager;
+
+    @Setup
+    public void setup() throws Exception {
+        manager = new CurrencyManager(BenchFiles.ratesFile().toString());
+    }
+
+    @Benchmark
+    public CurrencyManager loadRatesFromFile() {
+        manager.loadRatesFromFile();
+        return manager;
+    }
+}
\ No newline at end of file
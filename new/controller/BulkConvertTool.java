@@ -0,0 +1,51 @@
+
+import model.BulkConversionPipeline;
+import model.ConcurrentExchangeHistory;
+import model.CsvCodec;
+import model.CurrencyIds;
+import model.RatesSnapshot;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+
+/**
+ * End-of-day batch conversion without the GUI or the server.
+ *
+ * <pre>
+ * java BulkConvertTool rates.csv transactions.csv converted.csv [threads] [chunkMB] [history.csv]
+ * </pre>
+ *
+ * Every row is converted with the rates as read at start-up. With a history
+ * file the conversions are also appended there as history records.
+ */
+public class BulkConvertTool {
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3 || args.length > 6) {
+            System.err.println("Usage: BulkConvertTool <rates.csv> <input.csv> <output.csv> [threads] [chunkMB] [history.csv]");
+            System.exit(2);
+        }
+        Path ratesFile = Paths.get(args[0]);
+        Path in = Paths.get(args[1]);
+        Path out = Paths.get(args[2]);
+        int cores = Runtime.getRuntime().availableProcessors();
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : cores;
+        int chunkBytes = args.length > 4 ? Integer.parseInt(args[4]) << 20 : BulkConversionPipeline.DEFAULT_CHUNK_BYTES;
+
+        Map<String, Double> rates = CsvCodec.readRates(ratesFile);
+        RatesSnapshot snapshot = RatesSnapshot.build(1, new CurrencyIds(), rates);
+
+        ConcurrentExchangeHistory history = null;
+        if (args.length > 5) {
+            history = new ConcurrentExchangeHistory(threads);
+            history.openJournal(args[5], 1000);
+        }
+        try {
+            BulkConversionPipeline pipeline = new BulkConversionPipeline(snapshot, threads, chunkBytes, threads * 2, history);
+            System.out.println(in + " -> " + out + ": " + pipeline.run(in, out));
+        } finally {
+            if (history != null) history.closeJournal();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,84 @@
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Local load test for {@link ConversionServer}. Starts a server on a free
+ * port (unless a base URL is given), fires {@code requests} single
+ * conversions with {@code concurrency} outstanding at any time, and prints
+ * throughput and latency percentiles.
+ *
+ * <pre>
+ * java ConversionLoadTest [requests] [concurrency] [baseUrl]
+ * </pre>
+ */
+public class ConversionLoadTest {
+    private static final String[] CODES = {"USD", "EUR", "THB", "JPY", "GBP", "SGD", "CHF", "HKD"};
+
+    public static void main(String[] args) throws Exception {
+        int requests = args.length > 0 ? Integer.parseInt(args[0]) : 50_000;
+        int concurrency = args.length > 1 ? Integer.parseInt(args[1]) : 2_000;
+
+        ConversionServer server = null;
+        String baseUrl;
+        if (args.length > 2) {
+            baseUrl = args[2];
+        } else {
+            server = new ConversionServer(new CurrencyController("rates.csv", "history.csv"), 0, ConversionServer.DEFAULT_MAX_IN_FLIGHT);
+            server.start();
+            baseUrl = "http://localhost:" + server.getPort();
+        }
+
+        HttpClient client = HttpClient.newBuilder()
+                .executor(ConversionServer.newRequestExecutor(Integer.MAX_VALUE))
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+
+        long[] latencies = new long[requests];
+        AtomicInteger errors = new AtomicInteger();
+        Semaphore window = new Semaphore(concurrency);
+        CountDownLatch done = new CountDownLatch(requests);
+        Random random = new Random(42);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < requests; i++) {
+            String from = CODES[random.nextInt(CODES.length)];
+            String to = CODES[random.nextInt(CODES.length)];
+            URI uri = URI.create(baseUrl + "/convert?record=false&from=" + from + "&to=" + to + "&amount=" + (1 + random.nextInt(10_000)));
+            HttpRequest request = HttpRequest.newBuilder(uri).timeout(Duration.ofSeconds(30)).GET().build();
+
+            window.acquire();
+            int slot = i;
+            long sent = System.nanoTime();
+            client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, error) -> {
+                latencies[slot] = System.nanoTime() - sent;
+                if (error != null || response.statusCode() != 200) errors.incrementAndGet();
+                window.release();
+                done.countDown();
+            });
+        }
+        done.await();
+        long elapsed = System.nanoTime() - start;
+
+        Arrays.sort(latencies);
+        System.out.printf("requests=%d concurrency=%d errors=%d%n", requests, concurrency, errors.get());
+        System.out.printf("throughput=%.0f req/s%n", requests / (elapsed / 1e9));
+        System.out.printf("latency p50=%.2fms p99=%.2fms p99.9=%.2fms max=%.2fms%n",
+                percentile(latencies, 0.50), percentile(latencies, 0.99), percentile(latencies, 0.999),
+                latencies[latencies.length - 1] / 1e6);
+
+        if (server != null) server.stop();
+        System.exit(0);
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        int i = (int) Math.min(sorted.length - 1, Math.ceil(p * sorted.length) - 1);
+        return sorted[Math.max(0, i)] / 1e6;
+    }
+}
\ No newline at end of file
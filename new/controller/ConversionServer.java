@@ -0,0 +1,275 @@
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import model.CsvCodec;
+import model.ExchangeHistory;
+import model.HistoryRecord;
+import model.HistoryRows;
+import model.Metrics;
+import model.RateTickIngestor;
+import model.RatesSnapshot;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Headless HTTP front end for {@link CurrencyController}, using only the JDK.
+ *
+ * <pre>
+ * GET  /convert?from=USD&amp;to=THB&amp;amount=10[&amp;record=false]
+ * POST /convert/batch        body: one "FROM,TO,AMOUNT" per line
+ * GET  /rates
+ * GET  /history?offset=0&amp;limit=100
+ * </pre>
+ *
+ * Each request runs on its own virtual thread when the JDK has them (21+).
+ * At most {@code maxInFlight} requests are served at once; the rest get 503
+ * straight away instead of queueing without bound. On older JDKs requests run
+ * on a fixed pool of {@link #DEFAULT_PLATFORM_THREADS} threads with a queue of
+ * {@code maxInFlight}; connections beyond that are closed by the server.
+ *
+ * Launch with {@code -Dsun.net.httpserver.nodelay=true}: headers and body are
+ * written separately, so with Nagle on every response waits ~40 ms for the
+ * client's delayed ACK.
+ */
+public class ConversionServer {
+    public static final int DEFAULT_MAX_IN_FLIGHT = 10_000;
+    public static final int DEFAULT_PLATFORM_THREADS = 256;
+    private static final int MAX_PAGE = 1000;
+
+    private final CurrencyController controller;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Semaphore inFlight;
+
+    public ConversionServer(CurrencyController controller, int port, int maxInFlight) throws IOException {
+        this.controller = controller;
+        this.inFlight = new Semaphore(maxInFlight);
+        this.executor = newRequestExecutor(maxInFlight);
+        this.server = HttpServer.create(new InetSocketAddress(port), 1024);
+        this.server.setExecutor(executor);
+
+        server.createContext("/convert", exchange -> handle(exchange, this::convert));
+        server.createContext("/convert/batch", exchange -> handle(exchange, this::convertBatch));
+        server.createContext("/rates", exchange -> handle(exchange, this::rates));
+        server.createContext("/history", exchange -> handle(exchange, this::history));
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdown();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    // ---------- handlers ----------
+
+    private String convert(HttpExchange exchange) {
+        Map<String, String> q = query(exchange);
+        String from = required(q, "from");
+        String to = required(q, "to");
+        double amount = Double.parseDouble(required(q, "amount"));
+
+        double result = controller.getCurrencyConverter().convert(from, to, amount);
+        if (!"false".equals(q.get("record"))) {
+            ExchangeHistory history = controller.getExchangeHistory();
+            synchronized (history) {
+                history.addRecord(new HistoryRecord(from.toUpperCase(), to.toUpperCase(), amount, result));
+            }
+        }
+        return "{\"from\":" + quote(from.toUpperCase()) + ",\"to\":" + quote(to.toUpperCase())
+                + ",\"amount\":" + amount + ",\"result\":" + result + "}";
+    }
+
+    // แปลงหลายรายการด้วย snapshot เดียว ไม่บันทึกประวัติ
+    private String convertBatch(HttpExchange exchange) throws IOException {
+        if (!"POST".equals(exchange.getRequestMethod())) throw new IllegalArgumentException("Use POST");
+        RatesSnapshot rates = controller.getCurrencyManager().getSnapshot();
+
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isBlank()) lines.add(line);
+            }
+        }
+
+        int n = lines.size();
+        int[] fromIds = new int[n];
+        int[] toIds = new int[n];
+        double[] amounts = new double[n];
+        for (int i = 0; i < n; i++) {
+            String[] parts = lines.get(i).split(",");
+            if (parts.length != 3) throw new IllegalArgumentException("Line " + (i + 1) + ": expected FROM,TO,AMOUNT");
+            fromIds[i] = rates.id(parts[0].trim());
+            toIds[i] = rates.id(parts[1].trim());
+            amounts[i] = Double.parseDouble(parts[2].trim());
+        }
+
+        double[] results = new double[n];
+        // ใช้ snapshot ที่ resolve id ไว้ ผลลัพธ์กับ version ในคำตอบจะตรงกันแม้มีการโหลดเรทใหม่ระหว่างนั้น
+        rates.convertAll(fromIds, toIds, amounts, results);
+
+        StringBuilder sb = new StringBuilder(n * 12 + 32);
+        sb.append("{\"version\":").append(rates.getVersion()).append(",\"results\":[");
+        for (int i = 0; i < n; i++) {
+            if (i > 0) sb.append(',');
+            sb.append(results[i]);
+        }
+        return sb.append("]}").toString();
+    }
+
+    private String rates(HttpExchange exchange) {
+        RatesSnapshot rates = controller.getCurrencyManager().getSnapshot();
+        StringBuilder sb = new StringBuilder(256);
+        sb.append("{\"version\":").append(rates.getVersion())
+          .append(",\"loadedAt\":").append(quote(rates.getLoadedAt().toString()))
+          .append(",\"rates\":{");
+        boolean first = true;
+        for (Map.Entry<String, Double> entry : new TreeMap<>(rates.getRates()).entrySet()) {
+            if (!first) sb.append(',');
+            sb.append(quote(entry.getKey())).append(':').append(entry.getValue());
+            first = false;
+        }
+        return sb.append("}}").toString();
+    }
+
+    private String history(HttpExchange exchange) {
+        Map<String, String> q = query(exchange);
+        int offset = Integer.parseInt(q.getOrDefault("offset", "0"));
+        int limit = Math.min(MAX_PAGE, Integer.parseInt(q.getOrDefault("limit", "100")));
+        if (offset < 0 || limit < 0) throw new IllegalArgumentException("offset and limit must not be negative");
+
+        HistoryRows rows = controller.getExchangeHistory().getRows();
+        int total = rows.size();
+        int end = Math.min(total, offset + limit);
+
+        StringBuilder sb = new StringBuilder(64 + Math.max(0, end - offset) * 120);
+        sb.append("{\"total\":").append(total).append(",\"offset\":").append(offset).append(",\"records\":[");
+        for (int i = offset; i < end; i++) {
+            if (i > offset) sb.append(',');
+            sb.append("{\"from\":").append(quote(rows.fromCurrency(i)))
+              .append(",\"to\":").append(quote(rows.toCurrency(i)))
+              .append(",\"amount\":").append(rows.amount(i))
+              .append(",\"result\":").append(rows.result(i))
+              .append(",\"timestamp\":\"");
+            CsvCodec.appendTimestamp(sb, rows.epochNanos(i)).append("\"}");
+        }
+        return sb.append("]}").toString();
+    }
+
+    // ---------- plumbing ----------
+
+    interface Handler {
+        String handle(HttpExchange exchange) throws IOException;
+    }
+
+    private void handle(HttpExchange exchange, Handler handler) throws IOException {
+        if (!inFlight.tryAcquire()) {
+            send(exchange, 503, "{\"error\":\"Server busy\"}");
+            return;
+        }
+        try {
+            send(exchange, 200, handler.handle(exchange));
+        } catch (IllegalArgumentException e) {
+            send(exchange, 400, "{\"error\":" + quote(String.valueOf(e.getMessage())) + "}");
+        } catch (RuntimeException e) {
+            send(exchange, 500, "{\"error\":" + quote(String.valueOf(e.getMessage())) + "}");
+        } finally {
+            inFlight.release();
+        }
+    }
+
+    private static void send(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(bytes);
+        }
+    }
+
+    private static Map<String, String> query(HttpExchange exchange) {
+        Map<String, String> params = new HashMap<>();
+        String raw = exchange.getRequestURI().getRawQuery();
+        if (raw == null) return params;
+        for (String pair : raw.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq <= 0) continue;
+            params.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                       URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+
+    private static String required(Map<String, String> params, String name) {
+        String value = params.get(name);
+        if (value == null || value.isEmpty()) throw new IllegalArgumentException("Missing parameter: " + name);
+        return value;
+    }
+
+    private static String quote(String s) {
+        StringBuilder sb = new StringBuilder(s.length() + 2).append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char ch = s.charAt(i);
+            if (ch == '"' || ch == '\\') sb.append('\\').append(ch);
+            else if (ch < 0x20) sb.append(String.format("\\u%04x", (int) ch));
+            else sb.append(ch);
+        }
+        return sb.append('"').toString();
+    }
+
+    // ใช้ virtual thread ถ้า JDK รองรับ (21 ขึ้นไป) ไม่งั้นใช้ pool ขนาดคงที่กับคิวจำกัด
+    // งานที่ล้นคิวถูก reject และ HttpServer ปิด connection นั้น thread/คิวจึงไม่โตตามโหลด
+    static ExecutorService newRequestExecutor(int maxInFlight) {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            int threads = Math.min(maxInFlight, DEFAULT_PLATFORM_THREADS);
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(Math.max(1, maxInFlight - threads)), r -> {
+                        Thread t = new Thread(r, "http-worker");
+                        t.setDaemon(true);
+                        return t;
+                    });
+            pool.allowCoreThreadTimeOut(true);
+            return pool;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        Metrics.startReporterFromProperty();
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        String ratesFile = args.length > 1 ? args[1] : "rates.csv";
+        String historyFile = args.length > 2 ? args[2] : "history.csv";
+
+        CurrencyController controller = new CurrencyController(ratesFile, historyFile);
+        controller.getExchangeHistory().openAsyncJournal(ExchangeHistory.journalFileFor(historyFile), 512, 20);
+        // -Dexchange.ticks.port / -Dexchange.ticks.file: รับเรทแบบ stream แทนการแก้ rates.csv
+        RateTickIngestor ticks = RateTickIngestor.fromProperties(controller.getCurrencyManager());
+        ConversionServer server = new ConversionServer(controller, port, DEFAULT_MAX_IN_FLIGHT);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop();
+            if (ticks != null) {
+                try {
+                    ticks.close();
+                } catch (IOException e) {
+                    System.err.println("Error closing rate ticks: " + e.getMessage());
+                }
+            }
+            controller.getExchangeHistory().closeJournal();
+        }));
+        server.start();
+        System.out.println("Conversion server listening on port " + server.getPort());
+    }
+}
\ No newline at end of file
@@ -1,30 +1,40 @@
-
-
-import model.CurrencyConverter;
-import model.CurrencyManager;
-import model.ExchangeHistory;
-
-public class CurrencyController {
-    private CurrencyManager currencyManager;
-    private CurrencyConverter currencyConverter;
-    private ExchangeHistory exchangeHistory;
-
-    public CurrencyController(String ratesFile, String historyFile) {
-        currencyManager = new CurrencyManager(ratesFile);
-        currencyConverter = new CurrencyConverter(currencyManager);
-        exchangeHistory = new ExchangeHistory();
-        exchangeHistory.loadFromFile(historyFile);
-    }
-
-    public CurrencyManager getCurrencyManager() {
-        return currencyManager;
-    }
-
-    public CurrencyConverter getCurrencyConverter() {
-        return currencyConverter;
-    }
-
-    public ExchangeHistory getExchangeHistory() {
-        return exchangeHistory;
-    }
+
+
+import model.CurrencyConverter;
+import model.CurrencyManager;
+import model.ExchangeHistory;
+
+import java.io.IOException;
+
+public class CurrencyController {
+    private CurrencyManager currencyManager;
+    private CurrencyConverter currencyConverter;
+    private ExchangeHistory exchangeHistory;
+
+    public CurrencyController(String ratesFile, String historyFile) {
+        currencyManager = new CurrencyManager(ratesFile);
+        currencyConverter = new CurrencyConverter(currencyManager);
+        exchangeHistory = ExchangeHistory.fromProperties();
+        if (historyFile.endsWith(".bin")) {
+            try {
+                exchangeHistory.loadFromBinary(historyFile);
+            } catch (IOException e) {
+                System.err.println("Error loading binary history: " + e.getMessage());
+            }
+        } else {
+            exchangeHistory.loadFromFile(historyFile);
+        }
+    }
+
+    public CurrencyManager getCurrencyManager() {
+        return currencyManager;
+    }
+
+    public CurrencyConverter getCurrencyConverter() {
+        return currencyConverter;
+    }
+
+    public ExchangeHistory getExchangeHistory() {
+        return exchangeHistory;
+    }
 }
\ No newline at end of file
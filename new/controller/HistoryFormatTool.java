@@ -0,0 +1,43 @@
+
+import model.BinaryHistoryFile;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Converts history between CSV and the binary segment format.
+ *
+ * <pre>
+ * java HistoryFormatTool csv2bin history.csv history.bin
+ * java HistoryFormatTool bin2csv history.bin history.csv
+ * </pre>
+ *
+ * csv2bin also picks up journal segments of the CSV file (see
+ * {@code HistoryJournal}); the output of bin2csv can be loaded by
+ * {@code ExchangeHistory.loadFromFile} as usual.
+ */
+public class HistoryFormatTool {
+    public static void main(String[] args) throws IOException {
+        if (args.length != 3) {
+            System.err.println("Usage: HistoryFormatTool csv2bin|bin2csv <input> <output>");
+            System.exit(2);
+        }
+        Path in = Paths.get(args[1]);
+        Path out = Paths.get(args[2]);
+
+        long start = System.nanoTime();
+        switch (args[0]) {
+            case "csv2bin":
+                BinaryHistoryFile.csvToBinary(in, out);
+                break;
+            case "bin2csv":
+                BinaryHistoryFile.binaryToCsv(in, out);
+                break;
+            default:
+                System.err.println("Unknown command: " + args[0]);
+                System.exit(2);
+        }
+        System.out.printf("%s -> %s in %d ms%n", in, out, (System.nanoTime() - start) / 1_000_000);
+    }
+}
\ No newline at end of file
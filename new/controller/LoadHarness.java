@@ -0,0 +1,671 @@
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import model.BinaryHistoryFile;
+import model.CsvCodec;
+import model.CurrencyConverter;
+import model.CurrencyManager;
+import model.ExchangeHistory;
+import model.HistoryRecord;
+import model.HistoryRows;
+import model.HistoryStore;
+import model.LatencyHistogram;
+import model.Metrics;
+import model.RateHistory;
+import model.RateTickIngestor;
+
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.io.*;
+import java.lang.management.*;
+import java.nio.file.*;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * End-to-end load harness: builds a {@link CurrencyController} on synthetic
+ * rates and history files and drives a seeded mix of operations against it
+ * from several threads, one scenario per combination of currency count,
+ * history size and thread count.
+ *
+ * <pre>
+ * java LoadHarness [--currencies 20,200,2000] [--rows 100000,10000000] [--threads 1,4]
+ *                  [--seconds 10] [--warmup 3] [--seed 42] [--rate 0] [--ticks 0]
+ *                  [--mix convert=70,record=10,rate=1,page=9,query=5,summary=5]
+ *                  [--format auto|csv|bin] [--dir load-data] [--out load-results.json]
+ * </pre>
+ *
+ * Operations:
+ * <ul>
+ * <li>{@code convert} one conversion, not recorded</li>
+ * <li>{@code record} one conversion appended to the history (as ConversionServer does)</li>
+ * <li>{@code rate} one rate edit through {@link CurrencyManager#setRate}</li>
+ * <li>{@code page} formats 100 consecutive history rows</li>
+ * <li>{@code query} indexed lookup of one pair over a one-hour window</li>
+ * <li>{@code summary} per-day rollup of one pair</li>
+ * </ul>
+ *
+ * Input files are generated once per (currencies, rows, seed) under
+ * {@code --dir} and reused, so runs of different builds see the same data.
+ * Every thread draws its operations from its own seeded random, so the mix
+ * and arguments are reproducible; only how many operations fit in the time
+ * differs. With {@code --rate} each thread issues operations on a fixed
+ * schedule and latency is measured from the scheduled start, so a stall
+ * shows up in the percentiles instead of just lowering throughput.
+ * {@code --ticks} feeds that many rate ticks per second into a
+ * {@link RateTickIngestor} for the whole scenario, to see what streaming
+ * rates cost the other operations.
+ *
+ * Results go to {@code --out} as JSON (throughput and latency percentiles
+ * per operation, heap after load and at peak, GC pauses) and a short text
+ * summary to stdout. {@code --format auto} uses CSV history up to
+ * {@link #CSV_MAX_ROWS} rows and the memory-mapped binary format above.
+ */
+public class LoadHarness {
+    static final int CSV_MAX_ROWS = 5_000_000;
+    private static final String[] OPERATIONS = {"convert", "record", "rate", "page", "query", "summary"};
+    private static final String[] COMMON_CODES = {
+        "THB", "USD", "EUR", "JPY", "GBP", "SGD", "CNY", "HKD", "AUD", "CHF", "CAD", "KRW",
+        "MYR", "INR", "IDR", "PHP", "VND", "NZD", "SEK", "NOK", "DKK", "KWD", "BHD", "TWD"
+    };
+    private static final int PAGE_ROWS = 100;
+    private static final long HOUR_NANOS = 3_600_000_000_000L;
+    private static final long HISTORY_START = HistoryStore.toEpochNanos(LocalDateTime.of(2024, 1, 1, 0, 0));
+    private static final long HISTORY_SPAN = 365L * 24 * HOUR_NANOS;
+
+    private final int[] currencyCounts;
+    private final int[] rowCounts;
+    private final int[] threadCounts;
+    private final int seconds;
+    private final int warmupSeconds;
+    private final long seed;
+    private final double targetRate;
+    private final double tickRate;
+    private final int[] weights = new int[OPERATIONS.length];
+    private final String format;
+    private final Path dir;
+    private final Path out;
+
+    private final GcWatcher gc = new GcWatcher();
+
+    private LoadHarness(Map<String, String> options) {
+        currencyCounts = intList(options.getOrDefault("currencies", "20,200,2000"));
+        rowCounts = intList(options.getOrDefault("rows", "100000"));
+        threadCounts = intList(options.getOrDefault("threads", String.valueOf(Runtime.getRuntime().availableProcessors())));
+        seconds = Integer.parseInt(options.getOrDefault("seconds", "10"));
+        warmupSeconds = Integer.parseInt(options.getOrDefault("warmup", "3"));
+        seed = Long.parseLong(options.getOrDefault("seed", "42"));
+        targetRate = Double.parseDouble(options.getOrDefault("rate", "0"));
+        tickRate = Double.parseDouble(options.getOrDefault("ticks", "0"));
+        format = options.getOrDefault("format", "auto");
+        dir = Paths.get(options.getOrDefault("dir", "load-data"));
+        out = Paths.get(options.getOrDefault("out", "load-results.json"));
+
+        for (String entry : options.getOrDefault("mix", "convert=70,record=10,rate=1,page=9,query=5,summary=5").split(",")) {
+            String[] kv = entry.split("=");
+            int op = Arrays.asList(OPERATIONS).indexOf(kv[0].trim());
+            if (kv.length != 2 || op < 0) throw new IllegalArgumentException("Bad mix entry: " + entry);
+            weights[op] = Integer.parseInt(kv[1].trim());
+        }
+        if (Arrays.stream(weights).sum() <= 0) throw new IllegalArgumentException("Mix has no operations");
+        if (!format.equals("auto") && !format.equals("csv") && !format.equals("bin")) {
+            throw new IllegalArgumentException("Unknown format: " + format);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i < args.length; i += 2) {
+            if (!args[i].startsWith("--") || i + 1 >= args.length) {
+                System.err.println("Usage: LoadHarness [--name value]... (see class documentation)");
+                System.exit(2);
+            }
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+        new LoadHarness(options).run();
+        System.exit(0);
+    }
+
+    private void run() throws Exception {
+        Files.createDirectories(dir);
+        StringBuilder json = new StringBuilder(4096);
+        json.append("{\"java\":").append(quote(System.getProperty("java.version")))
+            .append(",\"vm\":").append(quote(System.getProperty("java.vm.name")))
+            .append(",\"cpus\":").append(Runtime.getRuntime().availableProcessors())
+            .append(",\"maxHeapMB\":").append(Runtime.getRuntime().maxMemory() >> 20)
+            .append(",\"seed\":").append(seed)
+            .append(",\"seconds\":").append(seconds)
+            .append(",\"warmupSeconds\":").append(warmupSeconds)
+            .append(",\"targetRate\":").append(targetRate)
+            .append(",\"tickRate\":").append(tickRate)
+            .append(",\"mix\":{");
+        for (int op = 0; op < OPERATIONS.length; op++) {
+            if (op > 0) json.append(',');
+            json.append(quote(OPERATIONS[op])).append(':').append(weights[op]);
+        }
+        json.append("},\"scenarios\":[");
+
+        boolean first = true;
+        for (int currencies : currencyCounts) {
+            for (int rows : rowCounts) {
+                for (int threads : threadCounts) {
+                    if (!first) json.append(',');
+                    first = false;
+                    runScenario(currencies, rows, threads, json);
+                }
+            }
+        }
+        json.append("]}\n");
+        Files.write(out, json.toString().getBytes());
+        System.out.println("Results written to " + out.toAbsolutePath());
+    }
+
+    // ---------- scenario ----------
+
+    private void runScenario(int currencies, int rows, int threads, StringBuilder json) throws Exception {
+        String name = currencies + "cur-" + rows + "rows-" + threads + "thr";
+        String[] codes = codes(currencies);
+        double[] rates = rates(codes);
+        Path ratesFile = dir.resolve("rates-" + currencies + "-s" + seed + ".csv");
+        boolean binary = format.equals("bin") || (format.equals("auto") && rows > CSV_MAX_ROWS);
+        Path historyFile = dir.resolve("history-" + currencies + "-" + rows + "-s" + seed + (binary ? ".bin" : ".csv"));
+        prepare(ratesFile, historyFile, codes, rates, rows, binary);
+        // log การแก้เรทของรอบก่อนทำให้เวลาโหลดไม่เท่ากัน เริ่มจากไม่มี log ทุกครั้ง
+        Files.deleteIfExists(RateHistory.logFileFor(ratesFile.toString()));
+
+        System.out.println("== " + name);
+        long loadStart = System.nanoTime();
+        CurrencyController controller = new CurrencyController(ratesFile.toString(), historyFile.toString());
+        long loadNanos = System.nanoTime() - loadStart;
+        // บันทึก index/rollup ไว้ รอบต่อไปกับไฟล์เดิมวัดเวลาโหลดแบบไม่ต้องสร้างใหม่
+        controller.getExchangeHistory().saveIndex();
+        controller.getExchangeHistory().saveRollup();
+        long heapAfterLoad = usedHeapAfterGc();
+
+        LatencyHistogram[] latencies = new LatencyHistogram[OPERATIONS.length];
+        for (int op = 0; op < OPERATIONS.length; op++) latencies[op] = Metrics.latency("harness." + OPERATIONS[op]);
+        LongAdder errors = new LongAdder();
+
+        RateTickIngestor ingestor = null;
+        TickFeeder feeder = null;
+        if (tickRate > 0) {
+            ingestor = new RateTickIngestor(controller.getCurrencyManager());
+            feeder = new TickFeeder(ingestor, codes, rates, new SplittableRandom(seed ^ 0x7469636BL), tickRate);
+            feeder.start();
+        }
+
+        if (warmupSeconds > 0) drive(controller, codes, rates, threads, warmupSeconds, latencies, errors);
+        for (LatencyHistogram h : latencies) h.reset();
+        errors.reset();
+        resetTickMetrics(feeder);
+        resetPeakUsage();
+        gc.start();
+        long elapsed = drive(controller, codes, rates, threads, seconds, latencies, errors);
+        GcWatcher.Totals gcTotals = gc.stop();
+        long heapPeak = peakHeap();
+        long ticksOffered = 0;
+        if (feeder != null) {
+            ticksOffered = feeder.stop();
+            ingestor.close();
+        }
+        controller.getCurrencyManager().getRateHistory().close();
+
+        long ops = 0;
+        for (LatencyHistogram h : latencies) ops += h.getCount();
+        double throughput = ops / (elapsed / 1e9);
+
+        json.append("{\"name\":").append(quote(name))
+            .append(",\"currencies\":").append(currencies)
+            .append(",\"rows\":").append(rows)
+            .append(",\"threads\":").append(threads)
+            .append(",\"historyFormat\":").append(quote(binary ? "bin" : "csv"))
+            .append(",\"loadMillis\":").append(loadNanos / 1_000_000)
+            .append(",\"elapsedMillis\":").append(elapsed / 1_000_000)
+            .append(",\"operations\":").append(ops)
+            .append(",\"errors\":").append(errors.sum())
+            .append(",\"throughput\":").append(Math.round(throughput))
+            .append(",\"heap\":{\"afterLoadMB\":").append(heapAfterLoad >> 20)
+            .append(",\"peakMB\":").append(heapPeak >> 20).append('}')
+            .append(",\"gc\":{\"count\":").append(gcTotals.count)
+            .append(",\"totalPauseMillis\":").append(gcTotals.totalMillis)
+            .append(",\"maxPauseMillis\":").append(gcTotals.maxMillis).append('}');
+        if (feeder != null) {
+            json.append(",\"ticks\":{\"offered\":").append(ticksOffered)
+                .append(",\"received\":").append(Metrics.TICKS_RECEIVED.getCount())
+                .append(",\"coalesced\":").append(Metrics.TICKS_COALESCED.getCount())
+                .append(",\"dropped\":").append(Metrics.TICKS_DROPPED.getCount())
+                .append(",\"appliedRates\":").append(Metrics.TICKS_APPLIED.getCount())
+                .append(",\"applies\":").append(Metrics.TICKS_APPLY.getCount())
+                .append(",\"applyP99Micros\":").append(round(Metrics.TICKS_APPLY.getP99Micros())).append('}');
+        }
+        json.append(",\"latencyMicros\":{");
+        boolean first = true;
+        for (int op = 0; op < OPERATIONS.length; op++) {
+            LatencyHistogram h = latencies[op];
+            if (h.getCount() == 0) continue;
+            if (!first) json.append(',');
+            first = false;
+            json.append(quote(OPERATIONS[op]))
+                .append(":{\"count\":").append(h.getCount())
+                .append(",\"throughput\":").append(Math.round(h.getCount() / (elapsed / 1e9)))
+                .append(",\"mean\":").append(round(h.getMeanMicros()))
+                .append(",\"p50\":").append(round(h.getP50Micros()))
+                .append(",\"p90\":").append(round(h.getP90Micros()))
+                .append(",\"p99\":").append(round(h.getP99Micros()))
+                .append(",\"p999\":").append(round(h.getP999Micros()))
+                .append(",\"max\":").append(round(h.getMaxMicros())).append('}');
+        }
+        json.append("}}");
+
+        System.out.printf("load=%dms ops=%d errors=%d throughput=%.0f ops/s heap(load)=%dMB heap(peak)=%dMB gc=%d pauses %dms (max %dms)%n",
+                loadNanos / 1_000_000, ops, errors.sum(), throughput, heapAfterLoad >> 20, heapPeak >> 20,
+                gcTotals.count, gcTotals.totalMillis, gcTotals.maxMillis);
+        if (feeder != null) {
+            System.out.printf("  ticks    offered=%d received=%d coalesced=%d applied=%d in %d batches (p99 %.1fus)%n",
+                    ticksOffered, Metrics.TICKS_RECEIVED.getCount(), Metrics.TICKS_COALESCED.getCount(),
+                    Metrics.TICKS_APPLIED.getCount(), Metrics.TICKS_APPLY.getCount(), Metrics.TICKS_APPLY.getP99Micros());
+        }
+        for (int op = 0; op < OPERATIONS.length; op++) {
+            LatencyHistogram h = latencies[op];
+            if (h.getCount() == 0) continue;
+            System.out.printf("  %-8s n=%-10d p50=%.1fus p99=%.1fus p99.9=%.1fus max=%.1fus%n", OPERATIONS[op],
+                    h.getCount(), h.getP50Micros(), h.getP99Micros(), h.getP999Micros(), h.getMaxMicros());
+        }
+    }
+
+    /** Runs {@code threads} workers for {@code seconds}; returns the elapsed nanoseconds. */
+    private long drive(CurrencyController controller, String[] codes, double[] rates, int threads, int seconds,
+                       LatencyHistogram[] latencies, LongAdder errors) throws InterruptedException {
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        // ช่วงเวลาระหว่างงานของแต่ละ thread เมื่อกำหนด --rate (0 = ทำต่อกันเลย)
+        long interval = targetRate > 0 ? (long) (threads * 1e9 / targetRate) : 0;
+        CountDownLatch ready = new CountDownLatch(threads);
+        CountDownLatch go = new CountDownLatch(1);
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            Worker worker = new Worker(controller, codes, rates, new SplittableRandom(seed * 1_000_003L + t),
+                    latencies, errors, deadline, interval);
+            workers[t] = new Thread(() -> {
+                ready.countDown();
+                try {
+                    go.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                worker.run();
+            }, "load-" + t);
+            workers[t].start();
+        }
+        ready.await();
+        long start = System.nanoTime();
+        go.countDown();
+        for (Thread worker : workers) worker.join();
+        return System.nanoTime() - start;
+    }
+
+    private final class Worker {
+        private final CurrencyManager manager;
+        private final CurrencyConverter converter;
+        private final ExchangeHistory history;
+        private final String[] codes;
+        private final double[] rates;
+        private final SplittableRandom random;
+        private final LatencyHistogram[] latencies;
+        private final LongAdder errors;
+        private final long deadline;
+        private final long interval;
+        private final int totalWeight = Arrays.stream(weights).sum();
+        private final StringBuilder sb = new StringBuilder(PAGE_ROWS * 120);
+
+        Worker(CurrencyController controller, String[] codes, double[] rates, SplittableRandom random,
+               LatencyHistogram[] latencies, LongAdder errors, long deadline, long interval) {
+            this.manager = controller.getCurrencyManager();
+            this.converter = controller.getCurrencyConverter();
+            this.history = controller.getExchangeHistory();
+            this.codes = codes;
+            this.rates = rates;
+            this.random = random;
+            this.latencies = latencies;
+            this.errors = errors;
+            this.deadline = deadline;
+            this.interval = interval;
+        }
+
+        void run() {
+            long next = System.nanoTime();
+            while (true) {
+                long start;
+                if (interval > 0) {
+                    start = next;
+                    next += interval;
+                    long wait = start - System.nanoTime();
+                    if (wait > 0) LockSupport.parkNanos(wait);
+                } else {
+                    start = System.nanoTime();
+                }
+                if (start >= deadline) return;
+                int op = pick();
+                try {
+                    execute(op);
+                } catch (RuntimeException e) {
+                    errors.increment();
+                }
+                latencies[op].recordSince(start);
+            }
+        }
+
+        private int pick() {
+            int r = random.nextInt(totalWeight);
+            for (int op = 0; op < weights.length; op++) {
+                r -= weights[op];
+                if (r < 0) return op;
+            }
+            return weights.length - 1;
+        }
+
+        private void execute(int op) {
+            String from = codes[skewed(random.nextDouble(), codes.length)];
+            String to = codes[skewed(random.nextDouble(), codes.length)];
+            switch (op) {
+                case 0:
+                    converter.convert(from, to, amount());
+                    break;
+                case 1: {
+                    double amount = amount();
+                    double result = converter.convert(from, to, amount);
+                    synchronized (history) {
+                        history.addRecord(new HistoryRecord(from, to, amount, result));
+                    }
+                    break;
+                }
+                case 2: {
+                    // ไม่แตะสกุลเงินหลัก เรทอื่นแกว่งไม่เกิน ±1% จากค่าตั้งต้น
+                    int id = 1 + random.nextInt(codes.length - 1);
+                    manager.setRate(codes[id], rates[id] * (0.99 + random.nextDouble() * 0.02));
+                    break;
+                }
+                case 3: {
+                    HistoryRows rows = history.getRows();
+                    int size = rows.size();
+                    int offset = size <= PAGE_ROWS ? 0 : random.nextInt(size - PAGE_ROWS);
+                    sb.setLength(0);
+                    for (int i = offset, end = Math.min(size, offset + PAGE_ROWS); i < end; i++) {
+                        CsvCodec.appendHistory(sb, rows, i).append('\n');
+                    }
+                    break;
+                }
+                case 4: {
+                    long start = HISTORY_START + (long) (random.nextDouble() * (HISTORY_SPAN - HOUR_NANOS));
+                    history.find(from, to, HistoryStore.toLocalDateTime(start), HistoryStore.toLocalDateTime(start + HOUR_NANOS));
+                    break;
+                }
+                default:
+                    history.summarize(from, to, null, null);
+                    break;
+            }
+        }
+
+        private double amount() {
+            return (1 + random.nextInt(1_000_000)) / 100.0;
+        }
+    }
+
+    /**
+     * Offers ticks to an ingestor at a fixed average rate from one thread,
+     * each a small random step from the currency's starting rate. Ticks due
+     * while the thread was descheduled are sent in a burst.
+     */
+    private static final class TickFeeder {
+        private final RateTickIngestor ingestor;
+        private final String[] codes;
+        private final double[] rates;
+        private final SplittableRandom random;
+        private final double perNano;
+        private final Thread thread;
+        private volatile boolean running = true;
+        private volatile long offered;
+        private long resetAt;
+
+        TickFeeder(RateTickIngestor ingestor, String[] codes, double[] rates, SplittableRandom random, double perSecond) {
+            this.ingestor = ingestor;
+            this.codes = codes;
+            this.rates = rates;
+            this.random = random;
+            this.perNano = perSecond / 1e9;
+            this.thread = new Thread(this::run, "load-ticks");
+            this.thread.setDaemon(true);
+        }
+
+        void start() {
+            thread.start();
+        }
+
+        private void run() {
+            long start = System.nanoTime();
+            long sent = 0;
+            while (running) {
+                long due = (long) ((System.nanoTime() - start) * perNano);
+                for (; sent < due; sent++) {
+                    int id = 1 + skewed(random.nextDouble(), codes.length - 1);
+                    ingestor.offer(codes[id], rates[id] * (0.99 + random.nextDouble() * 0.02));
+                }
+                offered = sent;
+                LockSupport.parkNanos(100_000);
+            }
+        }
+
+        void reset() {
+            resetAt = offered;
+        }
+
+        /** Stops the feeder; returns the ticks offered since {@link #reset}. */
+        long stop() throws InterruptedException {
+            running = false;
+            thread.join();
+            return offered - resetAt;
+        }
+    }
+
+    private static void resetTickMetrics(TickFeeder feeder) {
+        if (feeder == null) return;
+        feeder.reset();
+        Metrics.TICKS_RECEIVED.reset();
+        Metrics.TICKS_COALESCED.reset();
+        Metrics.TICKS_DROPPED.reset();
+        Metrics.TICKS_APPLIED.reset();
+        Metrics.TICKS_APPLY.reset();
+    }
+
+    // ---------- synthetic data ----------
+
+    // สกุลเงินช่วงต้นถูกใช้บ่อยกว่ามาก เหมือนคู่หลักๆ ในระบบจริง
+    private static int skewed(double u, int n) {
+        return (int) (u * u * u * n);
+    }
+
+    // รหัสจริงก่อน แล้วต่อด้วยรหัสสามตัวอักษรที่สร้างขึ้น
+    private static String[] codes(int n) {
+        if (n < 2) throw new IllegalArgumentException("Need at least 2 currencies");
+        Set<String> codes = new LinkedHashSet<>(Arrays.asList(COMMON_CODES).subList(0, Math.min(n, COMMON_CODES.length)));
+        for (int i = 0; codes.size() < n; i++) {
+            if (i >= 26 * 26 * 26) throw new IllegalArgumentException("Too many currencies: " + n);
+            codes.add("" + (char) ('A' + i / 676) + (char) ('A' + i / 26 % 26) + (char) ('A' + i % 26));
+        }
+        return codes.toArray(new String[0]);
+    }
+
+    // เรทเทียบสกุลเงินหลัก (ตัวแรก = 1) กระจายแบบ log ระหว่าง 0.001 ถึง 1000
+    private double[] rates(String[] codes) {
+        SplittableRandom random = new SplittableRandom(seed);
+        double[] rates = new double[codes.length];
+        rates[0] = 1.0;
+        for (int i = 1; i < rates.length; i++) rates[i] = Math.round(Math.pow(10, random.nextDouble(-3, 3)) * 1e6) / 1e6;
+        return rates;
+    }
+
+    private void prepare(Path ratesFile, Path historyFile, String[] codes, double[] rates, int rows, boolean binary) throws IOException {
+        if (!Files.exists(ratesFile)) {
+            try (PrintWriter pw = new PrintWriter(Files.newBufferedWriter(ratesFile))) {
+                for (int i = 0; i < codes.length; i++) pw.println(codes[i] + "," + rates[i]);
+            }
+        }
+        if (Files.exists(historyFile)) return;
+        long start = System.nanoTime();
+        System.out.println("Generating " + historyFile + " ...");
+        SyntheticRows synthetic = new SyntheticRows(codes, rates, rows, seed);
+        Path tmp = historyFile.resolveSibling(historyFile.getFileName() + ".gen");
+        if (binary) {
+            BinaryHistoryFile.write(tmp, synthetic);
+        } else {
+            try (Writer writer = Files.newBufferedWriter(tmp)) {
+                CsvCodec.writeHistory(writer, synthetic);
+            }
+        }
+        Files.move(tmp, historyFile, StandardCopyOption.REPLACE_EXISTING);
+        System.out.printf("Generated %d rows in %d ms%n", rows, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * History rows computed from their index, so files of any size can be
+     * written without holding them in memory. Timestamps rise through one
+     * year from {@link #HISTORY_START}.
+     */
+    static final class SyntheticRows implements HistoryRows {
+        private final String[] codes;
+        private final double[] rates;
+        private final int size;
+        private final long seed;
+        private final long step;
+
+        SyntheticRows(String[] codes, double[] rates, int size, long seed) {
+            this.codes = codes;
+            this.rates = rates;
+            this.size = size;
+            this.seed = seed;
+            this.step = Math.max(1, HISTORY_SPAN / Math.max(1, size));
+        }
+
+        private long hash(int i, int salt) {
+            long z = seed * 0x9E3779B97F4A7C15L + i * 0xBF58476D1CE4E5B9L + salt * 0x94D049BB133111EBL;
+            z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+            z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+            return z ^ (z >>> 31);
+        }
+
+        private double unit(int i, int salt) {
+            return (hash(i, salt) >>> 11) * 0x1.0p-53;
+        }
+
+        private int fromId(int i) { return skewed(unit(i, 1), codes.length); }
+        private int toId(int i) { return skewed(unit(i, 2), codes.length); }
+
+        @Override public int size() { return size; }
+        @Override public String fromCurrency(int i) { return codes[fromId(i)]; }
+        @Override public String toCurrency(int i) { return codes[toId(i)]; }
+        @Override public double amount(int i) { return (1 + (hash(i, 3) >>> 1) % 1_000_000) / 100.0; }
+        @Override public double result(int i) { return Math.round(amount(i) * rates[fromId(i)] / rates[toId(i)] * 100) / 100.0; }
+        @Override public long epochNanos(int i) { return HISTORY_START + i * step + (hash(i, 4) >>> 1) % step; }
+    }
+
+    // ---------- JVM statistics ----------
+
+    private static long usedHeapAfterGc() {
+        System.gc();
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    private static void resetPeakUsage() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) pool.resetPeakUsage();
+        }
+    }
+
+    // ผลรวม peak ของแต่ละ pool ซึ่งอาจไม่ได้เกิดพร้อมกัน จึงเป็นค่าสูงสุดที่เป็นไปได้
+    private static long peakHeap() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) peak += pool.getPeakUsage().getUsed();
+        }
+        return peak;
+    }
+
+    /**
+     * Collects the duration of every collection between {@link #start} and
+     * {@link #stop} from the collectors' JMX notifications. Concurrent
+     * cycles (ZGC/Shenandoah "Cycles" collectors) are not pauses and are
+     * skipped.
+     */
+    static final class GcWatcher implements NotificationListener {
+        private volatile boolean active;
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong total = new AtomicLong();
+        private final AtomicLong max = new AtomicLong();
+
+        GcWatcher() {
+            for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+                if (bean instanceof NotificationEmitter) ((NotificationEmitter) bean).addNotificationListener(this, null, null);
+            }
+        }
+
+        void start() {
+            count.set(0);
+            total.set(0);
+            max.set(0);
+            active = true;
+        }
+
+        Totals stop() {
+            active = false;
+            return new Totals(count.get(), total.get(), max.get());
+        }
+
+        @Override
+        public void handleNotification(Notification notification, Object handback) {
+            if (!active || !GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) return;
+            GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+            if (info.getGcName().contains("Cycles")) return;
+            long millis = info.getGcInfo().getDuration();
+            count.incrementAndGet();
+            total.addAndGet(millis);
+            max.accumulateAndGet(millis, Math::max);
+        }
+
+        static final class Totals {
+            final long count;
+            final long totalMillis;
+            final long maxMillis;
+
+            Totals(long count, long totalMillis, long maxMillis) {
+                this.count = count;
+                this.totalMillis = totalMillis;
+                this.maxMillis = maxMillis;
+            }
+        }
+    }
+
+    // ---------- helpers ----------
+
+    private static int[] intList(String s) {
+        return Arrays.stream(s.split(",")).map(String::trim).mapToInt(Integer::parseInt).toArray();
+    }
+
+    private static double round(double v) {
+        return Math.round(v * 10) / 10.0;
+    }
+
+    private static String quote(String s) {
+        StringBuilder sb = new StringBuilder(s.length() + 2).append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char ch = s.charAt(i);
+            if (ch == '"' || ch == '\\') sb.append('\\').append(ch);
+            else if (ch < 0x20) sb.append(String.format("\\u%04x", (int) ch));
+            else sb.append(ch);
+        }
+        return sb.append('"').toString();
+    }
+}
\ No newline at end of file
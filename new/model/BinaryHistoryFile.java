@@ -0,0 +1,208 @@
+package model;
+
+import java.io.*;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Fixed-width binary history segment, read through {@link FileChannel#map}.
+ *
+ * <pre>
+ * header   int    magic "EXHB"
+ *          int    format version (1)
+ *          long   record count
+ *          int    currency count, then per currency: short length + UTF-8 code
+ *          padding to a multiple of 32 bytes
+ * records  int fromId, int toId, double amount, double result, long epochNanos
+ * </pre>
+ *
+ * All values are little-endian. Record {@code i} sits at a fixed offset, so
+ * access is O(1) and opening a file only reads the header; the OS pages the
+ * records in as they are touched.
+ */
+public class BinaryHistoryFile implements HistoryRows {
+    public static final int MAGIC = 0x42485845; // "EXHB" little-endian
+    public static final int VERSION = 1;
+    public static final int RECORD_BYTES = 32;
+
+    // แบ่ง map เป็นช่วงละ 1 GB เพราะ MappedByteBuffer ใช้ index แบบ int
+    private static final int REGION_BITS = 30;
+    private static final long REGION_MASK = (1L << REGION_BITS) - 1;
+
+    private final Path file;
+    private final String[] codes;
+    private final int size;
+    private final MappedByteBuffer[] regions;
+
+    private BinaryHistoryFile(Path file, String[] codes, int size, MappedByteBuffer[] regions) {
+        this.file = file;
+        this.codes = codes;
+        this.size = size;
+        this.regions = regions;
+    }
+
+    // ---------- read ----------
+
+    public static BinaryHistoryFile open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer head = ByteBuffer.allocate((int) Math.min(channel.size(), 1 << 20)).order(ByteOrder.LITTLE_ENDIAN);
+            channel.read(head, 0);
+            head.flip();
+
+            if (head.remaining() < 20 || head.getInt() != MAGIC) throw new IOException("Not a binary history file: " + file);
+            int version = head.getInt();
+            if (version != VERSION) throw new IOException("Unsupported binary history version " + version + ": " + file);
+            long count = head.getLong();
+            if (count < 0) throw new IOException("Corrupt binary history header: " + file);
+            if (count > Integer.MAX_VALUE) throw new IOException("Too many records in " + file);
+
+            // header ยาวเกิน 1 MB ที่อ่านไว้หรือไฟล์ถูกตัด จะอ่านเลยท้าย buffer
+            String[] codes;
+            try {
+                int codeCount = head.getInt();
+                if (codeCount < 0) throw new IOException("Corrupt binary history header: " + file);
+                codes = new String[codeCount];
+                for (int i = 0; i < codes.length; i++) {
+                    byte[] code = new byte[head.getShort() & 0xFFFF];
+                    head.get(code);
+                    codes[i] = new String(code, StandardCharsets.UTF_8);
+                }
+            } catch (BufferUnderflowException e) {
+                throw new IOException("Truncated binary history header: " + file, e);
+            }
+            long dataOffset = align(head.position());
+            long dataBytes = count * RECORD_BYTES;
+            if (channel.size() < dataOffset + dataBytes) throw new IOException("Truncated binary history file: " + file);
+
+            int regionCount = (int) ((dataBytes + REGION_MASK) >>> REGION_BITS);
+            MappedByteBuffer[] regions = new MappedByteBuffer[regionCount];
+            for (int r = 0; r < regionCount; r++) {
+                long start = (long) r << REGION_BITS;
+                long length = Math.min(1L << REGION_BITS, dataBytes - start);
+                regions[r] = channel.map(FileChannel.MapMode.READ_ONLY, dataOffset + start, length);
+                regions[r].order(ByteOrder.LITTLE_ENDIAN);
+            }
+            return new BinaryHistoryFile(file, codes, (int) count, regions);
+        }
+    }
+
+    public Path getFile() { return file; }
+
+    @Override
+    public int size() { return size; }
+
+    public int fromId(int i) { return region(i).getInt(offset(i)); }
+    public int toId(int i) { return region(i).getInt(offset(i) + 4); }
+
+    @Override
+    public String fromCurrency(int i) { return codes[fromId(i)]; }
+    @Override
+    public String toCurrency(int i) { return codes[toId(i)]; }
+    @Override
+    public double amount(int i) { return region(i).getDouble(offset(i) + 8); }
+    @Override
+    public double result(int i) { return region(i).getDouble(offset(i) + 16); }
+    @Override
+    public long epochNanos(int i) { return region(i).getLong(offset(i) + 24); }
+
+    /** Currency codes indexed by the ids stored in this file. */
+    public List<String> getCurrencies() {
+        return Collections.unmodifiableList(Arrays.asList(codes));
+    }
+
+    private MappedByteBuffer region(int i) {
+        if (i < 0 || i >= size) throw new IndexOutOfBoundsException("Index: " + i);
+        return regions[(int) (((long) i * RECORD_BYTES) >>> REGION_BITS)];
+    }
+
+    private static int offset(int i) {
+        return (int) (((long) i * RECORD_BYTES) & REGION_MASK);
+    }
+
+    // ---------- write ----------
+
+    /** Writes {@code rows} to {@code file} (via a temporary file, then an atomic rename). */
+    public static void write(Path file, HistoryRows rows) throws IOException {
+        int n = rows.size();
+
+        // ใช้ id เดิมของ HistoryStore ได้เลย ถ้าเป็นแหล่งอื่นไล่สร้างพจนานุกรมก่อนหนึ่งรอบ
+        // แล้วค้น id ซ้ำตอนเขียน ไม่เก็บ id ทุกแถวไว้ใน heap
+        CurrencyIds ids;
+        if (rows instanceof HistoryStore) {
+            ids = ((HistoryStore) rows).getCurrencies();
+        } else {
+            ids = new CurrencyIds();
+            for (int i = 0; i < n; i++) {
+                ids.intern(rows.fromCurrency(i));
+                ids.intern(rows.toCurrency(i));
+            }
+        }
+        HistoryStore store = rows instanceof HistoryStore ? (HistoryStore) rows : null;
+
+        Path tmp = file.toAbsolutePath().resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteArrayOutputStream header = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(header);
+            out.writeInt(Integer.reverseBytes(MAGIC));
+            out.writeInt(Integer.reverseBytes(VERSION));
+            out.writeLong(Long.reverseBytes(n));
+            List<String> codes = ids.codes();
+            out.writeInt(Integer.reverseBytes(codes.size()));
+            for (String code : codes) {
+                byte[] bytes = code.getBytes(StandardCharsets.UTF_8);
+                out.writeShort(Short.reverseBytes((short) bytes.length));
+                out.write(bytes);
+            }
+            while (header.size() % RECORD_BYTES != 0) out.write(0);
+            writeFully(channel, ByteBuffer.wrap(header.toByteArray()));
+
+            ByteBuffer buf = ByteBuffer.allocateDirect(RECORD_BYTES * 32768).order(ByteOrder.LITTLE_ENDIAN);
+            for (int i = 0; i < n; i++) {
+                if (!buf.hasRemaining()) {
+                    buf.flip();
+                    writeFully(channel, buf);
+                    buf.clear();
+                }
+                buf.putInt(store != null ? store.fromId(i) : ids.id(rows.fromCurrency(i)));
+                buf.putInt(store != null ? store.toId(i) : ids.id(rows.toCurrency(i)));
+                buf.putDouble(rows.amount(i));
+                buf.putDouble(rows.result(i));
+                buf.putLong(rows.epochNanos(i));
+            }
+            buf.flip();
+            writeFully(channel, buf);
+            channel.force(true);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // ---------- conversion ----------
+
+    public static void csvToBinary(Path csv, Path binary) throws IOException {
+        HistoryStore store = new HistoryStore();
+        for (Path segment : HistoryJournal.segments(csv)) CsvCodec.readHistory(segment, store);
+        write(binary, store);
+    }
+
+    public static void binaryToCsv(Path binary, Path csv) throws IOException {
+        BinaryHistoryFile rows = open(binary);
+        try (Writer writer = Files.newBufferedWriter(csv)) {
+            CsvCodec.writeHistory(writer, rows);
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buf) throws IOException {
+        while (buf.hasRemaining()) channel.write(buf);
+    }
+
+    private static long align(long position) {
+        return (position + RECORD_BYTES - 1) / RECORD_BYTES * RECORD_BYTES;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,115 @@
+package model;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Array conversions against one {@link RatesSnapshot}. Small inputs run in a
+ * plain loop on the calling thread; above {@link #PARALLEL_THRESHOLD} elements
+ * the range is split across the common {@link ForkJoinPool}.
+ */
+final class BulkConversion {
+    static final int PARALLEL_THRESHOLD = 1 << 14;
+
+    private BulkConversion() {}
+
+    // แปลงทุกจำนวนด้วยคู่สกุลเงินเดียวกัน ใช้ cross rate ค่าเดียวทั้ง array
+    static void convertAll(RatesSnapshot rates, int fromId, int toId, double[] in, double[] out) {
+        checkLengths(in.length, out.length);
+        double rate = rates.convert(fromId, toId, 1.0);
+        if (in.length < PARALLEL_THRESHOLD) {
+            multiply(rate, in, out, 0, in.length);
+        } else {
+            ForkJoinPool.commonPool().invoke(new SinglePairTask(rate, in, out, 0, in.length));
+        }
+    }
+
+    // แต่ละแถวมีคู่สกุลเงินของตัวเอง
+    static void convertAll(RatesSnapshot rates, int[] fromIds, int[] toIds, double[] in, double[] out) {
+        checkLengths(in.length, out.length);
+        checkLengths(in.length, fromIds.length);
+        checkLengths(in.length, toIds.length);
+        if (in.length < PARALLEL_THRESHOLD) {
+            convertPairs(rates, fromIds, toIds, in, out, 0, in.length);
+        } else {
+            ForkJoinPool.commonPool().invoke(new MixedPairTask(rates, fromIds, toIds, in, out, 0, in.length));
+        }
+    }
+
+    static double sum(double[] values) {
+        double total = 0;
+        for (double v : values) total += v;
+        return total;
+    }
+
+    private static void multiply(double rate, double[] in, double[] out, int start, int end) {
+        for (int i = start; i < end; i++) out[i] = in[i] * rate;
+    }
+
+    private static void convertPairs(RatesSnapshot rates, int[] fromIds, int[] toIds,
+                                     double[] in, double[] out, int start, int end) {
+        for (int i = start; i < end; i++) out[i] = rates.convert(fromIds[i], toIds[i], in[i]);
+    }
+
+    private static void checkLengths(int expected, int actual) {
+        if (expected != actual) throw new IllegalArgumentException("Array lengths differ: " + expected + " vs " + actual);
+    }
+
+    private static final class SinglePairTask extends RecursiveAction {
+        private final double rate;
+        private final double[] in;
+        private final double[] out;
+        private final int start;
+        private final int end;
+
+        SinglePairTask(double rate, double[] in, double[] out, int start, int end) {
+            this.rate = rate;
+            this.in = in;
+            this.out = out;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start <= PARALLEL_THRESHOLD) {
+                multiply(rate, in, out, start, end);
+                return;
+            }
+            int mid = (start + end) >>> 1;
+            invokeAll(new SinglePairTask(rate, in, out, start, mid),
+                      new SinglePairTask(rate, in, out, mid, end));
+        }
+    }
+
+    private static final class MixedPairTask extends RecursiveAction {
+        private final RatesSnapshot rates;
+        private final int[] fromIds;
+        private final int[] toIds;
+        private final double[] in;
+        private final double[] out;
+        private final int start;
+        private final int end;
+
+        MixedPairTask(RatesSnapshot rates, int[] fromIds, int[] toIds, double[] in, double[] out, int start, int end) {
+            this.rates = rates;
+            this.fromIds = fromIds;
+            this.toIds = toIds;
+            this.in = in;
+            this.out = out;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start <= PARALLEL_THRESHOLD) {
+                convertPairs(rates, fromIds, toIds, in, out, start, end);
+                return;
+            }
+            int mid = (start + end) >>> 1;
+            invokeAll(new MixedPairTask(rates, fromIds, toIds, in, out, start, mid),
+                      new MixedPairTask(rates, fromIds, toIds, in, out, mid, end));
+        }
+    }
+}
\ No newline at end of file
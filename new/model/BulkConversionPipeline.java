@@ -0,0 +1,315 @@
+package model;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Headless conversion of a large CSV of {@code FROM,TO,AMOUNT} rows into
+ * {@code FROM,TO,AMOUNT,RESULT}, all against one {@link RatesSnapshot}.
+ *
+ * The input is memory-mapped one chunk at a time; each chunk ends on a line
+ * boundary and is parsed and converted on a worker thread. The calling
+ * thread maps chunks and writes finished ones in input order. At most
+ * {@code maxInFlight} chunks exist at once, so memory stays bounded by
+ * roughly {@code maxInFlight * chunkBytes * 2} whatever the file size, and a
+ * slow disk holds back reading instead of piling up output.
+ *
+ * Amounts are converted in minor units with {@link RatesSnapshot#convertMinor}
+ * and results written with the target currency's decimals (none for JPY,
+ * three for KWD), as the rest of the application shows them.
+ *
+ * Rows that cannot be converted (bad amount, unknown currency) are written
+ * with {@code ERROR} as the result and counted; a first line that is not a
+ * row is taken as a header and gets a {@code result} column. Extra columns
+ * after the amount are copied through.
+ */
+public class BulkConversionPipeline {
+    public static final int DEFAULT_CHUNK_BYTES = 8 << 20;
+
+    private static final byte[] HEADER_SUFFIX = ",result\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] ERROR_SUFFIX = ",ERROR\n".getBytes(StandardCharsets.US_ASCII);
+
+    private final RatesSnapshot rates;
+    private final int threads;
+    private final int chunkBytes;
+    private final int maxInFlight;
+    private final ConcurrentExchangeHistory history;
+
+    // บัฟเฟอร์ของแต่ละ worker ใช้ซ้ำทุก chunk
+    private final ThreadLocal<byte[]> inputBuffer = ThreadLocal.withInitial(() -> new byte[0]);
+    private final ThreadLocal<StringBuilder> numberBuffer = ThreadLocal.withInitial(() -> new StringBuilder(32));
+
+    public BulkConversionPipeline(RatesSnapshot rates) {
+        this(rates, Runtime.getRuntime().availableProcessors(), DEFAULT_CHUNK_BYTES,
+                Runtime.getRuntime().availableProcessors() * 2, null);
+    }
+
+    /**
+     * @param history if not null, every converted row is also appended here
+     *                from the worker threads. All rows of one run carry the
+     *                run's start time, however often the history is flushed
+     *                meanwhile; rows with that same time are ordered by
+     *                stripe and arrival, not by input line.
+     */
+    public BulkConversionPipeline(RatesSnapshot rates, int threads, int chunkBytes, int maxInFlight,
+                                  ConcurrentExchangeHistory history) {
+        if (threads <= 0 || chunkBytes <= 0 || maxInFlight <= 0) {
+            throw new IllegalArgumentException("Threads, chunk size and in-flight chunks must be positive");
+        }
+        this.rates = rates;
+        this.threads = threads;
+        this.chunkBytes = chunkBytes;
+        this.maxInFlight = maxInFlight;
+        this.history = history;
+    }
+
+    public Result run(Path input, Path output) throws IOException {
+        long start = System.nanoTime();
+        // ทุกแถวของรอบนี้ใช้เวลาเดียวกัน ConcurrentExchangeHistory เก็บเวลาตามที่ให้ไว้
+        long stamp = HistoryStore.toEpochNanos(LocalDateTime.now());
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "bulk-convert-" + threadNumber.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        Result result = new Result();
+        try (FileChannel in = FileChannel.open(input, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(output, StandardOpenOption.WRITE,
+                     StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            long size = in.size();
+            long pos = 0;
+            ArrayDeque<Future<Chunk>> inFlight = new ArrayDeque<>(maxInFlight);
+            while (pos < size) {
+                int length = (int) Math.min(chunkBytes, size - pos);
+                MappedByteBuffer map = in.map(FileChannel.MapMode.READ_ONLY, pos, length);
+                int end = pos + length < size ? lastNewline(map, length) + 1 : length;
+                if (end == 0) throw new IOException("Line longer than " + chunkBytes + " bytes at offset " + pos);
+
+                // เต็มแล้วต้องเขียน chunk ที่เก่าที่สุดออกก่อน จึงอ่านต่อได้
+                if (inFlight.size() >= maxInFlight) write(out, await(inFlight.poll()), result);
+                ByteBuffer slice = map.slice(0, end);
+                boolean first = pos == 0;
+                inFlight.add(pool.submit(() -> convertChunk(slice, first, stamp)));
+                pos += end;
+                result.bytesRead += end;
+            }
+            while (!inFlight.isEmpty()) write(out, await(inFlight.poll()), result);
+        } finally {
+            pool.shutdownNow();
+        }
+        result.nanos = System.nanoTime() - start;
+        return result;
+    }
+
+    private static int lastNewline(ByteBuffer buf, int length) {
+        for (int i = length - 1; i >= 0; i--) {
+            if (buf.get(i) == '\n') return i;
+        }
+        return -1;
+    }
+
+    private static Chunk await(Future<Chunk> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while converting");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) throw (IOException) cause;
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            throw new IOException(cause);
+        }
+    }
+
+    private static void write(FileChannel out, Chunk chunk, Result result) throws IOException {
+        ByteBuffer buf = ByteBuffer.wrap(chunk.data, 0, chunk.length);
+        while (buf.hasRemaining()) out.write(buf);
+        result.bytesWritten += chunk.length;
+        result.rows += chunk.rows;
+        result.errors += chunk.errors;
+    }
+
+    // ---------- worker ----------
+
+    private Chunk convertChunk(ByteBuffer slice, boolean firstChunk, long stamp) {
+        long start = System.nanoTime();
+        int n = slice.remaining();
+        byte[] in = inputBuffer.get();
+        if (in.length < n) {
+            in = new byte[n];
+            inputBuffer.set(in);
+        }
+        slice.get(0, in, 0, n);
+        StringBuilder sb = numberBuffer.get();
+        Chunk chunk = new Chunk(n + n / 2 + 64);
+
+        int lineStart = 0;
+        boolean firstLine = firstChunk;
+        while (lineStart < n) {
+            int newline = lineStart;
+            while (newline < n && in[newline] != '\n') newline++;
+            int lineEnd = newline > lineStart && in[newline - 1] == '\r' ? newline - 1 : newline;
+            if (lineEnd > lineStart) {
+                convertLine(in, lineStart, lineEnd, firstLine, chunk, sb, stamp);
+                firstLine = false;
+            }
+            lineStart = newline + 1;
+        }
+        Metrics.CONVERT_BATCH.recordSince(start);
+        Metrics.CONVERTED.add(chunk.rows);
+        return chunk;
+    }
+
+    private void convertLine(byte[] in, int start, int end, boolean firstLine, Chunk chunk, StringBuilder sb, long stamp) {
+        int c1 = indexOf(in, start, end, (byte) ',');
+        int c2 = c1 < 0 ? -1 : indexOf(in, c1 + 1, end, (byte) ',');
+        int from = -1;
+        int to = -1;
+        double amount = Double.NaN;
+        int amountEnd = end;
+        if (c2 >= 0) {
+            int c3 = indexOf(in, c2 + 1, end, (byte) ',');
+            if (c3 >= 0) amountEnd = c3;
+            from = lookup(in, start, c1);
+            to = lookup(in, c1 + 1, c2);
+            try {
+                amount = CsvCodec.parseDouble(in, c2 + 1, amountEnd);
+            } catch (NumberFormatException e) {
+                amount = Double.NaN;
+            }
+        }
+
+        chunk.put(in, start, end);
+        long amountMinor = 0;
+        long converted = 0;
+        if (from >= 0 && to >= 0 && !Double.isNaN(amount)) {
+            try {
+                amountMinor = parseMinor(in, c2 + 1, amountEnd, rates.scale(from), amount, sb);
+                converted = rates.convertMinor(from, to, amountMinor, FixedPoint.DEFAULT_ROUNDING);
+            } catch (ArithmeticException e) {
+                // เกินช่วงของ long ถือเป็นแถวที่แปลงไม่ได้
+                amount = Double.NaN;
+            }
+        }
+        if (from < 0 || to < 0 || Double.isNaN(amount)) {
+            // บรรทัดแรกของไฟล์ที่ไม่ใช่ข้อมูลถือเป็นหัวตาราง
+            if (firstLine && Double.isNaN(amount)) {
+                chunk.put(HEADER_SUFFIX, 0, HEADER_SUFFIX.length);
+            } else {
+                chunk.put(ERROR_SUFFIX, 0, ERROR_SUFFIX.length);
+                chunk.errors++;
+            }
+            return;
+        }
+        int toScale = rates.scale(to);
+        sb.setLength(0);
+        FixedPoint.appendTo(sb.append(','), converted, toScale).append('\n');
+        chunk.put(sb);
+        chunk.rows++;
+        if (history != null) {
+            history.addRecord(rates.code(from), rates.code(to), FixedPoint.toDouble(amountMinor, rates.scale(from)),
+                    FixedPoint.toDouble(converted, toScale), stamp);
+        }
+    }
+
+    // อ่านข้อความจำนวนเงินเป็นหน่วยย่อยตรง ๆ ปัดครั้งเดียว รูปแบบที่ FixedPoint อ่านไม่ได้ (เช่นมีเลขชี้กำลัง) ใช้ค่า double ที่อ่านไว้แล้ว
+    private static long parseMinor(byte[] in, int start, int end, int scale, double parsed, StringBuilder sb) {
+        sb.setLength(0);
+        for (int i = start; i < end; i++) {
+            if (in[i] > ' ') sb.append((char) in[i]);
+        }
+        try {
+            return FixedPoint.parse(sb, scale, FixedPoint.DEFAULT_ROUNDING);
+        } catch (NumberFormatException e) {
+            return FixedPoint.toMinor(parsed, scale);
+        }
+    }
+
+    private static int indexOf(byte[] bytes, int start, int end, byte b) {
+        for (int i = start; i < end; i++) {
+            if (bytes[i] == b) return i;
+        }
+        return -1;
+    }
+
+    // รหัสตัวพิมพ์เล็ก: ลองค้นแบบตัวใหญ่ ถ้าเจอจึงแก้ในบัฟเฟอร์ให้ผลลัพธ์เป็นตัวใหญ่ด้วย
+    private int lookup(byte[] bytes, int start, int end) {
+        int id = rates.id(bytes, start, end);
+        if (id >= 0 || end - start > 8) return id;
+        byte[] upper = Arrays.copyOfRange(bytes, start, end);
+        for (int i = 0; i < upper.length; i++) {
+            if (upper[i] >= 'a' && upper[i] <= 'z') upper[i] -= 'a' - 'A';
+        }
+        id = rates.id(upper, 0, upper.length);
+        if (id >= 0) System.arraycopy(upper, 0, bytes, start, upper.length);
+        return id;
+    }
+
+    private static final class Chunk {
+        byte[] data;
+        int length;
+        long rows;
+        long errors;
+
+        Chunk(int capacity) {
+            data = new byte[capacity];
+        }
+
+        void put(byte[] bytes, int start, int end) {
+            int n = end - start;
+            ensure(n);
+            System.arraycopy(bytes, start, data, length, n);
+            length += n;
+        }
+
+        // ตัวเลขเป็น ASCII ล้วน คัดลอกทีละตัวได้เลย
+        void put(CharSequence chars) {
+            int n = chars.length();
+            ensure(n);
+            for (int i = 0; i < n; i++) data[length + i] = (byte) chars.charAt(i);
+            length += n;
+        }
+
+        private void ensure(int n) {
+            if (length + n > data.length) data = Arrays.copyOf(data, Math.max(data.length * 2, length + n));
+        }
+    }
+
+    /** Totals of one {@link #run}. */
+    public static final class Result {
+        private long rows;
+        private long errors;
+        private long bytesRead;
+        private long bytesWritten;
+        private long nanos;
+
+        public long getRows() { return rows; }
+        public long getErrors() { return errors; }
+        public long getBytesRead() { return bytesRead; }
+        public long getBytesWritten() { return bytesWritten; }
+        public long getNanos() { return nanos; }
+
+        public double getMegabytesPerSecond() {
+            return nanos == 0 ? 0 : bytesRead / 1e6 / (nanos / 1e9);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d rows, %d errors, %.1f MB in %d ms (%.1f MB/s)",
+                    rows, errors, bytesRead / 1e6, nanos / 1_000_000, getMegabytesPerSecond());
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,336 @@
+package model;
+
+import java.io.*;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Exchange history that many threads can append to at once. Appends go to
+ * one of several stripes, each a {@link HistoryStore} with its own lock;
+ * a thread keeps using the same stripe and only moves on to another when
+ * its own is busy, so there is no lock or counter shared by all writers.
+ *
+ * Readers see the stripes merged through {@link #getRows()}. Records keep
+ * the timestamp they were given. Each merge (at {@link #getRows()} or
+ * {@link #flush()}) takes every unmerged record stamped at or before the
+ * watermark, sorts them by timestamp, then stripe and arrival order, and
+ * appends them after the records merged before. The watermark is the latest
+ * current time any merge has seen, so it never moves back when the wall clock
+ * does (DST, clock corrections). Records stamped after it wait for a later merge. So the merged rows are
+ * in timestamp order, except that a record added with a timestamp older than
+ * records already visible (a replayed or historical record) shows up in the
+ * next merge, sorted among the records of that merge. Merged rows never move,
+ * and the journal receives them in the same order.
+ */
+public class ConcurrentExchangeHistory implements Closeable {
+    private static final int CHUNK_BITS = 16;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private final CurrencyIds currencies = new CurrencyIds();
+    private final Stripe[] stripes;
+    private final int mask;
+
+    // ลำดับที่ merge แล้ว: (stripe << 32) | แถวใน stripe เขียนโดย merger คนเดียว (ถือ lock ของ this)
+    private long[][] order = new long[0][];
+    private volatile int mergedSize;
+    // แถวของแต่ละ stripe ที่ไล่ดูแล้ว และแถวที่ดูแล้วแต่ยังเลย watermark (เรียงตามแถว)
+    private final int[] scanned;
+    private final IntList[] held;
+    private final MergedRows rows = new MergedRows();
+    // เวลาที่ merge เห็นล่าสุด ไม่ถอยตามนาฬิกา แถวที่รออยู่จึงไม่ถูกซ่อนเพิ่มตอนนาฬิกาถอย (ถือ lock ของ this)
+    private long watermark = Long.MIN_VALUE;
+
+    private HistoryJournal journal;
+    private int persisted;
+    private ScheduledExecutorService flusher;
+
+    public ConcurrentExchangeHistory() {
+        this(Runtime.getRuntime().availableProcessors() * 2);
+    }
+
+    /** {@code stripes} is rounded up to a power of two. */
+    public ConcurrentExchangeHistory(int stripes) {
+        int n = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+        if (stripes <= 1) n = 1;
+        this.stripes = new Stripe[n];
+        for (int i = 0; i < n; i++) this.stripes[i] = new Stripe(currencies);
+        this.mask = n - 1;
+        this.scanned = new int[n];
+        this.held = new IntList[n];
+        for (int i = 0; i < n; i++) this.held[i] = new IntList();
+    }
+
+    // ---------- writers ----------
+
+    public void addRecord(HistoryRecord record) {
+        addRecord(record.getFromCurrency(), record.getToCurrency(), record.getAmount(), record.getResult(),
+                HistoryStore.toEpochNanos(record.getTimestamp()));
+    }
+
+    /** Records a conversion stamped with the current time. */
+    public void addRecord(String fromCurrency, String toCurrency, double amount, double result) {
+        append(fromCurrency, toCurrency, amount, result, 0, true);
+    }
+
+    public void addRecord(String fromCurrency, String toCurrency, double amount, double result, long epochNanos) {
+        append(fromCurrency, toCurrency, amount, result, epochNanos, false);
+    }
+
+    // ไม่จับเวลาลง Metrics.HISTORY_APPEND ที่นี่ ตัวนับของ histogram ใช้ร่วมกันทุก thread จะกลายเป็นจุดแย่งกันเสียเอง
+    // อ่านเวลาปัจจุบันหลังได้ lock แถวใน stripe เดียวกันจึงเรียงตามเวลาที่เข้ามาจริง
+    private void append(String fromCurrency, String toCurrency, double amount, double result, long epochNanos, boolean stampNow) {
+        int from = currencies.intern(fromCurrency);
+        int to = currencies.intern(toCurrency);
+
+        Stripe stripe = acquire();
+        try {
+            stripe.store.append(from, to, amount, result, stampNow ? now() : epochNanos);
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    // เริ่มที่ stripe ประจำ thread ถ้าไม่ว่างลองตัวถัดไป วนครบแล้วค่อยรอที่ตัวเดิม
+    private Stripe acquire() {
+        int home = (int) (Thread.currentThread().getId() * 0x9E3779B97F4A7C15L >>> 32) & mask;
+        for (int i = 0; i <= mask; i++) {
+            Stripe stripe = stripes[(home + i) & mask];
+            if (stripe.lock.tryLock()) return stripe;
+        }
+        Stripe stripe = stripes[home];
+        stripe.lock.lock();
+        return stripe;
+    }
+
+    // ---------- merged view ----------
+
+    /**
+     * All visible records in timestamp order. The returned rows keep their
+     * size; call again to see records added since.
+     */
+    public HistoryRows getRows() {
+        int n = advance(false);
+        return new HistoryRows() {
+            @Override public int size() { return n; }
+            @Override public String fromCurrency(int i) { return rows.fromCurrency(check(i)); }
+            @Override public String toCurrency(int i) { return rows.toCurrency(check(i)); }
+            @Override public double amount(int i) { return rows.amount(check(i)); }
+            @Override public double result(int i) { return rows.result(check(i)); }
+            @Override public long epochNanos(int i) { return rows.epochNanos(check(i)); }
+
+            private int check(int i) {
+                if (i < 0 || i >= n) throw new IndexOutOfBoundsException("Index: " + i);
+                return i;
+            }
+        };
+    }
+
+    public int size() {
+        return getRows().size();
+    }
+
+    public CurrencyIds getCurrencies() { return currencies; }
+
+    /**
+     * Merges every unmerged record stamped at or before the watermark
+     * (with {@code all}, every stored record) and returns the merged count.
+     */
+    private synchronized int advance(boolean all) {
+        if (!all) watermark = Math.max(watermark, now());
+        long limit = all ? Long.MAX_VALUE : watermark;
+        int[] limits = new int[stripes.length];
+        for (int s = 0; s < stripes.length; s++) {
+            Stripe stripe = stripes[s];
+            stripe.lock.lock();
+            try {
+                limits[s] = stripe.store.size();
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+
+        // เก็บแถวที่ถึงเวลาแล้วตามลำดับ stripe แล้วแถว การเรียงแบบ stable จึงตัดสินเวลาเท่ากันด้วย (stripe, แถว)
+        int count = 0;
+        for (int s = 0; s < stripes.length; s++) count += held[s].size() + limits[s] - scanned[s];
+        long[] keys = new long[count];
+        long[] refs = new long[count];
+        int k = 0;
+        for (int s = 0; s < stripes.length; s++) {
+            HistoryStore store = stripes[s].store;
+            IntList waiting = new IntList(Math.max(1, held[s].size()));
+            for (int j = 0; j < held[s].size(); j++) k = take(store, s, held[s].get(j), limit, keys, refs, k, waiting);
+            for (int i = scanned[s]; i < limits[s]; i++) k = take(store, s, i, limit, keys, refs, k, waiting);
+            held[s] = waiting;
+            scanned[s] = limits[s];
+        }
+        if (k > 1) mergeSort(keys, refs, new long[k], new long[k], 0, k);
+
+        int n = mergedSize;
+        for (int j = 0; j < k; j++) {
+            int chunk = n >>> CHUNK_BITS;
+            if (chunk == order.length) {
+                order = Arrays.copyOf(order, chunk + 1);
+                order[chunk] = new long[CHUNK_SIZE];
+            }
+            order[chunk][n & CHUNK_MASK] = refs[j];
+            n++;
+        }
+        mergedSize = n;
+        return n;
+    }
+
+    private static int take(HistoryStore store, int s, int row, long watermark, long[] keys, long[] refs, int k, IntList waiting) {
+        long t = store.epochNanos(row);
+        if (t > watermark) {
+            waiting.add(row);
+            return k;
+        }
+        keys[k] = t;
+        refs[k] = ((long) s << 32) | row;
+        return k + 1;
+    }
+
+    // merge sort แบบ stable บน array primitive คู่กัน ช่วงที่เรียงอยู่แล้ว (กรณีปกติ) ข้ามการ merge
+    private static void mergeSort(long[] keys, long[] refs, long[] keyTmp, long[] refTmp, int lo, int hi) {
+        if (hi - lo < 2) return;
+        int mid = (lo + hi) >>> 1;
+        mergeSort(keys, refs, keyTmp, refTmp, lo, mid);
+        mergeSort(keys, refs, keyTmp, refTmp, mid, hi);
+        if (keys[mid - 1] <= keys[mid]) return;
+        System.arraycopy(keys, lo, keyTmp, lo, hi - lo);
+        System.arraycopy(refs, lo, refTmp, lo, hi - lo);
+        int i = lo;
+        int j = mid;
+        for (int out = lo; out < hi; out++) {
+            if (j >= hi || (i < mid && keyTmp[i] <= keyTmp[j])) {
+                keys[out] = keyTmp[i];
+                refs[out] = refTmp[i++];
+            } else {
+                keys[out] = keyTmp[j];
+                refs[out] = refTmp[j++];
+            }
+        }
+    }
+
+    private static long now() {
+        return HistoryStore.toEpochNanos(LocalDateTime.now());
+    }
+
+    private final class MergedRows implements HistoryRows {
+        @Override
+        public int size() { return mergedSize; }
+
+        @Override
+        public String fromCurrency(int i) { return currencies.code(store(i).fromId(row(i))); }
+
+        @Override
+        public String toCurrency(int i) { return currencies.code(store(i).toId(row(i))); }
+
+        @Override
+        public double amount(int i) { return store(i).amount(row(i)); }
+
+        @Override
+        public double result(int i) { return store(i).result(row(i)); }
+
+        @Override
+        public long epochNanos(int i) { return store(i).epochNanos(row(i)); }
+
+        private HistoryStore store(int i) {
+            return stripes[(int) (order[i >>> CHUNK_BITS][i & CHUNK_MASK] >>> 32)].store;
+        }
+
+        private int row(int i) {
+            return (int) order[i >>> CHUNK_BITS][i & CHUNK_MASK];
+        }
+    }
+
+    // ---------- persistence ----------
+
+    /** Writes every record, in timestamp order, to {@code filename} (same CSV as {@link ExchangeHistory}). */
+    public void saveToFile(String filename) throws IOException {
+        HistoryRows snapshot = getRows();
+        try (Writer writer = new FileWriter(filename)) {
+            CsvCodec.writeHistory(writer, snapshot);
+        }
+    }
+
+    /**
+     * Appends merged records to the journal at {@code filename} every
+     * {@code flushIntervalMillis} (and on {@link #flush()}), one batched
+     * write per flush, in the same order as {@link #getRows()}.
+     */
+    public synchronized void openJournal(String filename, long flushIntervalMillis) throws IOException {
+        closeJournal();
+        journal = new HistoryJournal(Paths.get(filename));
+        persisted = mergedSize;
+        if (flushIntervalMillis > 0) {
+            flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "history-flusher");
+                t.setDaemon(true);
+                return t;
+            });
+            flusher.scheduleWithFixedDelay(() -> {
+                try {
+                    flush();
+                } catch (IOException e) {
+                    Metrics.HISTORY_WRITE_ERRORS.increment();
+                    e.printStackTrace();
+                }
+            }, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /** Merges what is ready and writes it to the journal, if one is open. */
+    public void flush() throws IOException {
+        flush(false);
+    }
+
+    private synchronized void flush(boolean all) throws IOException {
+        int n = advance(all);
+        if (journal == null || persisted == n) return;
+        long start = System.nanoTime();
+        List<String> lines = new ArrayList<>(n - persisted);
+        StringBuilder sb = new StringBuilder(64);
+        for (int i = persisted; i < n; i++) {
+            sb.setLength(0);
+            lines.add(CsvCodec.appendHistory(sb, rows, i).toString());
+        }
+        journal.appendAll(lines, true);
+        Metrics.HISTORY_FLUSH.recordSince(start);
+        Metrics.HISTORY_FLUSHED.add(lines.size());
+        persisted = n;
+    }
+
+    // ปิด journal: ถือว่า producer หยุดแล้ว จึง merge ทุกรายการที่เหลือก่อนเขียน
+    public synchronized void closeJournal() throws IOException {
+        if (flusher != null) {
+            flusher.shutdown();
+            flusher = null;
+        }
+        if (journal == null) return;
+        try {
+            flush(true);
+        } finally {
+            journal.close();
+            journal = null;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        closeJournal();
+    }
+
+    private static final class Stripe {
+        final ReentrantLock lock = new ReentrantLock();
+        final HistoryStore store;
+
+        Stripe(CurrencyIds currencies) {
+            this.store = new HistoryStore(currencies);
+        }
+    }
+}
\ No newline at end of file
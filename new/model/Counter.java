@@ -0,0 +1,31 @@
+package model;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/** Monotonic event counter; cheap to bump from many threads at once. */
+public final class Counter implements CounterMXBean {
+    private final String name;
+    private final LongAdder count = new LongAdder();
+
+    Counter(String name) {
+        this.name = name;
+    }
+
+    public String getName() { return name; }
+
+    public void increment() {
+        count.increment();
+    }
+
+    public void add(long n) {
+        count.add(n);
+    }
+
+    @Override
+    public long getCount() { return count.sum(); }
+
+    @Override
+    public void reset() {
+        count.reset();
+    }
+}
\ No newline at end of file
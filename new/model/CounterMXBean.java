@@ -0,0 +1,8 @@
+package model;
+
+/** JMX view of a {@link Counter}. */
+public interface CounterMXBean {
+    long getCount();
+
+    void reset();
+}
\ No newline at end of file
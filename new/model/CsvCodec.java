@@ -0,0 +1,382 @@
+package model;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Hand-written reader and writer for history.csv and rates.csv.
+ *
+ * Reading works on raw bytes: currency codes go through
+ * {@link CurrencyIds#intern(byte[], int, int)}, numbers through a fast decimal
+ * parser and timestamps through a fixed-layout ISO parser, so a history line
+ * becomes one row of a {@link HistoryStore} without creating any String.
+ * Anything outside the fast paths falls back to the JDK parsers, which keeps
+ * the same results and the same exceptions as before.
+ *
+ * Writing produces exactly what {@code String.format("%.2f")} and
+ * {@link LocalDateTime#toString()} produced, appended into a caller-supplied
+ * {@link StringBuilder}.
+ */
+public final class CsvCodec {
+    private static final int READ_BUFFER = 1 << 20;
+    private static final int WRITE_FLUSH = 1 << 16;
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    private static final double[] POW10 = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private CsvCodec() {}
+
+    // ---------- history: read ----------
+
+    /** Appends every line of {@code file} to {@code store}; returns the number of rows added. */
+    public static int readHistory(Path file, HistoryStore store) throws IOException {
+        return readHistory(file, store, null);
+    }
+
+    /**
+     * Same as {@link #readHistory(Path, HistoryStore)}, running
+     * {@code afterBatch} (if not null) after each buffer of lines is appended,
+     * e.g. to spill older rows while a large file is loaded.
+     */
+    public static int readHistory(Path file, HistoryStore store, Runnable afterBatch) throws IOException {
+        int added = 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buf = ByteBuffer.allocate(READ_BUFFER);
+            byte[] bytes = buf.array();
+            while (true) {
+                int read = channel.read(buf);
+                int limit = buf.position();
+                int lineStart = 0;
+                for (int i = 0; i < limit; i++) {
+                    if (bytes[i] == '\n') {
+                        if (parseHistoryLine(bytes, lineStart, i, store)) added++;
+                        lineStart = i + 1;
+                    }
+                }
+                if (afterBatch != null) afterBatch.run();
+                if (read < 0) {
+                    if (lineStart < limit && parseHistoryLine(bytes, lineStart, limit, store)) added++;
+                    if (afterBatch != null) afterBatch.run();
+                    return added;
+                }
+                if (lineStart == 0 && limit == bytes.length) {
+                    throw new IOException("Line longer than " + bytes.length + " bytes in " + file);
+                }
+                // ย้ายบรรทัดที่ยังไม่จบไปไว้ต้น buffer
+                System.arraycopy(bytes, lineStart, bytes, 0, limit - lineStart);
+                buf.position(limit - lineStart);
+            }
+        }
+    }
+
+    /**
+     * Parses one "FROM,TO,AMOUNT,RESULT,TIMESTAMP" line in {@code bytes[start, end)}
+     * (a trailing CR is ignored) into {@code store}. Returns false for a line
+     * that does not have exactly five fields.
+     */
+    public static boolean parseHistoryLine(byte[] bytes, int start, int end, HistoryStore store) {
+        if (end > start && bytes[end - 1] == '\r') end--;
+        int c1 = indexOf(bytes, start, end, (byte) ',');
+        int c2 = indexOf(bytes, c1 + 1, end, (byte) ',');
+        int c3 = indexOf(bytes, c2 + 1, end, (byte) ',');
+        int c4 = indexOf(bytes, c3 + 1, end, (byte) ',');
+        if (c1 < 0 || c2 < 0 || c3 < 0 || c4 < 0) return false;
+        if (indexOf(bytes, c4 + 1, end, (byte) ',') >= 0 || c4 + 1 == end) return false;
+
+        CurrencyIds ids = store.getCurrencies();
+        int from = ids.intern(bytes, start, c1);
+        int to = ids.intern(bytes, c1 + 1, c2);
+        double amount = parseDouble(bytes, c2 + 1, c3);
+        double result = parseDouble(bytes, c3 + 1, c4);
+        long time = parseTimestamp(bytes, c4 + 1, end);
+        store.append(from, to, amount, result, time);
+        return true;
+    }
+
+    /** Parses one history line into a {@link HistoryRecord}, or returns null if it does not have five fields. */
+    public static HistoryRecord parseHistoryRecord(byte[] bytes, int start, int end) {
+        if (end > start && bytes[end - 1] == '\r') end--;
+        int c1 = indexOf(bytes, start, end, (byte) ',');
+        int c2 = indexOf(bytes, c1 + 1, end, (byte) ',');
+        int c3 = indexOf(bytes, c2 + 1, end, (byte) ',');
+        int c4 = indexOf(bytes, c3 + 1, end, (byte) ',');
+        if (c1 < 0 || c2 < 0 || c3 < 0 || c4 < 0) return null;
+        if (indexOf(bytes, c4 + 1, end, (byte) ',') >= 0 || c4 + 1 == end) return null;
+
+        return new HistoryRecord(
+                new String(bytes, start, c1 - start, StandardCharsets.UTF_8),
+                new String(bytes, c1 + 1, c2 - c1 - 1, StandardCharsets.UTF_8),
+                parseDouble(bytes, c2 + 1, c3),
+                parseDouble(bytes, c3 + 1, c4),
+                HistoryStore.toLocalDateTime(parseTimestamp(bytes, c4 + 1, end)));
+    }
+
+    // ---------- history: write ----------
+
+    /** Writes all rows of {@code rows} to {@code writer}, one CSV line each. */
+    public static void writeHistory(Writer writer, HistoryRows rows) throws IOException {
+        StringBuilder sb = new StringBuilder(WRITE_FLUSH + 256);
+        char[] chunk = new char[WRITE_FLUSH + 256];
+        String newline = System.lineSeparator();
+        int n = rows.size();
+        for (int i = 0; i < n; i++) {
+            appendHistory(sb, rows, i);
+            sb.append(newline);
+            if (sb.length() >= WRITE_FLUSH) flush(writer, sb, chunk);
+        }
+        flush(writer, sb, chunk);
+    }
+
+    public static StringBuilder appendHistory(StringBuilder sb, HistoryRows rows, int i) {
+        return appendHistory(sb, rows.fromCurrency(i), rows.toCurrency(i), rows.amount(i), rows.result(i), rows.epochNanos(i));
+    }
+
+    public static StringBuilder appendHistory(StringBuilder sb, String from, String to, double amount, double result, long epochNanos) {
+        sb.append(from).append(',').append(to).append(',');
+        appendFixed2(sb, amount);
+        sb.append(',');
+        appendFixed2(sb, result);
+        sb.append(',');
+        return appendTimestamp(sb, epochNanos);
+    }
+
+    private static void flush(Writer writer, StringBuilder sb, char[] chunk) throws IOException {
+        int len = sb.length();
+        if (len > chunk.length) chunk = new char[len];
+        sb.getChars(0, len, chunk, 0);
+        writer.write(chunk, 0, len);
+        sb.setLength(0);
+    }
+
+    // ---------- rates ----------
+
+    /** Reads "CODE,RATE" lines in file order. Lines without exactly two fields are skipped. */
+    public static Map<String, Double> readRates(Path file) throws IOException {
+        byte[] bytes = Files.readAllBytes(file);
+        Map<String, Double> rates = new LinkedHashMap<>();
+        int lineStart = 0;
+        for (int i = 0; i <= bytes.length; i++) {
+            if (i < bytes.length && bytes[i] != '\n') continue;
+            int end = i;
+            if (end > lineStart && bytes[end - 1] == '\r') end--;
+            int comma = indexOf(bytes, lineStart, end, (byte) ',');
+            if (comma > lineStart && comma < end - 1 && indexOf(bytes, comma + 1, end, (byte) ',') < 0) {
+                int codeStart = skipSpaces(bytes, lineStart, comma);
+                int codeEnd = trimSpaces(bytes, codeStart, comma);
+                String code = new String(bytes, codeStart, codeEnd - codeStart, StandardCharsets.UTF_8);
+                rates.put(code, parseDouble(bytes, comma + 1, end));
+            }
+            lineStart = i + 1;
+        }
+        return rates;
+    }
+
+    // ---------- numbers ----------
+
+    /**
+     * Parses a plain decimal such as {@code -1234.56}. Up to 15 significant
+     * digits and 22 fraction digits the result is exact (one correctly rounded
+     * division); anything else goes to {@link Double#parseDouble(String)}.
+     */
+    public static double parseDouble(byte[] bytes, int start, int end) {
+        int s = skipSpaces(bytes, start, end);
+        int e = trimSpaces(bytes, s, end);
+        int i = s;
+        boolean negative = false;
+        if (i < e && (bytes[i] == '-' || bytes[i] == '+')) {
+            negative = bytes[i] == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int fractionDigits = -1;
+        for (; i < e; i++) {
+            int b = bytes[i];
+            if (b >= '0' && b <= '9') {
+                mantissa = mantissa * 10 + (b - '0');
+                digits++;
+                if (fractionDigits >= 0) fractionDigits++;
+            } else if (b == '.' && fractionDigits < 0) {
+                fractionDigits = 0;
+            } else {
+                digits = -1;
+                break;
+            }
+        }
+        if (digits <= 0 || digits > 15 || fractionDigits > 22) {
+            return Double.parseDouble(new String(bytes, start, end - start, StandardCharsets.ISO_8859_1));
+        }
+        double value = fractionDigits > 0 ? mantissa / POW10[fractionDigits] : (double) mantissa;
+        return negative ? -value : value;
+    }
+
+    /** Appends {@code value} exactly as {@code String.format("%.2f", value)} with a '.' separator. */
+    public static StringBuilder appendFixed2(StringBuilder sb, double value) {
+        if (!(Math.abs(value) < 1e9)) return sb.append(String.format(Locale.ROOT, "%.2f", value));
+
+        double scaled = Math.abs(value) * 100;
+        double floor = Math.floor(scaled);
+        double fraction = scaled - floor;
+        // ใกล้ .5 มากเกินไป ต้องดูค่าฐานสองจริงเพื่อปัดแบบ HALF_UP ให้ตรงกับ String.format
+        if (Math.abs(fraction - 0.5) < 1e-3) return sb.append(String.format(Locale.ROOT, "%.2f", value));
+
+        long cents = (long) floor + (fraction > 0.5 ? 1 : 0);
+        if (Double.doubleToRawLongBits(value) < 0) sb.append('-');
+        sb.append(cents / 100).append('.');
+        int rest = (int) (cents % 100);
+        if (rest < 10) sb.append('0');
+        return sb.append(rest);
+    }
+
+    // ---------- timestamps ----------
+
+    /**
+     * Parses {@code yyyy-MM-ddTHH:mm[:ss[.fffffffff]]} to epoch nanos (same
+     * convention as {@link HistoryStore}). Other layouts go to
+     * {@link LocalDateTime#parse(CharSequence)}.
+     */
+    public static long parseTimestamp(byte[] bytes, int start, int end) {
+        int len = end - start;
+        long nanos = len >= 16 ? parseFixedTimestamp(bytes, start, end) : Long.MIN_VALUE;
+        if (nanos != Long.MIN_VALUE) return nanos;
+        return HistoryStore.toEpochNanos(LocalDateTime.parse(new String(bytes, start, len, StandardCharsets.ISO_8859_1)));
+    }
+
+    private static long parseFixedTimestamp(byte[] b, int s, int end) {
+        if (b[s + 4] != '-' || b[s + 7] != '-' || b[s + 10] != 'T' || b[s + 13] != ':') return Long.MIN_VALUE;
+        int year = digits(b, s, 4);
+        int month = digits(b, s + 5, 2);
+        int day = digits(b, s + 8, 2);
+        int hour = digits(b, s + 11, 2);
+        int minute = digits(b, s + 14, 2);
+        int second = 0;
+        int nano = 0;
+
+        int i = s + 16;
+        if (i < end) {
+            if (b[i] != ':' || end - i < 3) return Long.MIN_VALUE;
+            second = digits(b, i + 1, 2);
+            i += 3;
+            if (i < end) {
+                int fraction = end - i - 1;
+                if (b[i] != '.' || fraction < 1 || fraction > 9) return Long.MIN_VALUE;
+                int value = digits(b, i + 1, fraction);
+                if (value < 0) return Long.MIN_VALUE;
+                for (int k = fraction; k < 9; k++) value *= 10;
+                nano = value;
+            }
+        }
+        if ((year | month | day | hour | minute | second) < 0) return Long.MIN_VALUE;
+        if (month < 1 || month > 12 || day < 1 || day > lengthOfMonth(year, month)
+                || hour > 23 || minute > 59 || second > 59) {
+            return Long.MIN_VALUE;
+        }
+        long seconds = daysFromCivil(year, month, day) * 86400L + hour * 3600 + minute * 60 + second;
+        return seconds * NANOS_PER_SECOND + nano;
+    }
+
+    /** Appends the timestamp exactly as {@link LocalDateTime#toString()} would. */
+    public static StringBuilder appendTimestamp(StringBuilder sb, long epochNanos) {
+        long seconds = Math.floorDiv(epochNanos, NANOS_PER_SECOND);
+        int nano = (int) Math.floorMod(epochNanos, NANOS_PER_SECOND);
+        long days = Math.floorDiv(seconds, 86400L);
+        int secondOfDay = (int) Math.floorMod(seconds, 86400L);
+
+        // civil-from-days (proleptic Gregorian)
+        long z = days + 719468;
+        long era = Math.floorDiv(z, 146097);
+        int doe = (int) (z - era * 146097);
+        int yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+        int doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+        int mp = (5 * doy + 2) / 153;
+        int day = doy - (153 * mp + 2) / 5 + 1;
+        int month = mp < 10 ? mp + 3 : mp - 9;
+        long year = yoe + era * 400 + (month <= 2 ? 1 : 0);
+        if (year < 0 || year > 9999) return sb.append(HistoryStore.toLocalDateTime(epochNanos));
+
+        pad(sb, (int) year, 4).append('-');
+        pad(sb, month, 2).append('-');
+        pad(sb, day, 2).append('T');
+        pad(sb, secondOfDay / 3600, 2).append(':');
+        pad(sb, secondOfDay / 60 % 60, 2);
+        int second = secondOfDay % 60;
+        if (second > 0 || nano > 0) {
+            sb.append(':');
+            pad(sb, second, 2);
+            if (nano > 0) {
+                sb.append('.');
+                if (nano % 1_000_000 == 0) pad(sb, nano / 1_000_000, 3);
+                else if (nano % 1000 == 0) pad(sb, nano / 1000, 6);
+                else pad(sb, nano, 9);
+            }
+        }
+        return sb;
+    }
+
+    static long daysFromCivil(int year, int month, int day) {
+        int y = month <= 2 ? year - 1 : year;
+        long era = Math.floorDiv(y, 400);
+        int yoe = (int) (y - era * 400);
+        int doy = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        int doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+        return era * 146097 + doe - 719468;
+    }
+
+    private static int lengthOfMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                boolean leap = (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+                return leap ? 29 : 28;
+            case 4: case 6: case 9: case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    // ---------- helpers ----------
+
+    // คืน -1 ถ้ามีตัวที่ไม่ใช่ตัวเลข
+    private static int digits(byte[] b, int start, int count) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            int d = b[i] - '0';
+            if (d < 0 || d > 9) return -1;
+            value = value * 10 + d;
+        }
+        return value;
+    }
+
+    private static StringBuilder pad(StringBuilder sb, int value, int width) {
+        for (int limit = 10, w = 1; w < width; w++, limit *= 10) {
+            if (value < limit) sb.append('0');
+        }
+        return sb.append(value);
+    }
+
+    private static int indexOf(byte[] bytes, int start, int end, byte target) {
+        if (start < 0) return -1;
+        for (int i = start; i < end; i++) {
+            if (bytes[i] == target) return i;
+        }
+        return -1;
+    }
+
+    private static int skipSpaces(byte[] bytes, int start, int end) {
+        while (start < end && (bytes[start] == ' ' || bytes[start] == '\t')) start++;
+        return start;
+    }
+
+    private static int trimSpaces(byte[] bytes, int start, int end) {
+        while (end > start && (bytes[end - 1] == ' ' || bytes[end - 1] == '\t' || bytes[end - 1] == '\r')) end--;
+        return end;
+    }
+}
\ No newline at end of file
@@ -1,19 +1,81 @@
-package model;
-
-public class CurrencyConverter {
-    private CurrencyManager currencyManager;
-
-    public CurrencyConverter(CurrencyManager currencyManager) {
-        this.currencyManager = currencyManager;
-    }
-
-    public double convert(String fromCode, String toCode, double amount) {
-        Currency from = currencyManager.getCurrency(fromCode);
-        Currency to = currencyManager.getCurrency(toCode);
-
-        if (from == null || to == null) throw new IllegalArgumentException("Invalid currency code");
-
-        double amountInBase = amount * from.getRate();
-        return amountInBase / to.getRate();
-    }
+package model;
+
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.time.ZoneId;
+
+public class CurrencyConverter {
+    private CurrencyManager currencyManager;
+
+    public CurrencyConverter(CurrencyManager currencyManager) {
+        this.currencyManager = currencyManager;
+    }
+
+    public double convert(String fromCode, String toCode, double amount) {
+        long start = System.nanoTime();
+        int from = currencyManager.id(fromCode);
+        int to = currencyManager.id(toCode);
+
+        if (from < 0 || to < 0) throw new IllegalArgumentException("Invalid currency code");
+
+        double result = currencyManager.convert(from, to, amount);
+        Metrics.CONVERT.recordSince(start);
+        return result;
+    }
+
+    /** Exact conversion of minor units; see {@link CurrencyManager#convertMinor(String, String, long, RoundingMode)}. */
+    public long convertMinor(String fromCode, String toCode, long amount, RoundingMode mode) {
+        long start = System.nanoTime();
+        int from = currencyManager.id(fromCode);
+        int to = currencyManager.id(toCode);
+
+        if (from < 0 || to < 0) throw new IllegalArgumentException("Invalid currency code");
+
+        long result = currencyManager.convertMinor(from, to, amount, mode);
+        Metrics.CONVERT.recordSince(start);
+        return result;
+    }
+
+    public void convertAll(String fromCode, String toCode, double[] in, double[] out) {
+        convertAll(fromCode, toCode, in, out, null);
+    }
+
+    // แปลงทั้งชุด ถ้าให้ history มาจะบันทึกเป็นรายการเดียวที่รวมยอดทั้งชุด
+    public void convertAll(String fromCode, String toCode, double[] in, double[] out, ExchangeHistory history) {
+        RatesSnapshot rates = currencyManager.getSnapshot();
+        int from = rates.id(fromCode);
+        int to = rates.id(toCode);
+
+        if (from < 0 || to < 0) throw new IllegalArgumentException("Invalid currency code");
+
+        long start = System.nanoTime();
+        BulkConversion.convertAll(rates, from, to, in, out);
+        Metrics.CONVERT_BATCH.recordSince(start);
+        Metrics.CONVERTED.add(in.length);
+        if (history != null && in.length > 0) {
+            history.addRecord(new HistoryRecord(rates.code(from), rates.code(to), BulkConversion.sum(in), BulkConversion.sum(out)));
+        }
+    }
+
+    public void convertAll(int[] fromIds, int[] toIds, double[] in, double[] out) {
+        long start = System.nanoTime();
+        currencyManager.convertAll(fromIds, toIds, in, out);
+        Metrics.CONVERT_BATCH.recordSince(start);
+        Metrics.CONVERTED.add(in.length);
+    }
+
+    // แปลงด้วยเรท ณ เวลาที่ระบุ (ใช้ประวัติเรทแทนเรทปัจจุบัน)
+    public double convertAt(String fromCode, String toCode, double amount, Instant at) {
+        return currencyManager.convertAt(fromCode, toCode, amount, at);
+    }
+
+    /** Re-prices {@code rows} at their own timestamps; see {@link CurrencyManager#repriceAll}. */
+    public void repriceAll(HistoryRows rows, double[] out) {
+        currencyManager.repriceAll(rows, ZoneId.systemDefault(), out);
+    }
+
+    // ใช้ id จาก CurrencyManager.id() เพื่อไม่ต้องค้นหารหัสทุกครั้ง
+    public double convert(int fromId, int toId, double amount) {
+        return currencyManager.convert(fromId, toId, amount);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,280 @@
+package model;
+
+import java.util.*;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Directed graph of currencies whose edges are quoted pair rates, with the
+ * best conversion rate between every two currencies kept precomputed.
+ *
+ * A quote {@code base/quote} with {@code bid} and {@code ask} gives two edges:
+ * selling {@code base} yields {@code bid} units of {@code quote}, buying it
+ * back costs {@code ask}, so the reverse edge is {@code 1 / ask}.
+ *
+ * Routes have at most {@link #MAX_LEGS} legs: the direct quote or one
+ * intermediary. With that bound a changed quote {@code u -> v} only touches
+ * pairs {@code (u, j)} with an edge {@code v -> j} and pairs {@code (i, v)}
+ * with an edge {@code i -> u}; a pair whose best route just got worse is
+ * recomputed over the out-edges of its source only. With quotes mostly
+ * against one base currency that keeps an update near O(n), and a lookup
+ * is one array read. (Unbounded routes are not well defined anyway once
+ * quotes allow an arbitrage cycle.)
+ */
+public class CurrencyGraph implements RateChangeListener {
+    public static final int MAX_LEGS = 2;
+
+    private static final int DIRECT = -1;
+    private static final int NONE = -2;
+
+    private final CurrencyIds ids = new CurrencyIds();
+    private final StampedLock lock = new StampedLock();
+    private final String baseCurrency;
+
+    private int capacity;
+    private int size;
+    private double[] edges = new double[0];  // NaN = ไม่มี quote
+    private double[] best = new double[0];   // NaN = ไปไม่ถึง
+    private int[] via = new int[0];          // DIRECT, NONE หรือ id ของสกุลที่ผ่าน
+    // สกุลที่มี edge ออกจาก / เข้าหาแต่ละสกุล (ไม่รวมตัวเอง) ไล่เฉพาะ edge ที่มีอยู่จริง
+    private IntList[] out = new IntList[0];
+    private IntList[] in = new IntList[0];
+
+    /** A graph with no quotes; rate events are quoted against {@code baseCurrency}. */
+    public CurrencyGraph(String baseCurrency) {
+        this.baseCurrency = baseCurrency;
+        grow(16);
+        intern(baseCurrency);
+    }
+
+    /** Quotes every currency of {@code snapshot} against {@code baseCurrency} at its mid rate. */
+    public static CurrencyGraph fromSnapshot(RatesSnapshot snapshot, String baseCurrency) {
+        CurrencyGraph graph = new CurrencyGraph(baseCurrency);
+        for (Map.Entry<String, Double> entry : snapshot.getRates().entrySet()) {
+            if (!entry.getKey().equals(baseCurrency)) graph.setQuote(entry.getKey(), baseCurrency, entry.getValue(), entry.getValue());
+        }
+        return graph;
+    }
+
+    // ---------- updates ----------
+
+    /**
+     * Sets the quote for {@code base/quote}: one unit of {@code base} sells
+     * for {@code bid} and buys for {@code ask} units of {@code quote}.
+     */
+    public void setQuote(String base, String quote, double bid, double ask) {
+        if (!(bid > 0) || !(ask >= bid)) throw new IllegalArgumentException("Invalid quote " + base + "/" + quote + ": " + bid + "/" + ask);
+        long stamp = lock.writeLock();
+        try {
+            int b = intern(base);
+            int q = intern(quote);
+            setEdge(b, q, bid);
+            setEdge(q, b, 1 / ask);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /** Removes the quote for {@code base/quote} in both directions. */
+    public void removeQuote(String base, String quote) {
+        long stamp = lock.writeLock();
+        try {
+            int b = ids.id(base);
+            int q = ids.id(quote);
+            if (b < 0 || q < 0 || b >= size || q >= size) return;
+            setEdge(b, q, Double.NaN);
+            setEdge(q, b, Double.NaN);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    // เรทใน CurrencyManager เป็นราคากลางเทียบสกุลหลัก ทั้ง event ใช้ write lock ครั้งเดียว
+    @Override
+    public void ratesChanged(RateChangeEvent event) {
+        long stamp = lock.writeLock();
+        try {
+            int b = intern(baseCurrency);
+            for (Map.Entry<String, Double> entry : event.getChanged().entrySet()) {
+                double rate = entry.getValue();
+                if (entry.getKey().equals(baseCurrency) || !(rate > 0)) continue;
+                int q = intern(entry.getKey());
+                setEdge(q, b, rate);
+                setEdge(b, q, 1 / rate);
+            }
+            for (String code : event.getRemoved()) {
+                int q = ids.id(code);
+                if (q < 0 || q >= size) continue;
+                setEdge(q, b, Double.NaN);
+                setEdge(b, q, Double.NaN);
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private void setEdge(int u, int v, double rate) {
+        if (u == v) return;
+        int uv = u * capacity + v;
+        double old = edges[uv];
+        if (Double.compare(old, rate) == 0) return;
+        edges[uv] = rate;
+        if (Double.isNaN(old)) {
+            out[u].add(v);
+            in[v].add(u);
+        } else if (Double.isNaN(rate)) {
+            out[u].remove(v);
+            in[v].remove(u);
+        }
+
+        // คู่ที่มีเส้นทางผ่าน edge นี้: (u,v) ตรง, (u,j) ผ่าน v และ (i,v) ผ่าน u
+        // คู่อื่นที่เคยผ่าน v หรือ u ต้องมี edge v->j หรือ i->u อยู่แล้ว จึงไล่แค่ out[v] กับ in[u]
+        relax(u, v, rate, DIRECT);
+        IntList next = out[v];
+        for (int k = 0; k < next.size(); k++) {
+            int j = next.get(k);
+            if (j != u) relax(u, j, rate * edges[v * capacity + j], v);
+        }
+        IntList prev = in[u];
+        for (int k = 0; k < prev.size(); k++) {
+            int i = prev.get(k);
+            if (i != v) relax(i, v, edges[i * capacity + u] * rate, u);
+        }
+    }
+
+    // เส้นทางใหม่ดีกว่าก็แทนที่ได้เลย ถ้าคู่นี้ใช้เส้นทางเดิมที่เพิ่งแย่ลงต้องหาใหม่ทั้งคู่
+    private void relax(int i, int j, double candidate, int route) {
+        int k = i * capacity + j;
+        if (candidate >= best[k] || (Double.isNaN(best[k]) && !Double.isNaN(candidate))) {
+            best[k] = candidate;
+            via[k] = route;
+        } else if (via[k] == route) {
+            recompute(i, j);
+        }
+    }
+
+    private void recompute(int i, int j) {
+        int k = i * capacity + j;
+        double bestRate = edges[k];
+        int bestVia = Double.isNaN(bestRate) ? NONE : DIRECT;
+        IntList next = out[i];
+        for (int n = 0; n < next.size(); n++) {
+            int m = next.get(n);
+            if (m == j) continue;
+            double candidate = edges[i * capacity + m] * edges[m * capacity + j];
+            if (candidate > bestRate || (Double.isNaN(bestRate) && !Double.isNaN(candidate))) {
+                bestRate = candidate;
+                bestVia = m;
+            }
+        }
+        best[k] = bestRate;
+        via[k] = bestVia;
+    }
+
+    private int intern(String code) {
+        int id = ids.intern(code);
+        if (id >= capacity) grow(capacity * 2);
+        if (id >= size) {
+            size = id + 1;
+            out[id] = new IntList(4);
+            in[id] = new IntList(4);
+            edges[id * capacity + id] = 1;
+            best[id * capacity + id] = 1;
+            via[id * capacity + id] = DIRECT;
+        }
+        return id;
+    }
+
+    private void grow(int newCapacity) {
+        double[] e = new double[newCapacity * newCapacity];
+        double[] b = new double[e.length];
+        int[] v = new int[e.length];
+        Arrays.fill(e, Double.NaN);
+        Arrays.fill(b, Double.NaN);
+        Arrays.fill(v, NONE);
+        for (int i = 0; i < size; i++) {
+            System.arraycopy(edges, i * capacity, e, i * newCapacity, size);
+            System.arraycopy(best, i * capacity, b, i * newCapacity, size);
+            System.arraycopy(via, i * capacity, v, i * newCapacity, size);
+        }
+        edges = e;
+        best = b;
+        via = v;
+        out = Arrays.copyOf(out, newCapacity);
+        in = Arrays.copyOf(in, newCapacity);
+        capacity = newCapacity;
+    }
+
+    // ---------- lookups ----------
+
+    /** Best rate from {@code from} to {@code to} (units of {@code to} per unit), or NaN if there is no route. */
+    public double rate(String from, String to) {
+        long stamp = lock.tryOptimisticRead();
+        double rate = lookup(from, to);
+        if (lock.validate(stamp)) return rate;
+        stamp = lock.readLock();
+        try {
+            return lookup(from, to);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public double convert(String from, String to, double amount) {
+        double rate = rate(from, to);
+        if (Double.isNaN(rate)) throw new IllegalArgumentException("No route from " + from + " to " + to);
+        return amount * rate;
+    }
+
+    /** Currencies along the best route, {@code from} first and {@code to} last; empty if there is none. */
+    public List<String> route(String from, String to) {
+        long stamp = lock.readLock();
+        try {
+            int i = ids.id(from);
+            int j = ids.id(to);
+            if (i < 0 || j < 0 || i >= size || j >= size) return Collections.emptyList();
+            int v = via[i * capacity + j];
+            if (v == NONE) return Collections.emptyList();
+            if (v == DIRECT) return i == j ? Collections.singletonList(from) : Arrays.asList(from, to);
+            return Arrays.asList(from, ids.code(v), to);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /** Quoted rate of the single edge {@code from -> to}, or NaN. */
+    public double edge(String from, String to) {
+        long stamp = lock.readLock();
+        try {
+            int i = ids.id(from);
+            int j = ids.id(to);
+            if (i < 0 || j < 0 || i >= size || j >= size) return Double.NaN;
+            return edges[i * capacity + j];
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public List<String> getCurrencies() {
+        return ids.codes().subList(0, size());
+    }
+
+    public int size() {
+        long stamp = lock.readLock();
+        try {
+            return size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    // อ่านแบบ optimistic: array อาจถูกเปลี่ยนระหว่างอ่าน ผู้เรียกต้อง validate ก่อนใช้ค่า
+    private double lookup(String from, String to) {
+        int i = ids.id(from);
+        int j = ids.id(to);
+        int n = size;
+        int c = capacity;
+        double[] b = best;
+        if (i < 0 || j < 0 || i >= n || j >= n || (long) i * c + j >= b.length) return Double.NaN;
+        return b[i * c + j];
+    }
+}
\ No newline at end of file
@@ -0,0 +1,150 @@
+package model;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Interns currency codes to small dense int ids (0, 1, 2, ...). Ids are never
+ * reused or removed, so arrays indexed by id stay valid as new codes appear.
+ * Lookups are lock-free; {@link #intern(String)} of a new code takes a lock and
+ * publishes a copied table.
+ */
+public class CurrencyIds {
+    private static final class Table {
+        final Map<String, Integer> ids;
+        final String[] codes;
+        // รหัส ASCII ยาวไม่เกิน 8 ตัวอักษรถูกอัดเป็น long ใช้ค้นหาจาก byte[] โดยไม่ต้องสร้าง String
+        final long[] packedKeys;
+        final int[] packedIds;
+
+        Table(Map<String, Integer> ids, String[] codes, long[] packedKeys, int[] packedIds) {
+            this.ids = ids;
+            this.codes = codes;
+            this.packedKeys = packedKeys;
+            this.packedIds = packedIds;
+        }
+    }
+
+    private volatile Table table = new Table(Collections.emptyMap(), new String[0], new long[16], new int[16]);
+
+    // คืน id ของรหัสสกุลเงิน ถ้ายังไม่มีจะสร้างใหม่
+    public int intern(String code) {
+        Integer id = table.ids.get(code);
+        if (id != null) return id;
+        synchronized (this) {
+            Table t = table;
+            id = t.ids.get(code);
+            if (id != null) return id;
+
+            int next = t.codes.length;
+            Map<String, Integer> ids = new HashMap<>(t.ids);
+            ids.put(code, next);
+            String[] codes = Arrays.copyOf(t.codes, next + 1);
+            codes[next] = code;
+
+            long[] keys = t.packedKeys;
+            int[] values = t.packedIds;
+            long key = pack(code);
+            if (key != 0) {
+                if ((next + 1) * 2 > keys.length) {
+                    keys = new long[keys.length * 2];
+                    values = new int[keys.length];
+                    for (int i = 0; i < next; i++) {
+                        long k = pack(codes[i]);
+                        if (k != 0) put(keys, values, k, i);
+                    }
+                } else {
+                    keys = keys.clone();
+                    values = values.clone();
+                }
+                put(keys, values, key, next);
+            }
+            table = new Table(ids, codes, keys, values);
+            return next;
+        }
+    }
+
+    /**
+     * Same as {@link #intern(String)} for the ASCII code in
+     * {@code bytes[start, end)}. Known codes are found without allocating.
+     */
+    public int intern(byte[] bytes, int start, int end) {
+        long key = pack(bytes, start, end);
+        if (key != 0) {
+            Table t = table;
+            int mask = t.packedKeys.length - 1;
+            for (int slot = hash(key) & mask; t.packedKeys[slot] != 0; slot = (slot + 1) & mask) {
+                if (t.packedKeys[slot] == key) return t.packedIds[slot];
+            }
+        }
+        return intern(new String(bytes, start, end - start, StandardCharsets.UTF_8));
+    }
+
+    /** Returns the id of {@code code}, or -1 if it has never been interned. */
+    public int id(String code) {
+        Integer id = table.ids.get(code);
+        return id == null ? -1 : id;
+    }
+
+    /** Same as {@link #id(String)} for the ASCII code in {@code bytes[start, end)}; never interns. */
+    public int id(byte[] bytes, int start, int end) {
+        long key = pack(bytes, start, end);
+        if (key == 0) return id(new String(bytes, start, end - start, StandardCharsets.UTF_8));
+        Table t = table;
+        int mask = t.packedKeys.length - 1;
+        for (int slot = hash(key) & mask; t.packedKeys[slot] != 0; slot = (slot + 1) & mask) {
+            if (t.packedKeys[slot] == key) return t.packedIds[slot];
+        }
+        return -1;
+    }
+
+    public String code(int id) {
+        return table.codes[id];
+    }
+
+    public int size() {
+        return table.codes.length;
+    }
+
+    public List<String> codes() {
+        return Collections.unmodifiableList(Arrays.asList(table.codes));
+    }
+
+    private static void put(long[] keys, int[] values, long key, int id) {
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while (keys[slot] != 0) slot = (slot + 1) & mask;
+        keys[slot] = key;
+        values[slot] = id;
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 32);
+    }
+
+    // 0 = อัดไม่ได้ (ยาวเกิน 8 ตัว, ว่าง หรือไม่ใช่ ASCII)
+    private static long pack(String code) {
+        int len = code.length();
+        if (len == 0 || len > 8) return 0;
+        long key = 0;
+        for (int i = 0; i < len; i++) {
+            char ch = code.charAt(i);
+            if (ch == 0 || ch >= 0x80) return 0;
+            key = (key << 8) | ch;
+        }
+        return key;
+    }
+
+    private static long pack(byte[] bytes, int start, int end) {
+        int len = end - start;
+        if (len <= 0 || len > 8) return 0;
+        long key = 0;
+        for (int i = start; i < end; i++) {
+            int b = bytes[i];
+            if (b <= 0) return 0;
+            key = (key << 8) | b;
+        }
+        return key;
+    }
+}
\ No newline at end of file
@@ -1,71 +1,294 @@
-package model;
-import java.io.*;
-import java.util.*;
-
-public class CurrencyManager {
-    private Map<String, Double> rates = new HashMap<>();
-    private String filename;
-
-    public CurrencyManager(String filename) {
-        this.filename = filename;
-        loadRatesFromFile();
-    }
-
-    // โหลดเรทจากไฟล์
-    public void loadRatesFromFile() {
-        rates.clear();
-        try (BufferedReader br = new BufferedReader(new FileReader(filename))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                String[] parts = line.split(",");
-                if (parts.length == 2) {
-                    String currency = parts[0].trim();
-                    double rate = Double.parseDouble(parts[1].trim());
-                    rates.put(currency, rate);
-                }
-            }
-        } catch (IOException e) {
-            System.out.println("Error loading rates: " + e.getMessage());
-        }
-    }
-
-    // เพิ่มหรือแก้ไขเรทของสกุลเงิน
-    public void setRate(String currency, double rate) {
-        rates.put(currency.toUpperCase(), rate);
-    }
-
-    // บันทึกเรททั้งหมดกลับไปที่ไฟล์
-    public void saveRatesToFile() throws IOException {
-        try (BufferedWriter bw = new BufferedWriter(new FileWriter(filename))) {
-            for (Map.Entry<String, Double> entry : rates.entrySet()) {
-                bw.write(entry.getKey() + "," + entry.getValue());
-                bw.newLine();
-            }
-        }
-    }
-
-    // แปลงค่าเงิน
-    public double convert(String fromCurrency, String toCurrency, double amount) {
-        fromCurrency = fromCurrency.toUpperCase();
-        toCurrency = toCurrency.toUpperCase();
-        if (!rates.containsKey(fromCurrency) || !rates.containsKey(toCurrency)) {
-            throw new IllegalArgumentException("Unknown currency");
-        }
-        double fromRate = rates.get(fromCurrency);
-        double toRate = rates.get(toCurrency);
-        return amount * (toRate / fromRate);
-    }
-
-    public Set<String> getCurrencies() {
-        return new TreeSet<>(rates.keySet());  // Sorted set
-    }
-
-    public Double getRate(String currency) {
-        return rates.get(currency.toUpperCase());
-    }
-
-    public Currency getCurrency(String fromCode) {
-        // TODO Auto-generated method stub
-        throw new UnsupportedOperationException("Unimplemented method 'getCurrency'");
-    }
+package model;
+import java.io.*;
+import java.math.RoundingMode;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.zone.ZoneRules;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class CurrencyManager {
+    /** Currency every rate in the rates file is quoted in. */
+    public static final String BASE_CURRENCY = "THB";
+
+    private String filename;
+
+    // ผู้อ่านใช้ snapshot ปัจจุบันโดยไม่ต้อง lock ผู้แก้ไขสร้าง snapshot ใหม่แล้วสลับทั้งก้อน
+    private final CurrencyIds ids = new CurrencyIds();
+    private final AtomicReference<RatesSnapshot> current = new AtomicReference<>(RatesSnapshot.empty(ids));
+    // ผู้แก้ไขสลับ snapshot และแจ้ง listener ภายใต้ lock เดียวกัน listener จึงได้ event ตามลำดับ version เสมอ
+    private final Object writeLock = new Object();
+    private final List<RateChangeListener> listeners = new CopyOnWriteArrayList<>();
+    private final RateHistory rateHistory;
+    private final CurrencyGraph graph = new CurrencyGraph(BASE_CURRENCY);
+
+    public CurrencyManager(String filename) {
+        this.filename = filename;
+        this.rateHistory = openRateHistory(filename);
+        listeners.add(rateHistory);
+        listeners.add(graph);
+        loadRatesFromFile();
+    }
+
+    // ถ้าเปิดไฟล์ log ไม่ได้ ยังเก็บประวัติเรทในหน่วยความจำต่อไป
+    private static RateHistory openRateHistory(String filename) {
+        try {
+            return new RateHistory(RateHistory.logFileFor(filename));
+        } catch (IOException e) {
+            System.out.println("Error opening rate history: " + e.getMessage());
+            return new RateHistory();
+        }
+    }
+
+    // โหลดเรทจากไฟล์
+    public void loadRatesFromFile() {
+        Map<String, Double> rates;
+        try {
+            rates = readRatesFile();
+        } catch (IOException e) {
+            System.out.println("Error loading rates: " + e.getMessage());
+            return;
+        }
+        synchronized (writeLock) {
+            RatesSnapshot old = current.get();
+            RatesSnapshot next = RatesSnapshot.build(old.getVersion() + 1, ids, rates);
+            current.set(next);
+            fireChanges(old, next, rates);
+        }
+    }
+
+    /**
+     * Re-reads the rates file and applies only the currencies whose rate was
+     * added, changed or removed. Returns the event that was published, or
+     * {@code null} if the file matched the current rates.
+     */
+    public RateChangeEvent reloadChangedRates() {
+        Map<String, Double> rates;
+        try {
+            rates = readRatesFile();
+        } catch (IOException e) {
+            System.out.println("Error loading rates: " + e.getMessage());
+            return null;
+        }
+        return applyChanges(rates, true);
+    }
+
+    // เพิ่มหรือแก้ไขเรทของสกุลเงิน
+    public void setRate(String currency, double rate) {
+        applyChanges(Collections.singletonMap(currency.toUpperCase(), rate), false);
+    }
+
+    /**
+     * Applies new rates in one atomic swap. With {@code replaceAll} any
+     * currency missing from {@code rates} is removed, otherwise it is kept.
+     * Writers are serialized, so listeners see events in version order.
+     */
+    public RateChangeEvent applyChanges(Map<String, Double> rates, boolean replaceAll) {
+        synchronized (writeLock) {
+            RatesSnapshot old = current.get();
+            Map<String, Double> changed = changedRates(old, rates);
+            Set<String> removed = new HashSet<>();
+            if (replaceAll) {
+                for (String code : old.getRates().keySet()) {
+                    if (!rates.containsKey(code)) removed.add(code);
+                }
+            }
+            if (changed.isEmpty() && removed.isEmpty()) return null;
+
+            RatesSnapshot next = old.withChanges(changed, removed);
+            current.set(next);
+            RateChangeEvent event = new RateChangeEvent(old, next, changed, removed);
+            for (RateChangeListener listener : listeners) listener.ratesChanged(event);
+            return event;
+        }
+    }
+
+    public void addRateChangeListener(RateChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeRateChangeListener(RateChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    // เฝ้าไฟล์เรท เมื่อไฟล์ถูกแก้จะโหลดเฉพาะสกุลเงินที่เปลี่ยน
+    public RatesWatcher watchRatesFile(long debounceMillis) throws IOException {
+        return new RatesWatcher(Paths.get(filename), debounceMillis, this::reloadChangedRates);
+    }
+
+    private Map<String, Double> readRatesFile() throws IOException {
+        long start = System.nanoTime();
+        Map<String, Double> rates = CsvCodec.readRates(Paths.get(filename));
+        Metrics.RATES_LOAD.recordSince(start);
+        return rates;
+    }
+
+    // เฉพาะสกุลเงินที่เรทต่างจาก snapshot เดิม (รวมสกุลใหม่)
+    private static Map<String, Double> changedRates(RatesSnapshot old, Map<String, Double> rates) {
+        Map<String, Double> changed = new LinkedHashMap<>();
+        for (Map.Entry<String, Double> entry : rates.entrySet()) {
+            if (!entry.getValue().equals(old.getRate(entry.getKey()))) changed.put(entry.getKey(), entry.getValue());
+        }
+        return changed;
+    }
+
+    private void fireChanges(RatesSnapshot old, RatesSnapshot next, Map<String, Double> rates) {
+        if (listeners.isEmpty()) return;
+        Map<String, Double> changed = changedRates(old, rates);
+        Set<String> removed = new HashSet<>(old.getRates().keySet());
+        removed.removeAll(rates.keySet());
+        if (changed.isEmpty() && removed.isEmpty()) return;
+
+        RateChangeEvent event = new RateChangeEvent(old, next, changed, removed);
+        for (RateChangeListener listener : listeners) listener.ratesChanged(event);
+    }
+
+    // บันทึกเรททั้งหมดกลับไปที่ไฟล์
+    public void saveRatesToFile() throws IOException {
+        long start = System.nanoTime();
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(filename))) {
+            for (Map.Entry<String, Double> entry : current.get().getRates().entrySet()) {
+                bw.write(entry.getKey() + "," + entry.getValue());
+                bw.newLine();
+            }
+        }
+        Metrics.RATES_SAVE.recordSince(start);
+    }
+
+    /** The current rates; stays consistent no matter what writers do meanwhile. */
+    public RatesSnapshot getSnapshot() {
+        return current.get();
+    }
+
+    // แปลงค่าเงิน
+    public double convert(String fromCurrency, String toCurrency, double amount) {
+        RatesSnapshot rates = current.get();
+        return rates.convert(rates.id(fromCurrency), rates.id(toCurrency), amount);
+    }
+
+    /**
+     * Converts using ids from {@link #id(String)}: one array read and one
+     * multiply against the current snapshot.
+     */
+    public double convert(int fromId, int toId, double amount) {
+        return current.get().convert(fromId, toId, amount);
+    }
+
+    /**
+     * Converts {@code amount} minor units (see {@link FixedPoint#scale}) into
+     * minor units of {@code toCurrency}, exactly and rounded once with
+     * {@code mode}.
+     */
+    public long convertMinor(String fromCurrency, String toCurrency, long amount, RoundingMode mode) {
+        RatesSnapshot rates = current.get();
+        return rates.convertMinor(rates.id(fromCurrency), rates.id(toCurrency), amount, mode);
+    }
+
+    // แบบใช้ id ไม่สร้าง object ใดๆ
+    public long convertMinor(int fromId, int toId, long amount, RoundingMode mode) {
+        return current.get().convertMinor(fromId, toId, amount, mode);
+    }
+
+    // แปลงทั้ง array ด้วยคู่สกุลเงินเดียวกัน ทุกค่าใช้ snapshot เดียวกัน
+    public void convertAll(String fromCurrency, String toCurrency, double[] in, double[] out) {
+        RatesSnapshot rates = current.get();
+        BulkConversion.convertAll(rates, rates.id(fromCurrency), rates.id(toCurrency), in, out);
+    }
+
+    /** Converts {@code in[i]} from {@code fromIds[i]} to {@code toIds[i]} into {@code out[i]}. */
+    public void convertAll(int[] fromIds, int[] toIds, double[] in, double[] out) {
+        current.get().convertAll(fromIds, toIds, in, out);
+    }
+
+    /**
+     * Converts with the rates that were in effect at {@code at}, as recorded
+     * in {@link #getRateHistory()}.
+     */
+    public double convertAt(String fromCurrency, String toCurrency, double amount, Instant at) {
+        double from = rateHistory.rateAt(fromCurrency.toUpperCase(), at);
+        double to = rateHistory.rateAt(toCurrency.toUpperCase(), at);
+        if (Double.isNaN(from)) throw new IllegalArgumentException("No rate for " + fromCurrency + " at " + at);
+        if (Double.isNaN(to)) throw new IllegalArgumentException("No rate for " + toCurrency + " at " + at);
+        return amount * (from / to);
+    }
+
+    /**
+     * Re-prices every row of {@code rows} with the rates in effect at its
+     * timestamp (a local date-time in {@code zone}); {@code out[i]} is NaN
+     * where either rate was unknown. Time-ordered rows decode each series
+     * only once.
+     */
+    public void repriceAll(HistoryRows rows, ZoneId zone, double[] out) {
+        Map<String, RateSeries.Reader> readers = new HashMap<>();
+        ZoneRules rules = zone.getRules();
+        long fixedOffsetMillis = rules.isFixedOffset() ? rules.getOffset(Instant.EPOCH).getTotalSeconds() * 1000L : 0;
+        for (int i = 0, n = rows.size(); i < n; i++) {
+            long nanos = rows.epochNanos(i);
+            long offsetMillis = rules.isFixedOffset() ? fixedOffsetMillis
+                    : rules.getOffset(HistoryStore.toLocalDateTime(nanos)).getTotalSeconds() * 1000L;
+            long at = Math.floorDiv(nanos, 1_000_000L) - offsetMillis;
+            double from = reader(readers, rows.fromCurrency(i)).valueAt(at);
+            double to = reader(readers, rows.toCurrency(i)).valueAt(at);
+            out[i] = rows.amount(i) * (from / to);
+        }
+    }
+
+    private RateSeries.Reader reader(Map<String, RateSeries.Reader> readers, String currency) {
+        RateSeries.Reader reader = readers.get(currency);
+        if (reader == null) {
+            RateSeries series = rateHistory.getSeries(currency);
+            reader = (series == null ? new RateSeries() : series).reader();
+            readers.put(currency, reader);
+        }
+        return reader;
+    }
+
+    /**
+     * Sets a direct {@code base/quote} quote with a bid/ask spread. Rates
+     * from the rates file stay in the graph as mid quotes against
+     * {@link #BASE_CURRENCY}.
+     */
+    public void setQuote(String base, String quote, double bid, double ask) {
+        graph.setQuote(base.toUpperCase(), quote.toUpperCase(), bid, ask);
+    }
+
+    /** Converts along the best route in {@link #getCurrencyGraph()}, direct or through one intermediary. */
+    public double convertRouted(String fromCurrency, String toCurrency, double amount) {
+        return graph.convert(fromCurrency.toUpperCase(), toCurrency.toUpperCase(), amount);
+    }
+
+    public CurrencyGraph getCurrencyGraph() {
+        return graph;
+    }
+
+    /** Every rate each currency has had since the history log was started. */
+    public RateHistory getRateHistory() {
+        return rateHistory;
+    }
+
+    /** Returns the dense id of {@code currency}, or -1 if it has no rate. */
+    public int id(String currency) {
+        return current.get().id(currency);
+    }
+
+    public String code(int id) {
+        return ids.code(id);
+    }
+
+    public Set<String> getCurrencies() {
+        return new TreeSet<>(current.get().getRates().keySet());  // Sorted set
+    }
+
+    public Double getRate(String currency) {
+        return current.get().getRate(currency.toUpperCase());
+    }
+
+    public Currency getCurrency(String code) {
+        Double rate = getRate(code);
+        if (rate == null) return null;
+        String upper = code.toUpperCase();
+        return new Currency(upper, upper, rate);
+    }
 }
\ No newline at end of file
@@ -1,30 +1,326 @@
-package model;
-
-import java.io.*;
-import java.util.*;
-
-public class ExchangeHistory {
-    private List<HistoryRecord> records = new ArrayList<>();
-
-    public void addRecord(HistoryRecord record) { records.add(record); }
-    public List<HistoryRecord> getAllRecords() { return records; }
-
-    public void saveToFile(String filename) {
-        try (PrintWriter writer = new PrintWriter(new FileWriter(filename))) {
-            for (HistoryRecord r : records) writer.println(r.toCSV());
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-    }
-
-    public void loadFromFile(String filename) {
-        records.clear();
-        try (BufferedReader reader = new BufferedReader(new FileReader(filename))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                HistoryRecord r = HistoryRecord.fromCSV(line);
-                if (r != null) records.add(r);
-            }
-        } catch (IOException ignored) {}
-    }
+package model;
+
+import java.io.*;
+import java.nio.file.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+
+public class ExchangeHistory {
+    private final HistoryStore store = new HistoryStore();
+    // เก็บใน heap ไม่เกิน maxRows รายการ ที่เก่ากว่านั้นอ่านจาก segment บนดิสก์ผ่าน window
+    private final int maxRows;
+    private HistoryWindow window;
+    // ประวัติเก่าจากไฟล์ binary อ่านผ่าน mmap ไม่ได้โหลดเข้า heap รายการใหม่อยู่ใน store
+    private BinaryHistoryFile base;
+    private final HistoryRows rows = new CombinedRows();
+    private HistoryJournal journal;
+    private HistoryPersister persister;
+    private HistoryIndex index;
+    private Path indexFile;
+    private HistoryRollup rollup = new HistoryRollup();
+    private Path rollupFile;
+
+    public ExchangeHistory() {
+        this(HistoryWindow.UNBOUNDED);
+    }
+
+    /**
+     * A history that keeps at most about {@code maxInMemoryRows} records on
+     * the heap (see {@link HistoryWindow}). Older ones are written to
+     * segments next to the history file, or to a temporary directory until
+     * a file is loaded, and read back from there by {@link #getRows()}.
+     * The {@link #find} index keeps posting lists for about as many rows;
+     * older rows are found by scanning the blocks that can match.
+     */
+    public ExchangeHistory(int maxInMemoryRows) {
+        this.maxRows = maxInMemoryRows;
+        this.window = new HistoryWindow(store, maxInMemoryRows, null);
+        this.index = new HistoryIndex(maxInMemoryRows);
+    }
+
+    /** A history bounded as set by {@link HistoryWindow#maxRowsFromProperties()}. */
+    public static ExchangeHistory fromProperties() {
+        return new ExchangeHistory(HistoryWindow.maxRowsFromProperties());
+    }
+
+    public void addRecord(HistoryRecord record) {
+        long start = System.nanoTime();
+        window.append(record.getFromCurrency(), record.getToCurrency(), record.getAmount(), record.getResult(), record.getTimestamp());
+        long nanos = store.epochNanos(store.size() - 1);
+        index.add(record.getFromCurrency(), record.getToCurrency(), nanos);
+        rollup.add(record.getFromCurrency(), record.getToCurrency(), record.getAmount(), record.getResult(), nanos);
+        if (persister != null) {
+            if (!persister.submit(record.toCSV())) {
+                System.err.println("Error writing history: journal is failing, record kept in memory for retry");
+            }
+        } else if (journal != null) {
+            try {
+                journal.append(record.toCSV());
+            } catch (IOException e) {
+                Metrics.HISTORY_WRITE_ERRORS.increment();
+                e.printStackTrace();
+            }
+        }
+        Metrics.HISTORY_APPEND.recordSince(start);
+    }
+
+    /**
+     * Records a conversion done in minor units. The store keeps doubles, which
+     * hold any amount below 2^53 minor units exactly enough for
+     * {@link #amountMinor}/{@link #resultMinor} to give the same longs back.
+     */
+    public void addRecord(String fromCurrency, String toCurrency, long amountMinor, long resultMinor) {
+        addRecord(new HistoryRecord(fromCurrency, toCurrency,
+                FixedPoint.toDouble(amountMinor, FixedPoint.scale(fromCurrency)),
+                FixedPoint.toDouble(resultMinor, FixedPoint.scale(toCurrency))));
+    }
+
+    public long amountMinor(int i) {
+        return FixedPoint.toMinor(rows.amount(i), FixedPoint.scale(rows.fromCurrency(i)));
+    }
+
+    public long resultMinor(int i) {
+        return FixedPoint.toMinor(rows.result(i), FixedPoint.scale(rows.toCurrency(i)));
+    }
+
+    // สร้าง HistoryRecord ทีละรายการตอนอ่าน ถ้าไม่ต้องการ object ให้ใช้ getRows()
+    public List<HistoryRecord> getAllRecords() {
+        return new AbstractList<HistoryRecord>() {
+            @Override
+            public HistoryRecord get(int index) {
+                if (index < 0 || index >= rows.size()) throw new IndexOutOfBoundsException("Index: " + index);
+                return rows.toRecord(index);
+            }
+
+            @Override
+            public int size() {
+                return rows.size();
+            }
+        };
+    }
+
+    /** All records: the binary base (if any) followed by the window of records added or loaded from CSV. */
+    public HistoryRows getRows() { return rows; }
+
+    /**
+     * Records added or loaded from CSV (everything, unless a binary base is
+     * open). In bounded mode rows below {@link HistoryWindow#spilledRows()}
+     * have been released from the store; read them through the window.
+     */
+    public HistoryStore getStore() { return store; }
+
+    public HistoryWindow getWindow() { return window; }
+
+    public int size() { return rows.size(); }
+
+    /**
+     * Row numbers (into {@link #getRows()}), ascending, of records for the
+     * given currencies within {@code [start, end)}. Any argument may be
+     * {@code null} to leave that side open.
+     */
+    public int[] find(String fromCurrency, String toCurrency, LocalDateTime start, LocalDateTime end) {
+        return index.query(rows, fromCurrency, toCurrency,
+                start == null ? Long.MIN_VALUE : HistoryStore.toEpochNanos(start),
+                end == null ? Long.MAX_VALUE : HistoryStore.toEpochNanos(end));
+    }
+
+    public List<HistoryRecord> findRecords(String fromCurrency, String toCurrency, LocalDateTime start, LocalDateTime end) {
+        int[] matches = find(fromCurrency, toCurrency, start, end);
+        List<HistoryRecord> result = new ArrayList<>(matches.length);
+        for (int i : matches) result.add(rows.toRecord(i));
+        return result;
+    }
+
+    public HistoryIndex getIndex() { return index; }
+
+    // บันทึก index ไว้ข้างไฟล์ประวัติ รอบหน้าโหลดได้เลยไม่ต้องสร้างใหม่
+    public void saveIndex() {
+        if (indexFile == null) return;
+        try {
+            index.save(indexFile);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /** Per-pair daily totals over every record, kept current by {@link #addRecord}. */
+    public HistoryRollup getRollup() { return rollup; }
+
+    /**
+     * Per-day totals for the given currencies within {@code [start, end]}
+     * (days, inclusive); any argument may be {@code null}. Reads the rollup
+     * only, so the cost depends on the number of days and pairs, not records.
+     */
+    public List<HistoryRollup.Bucket> summarize(String fromCurrency, String toCurrency, LocalDate start, LocalDate end) {
+        return rollup.query(fromCurrency, toCurrency, start, end);
+    }
+
+    public void saveRollup() {
+        if (rollupFile == null) return;
+        try {
+            rollup.save(rollupFile);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // เปิดโหมด journal: addRecord จะเขียนต่อท้ายไฟล์แทนการเขียนใหม่ทั้งไฟล์
+    public void openJournal(String filename) throws IOException {
+        closeJournal();
+        journal = new HistoryJournal(Paths.get(filename));
+    }
+
+    // เหมือน openJournal แต่เขียนไฟล์บน thread พื้นหลังเป็นชุด (group commit)
+    public void openAsyncJournal(String filename, int batchSize, long flushIntervalMillis) throws IOException {
+        openJournal(filename);
+        persister = new HistoryPersister(journal, HistoryPersister.DEFAULT_CAPACITY, batchSize, flushIntervalMillis);
+    }
+
+    public void closeJournal() {
+        window.awaitSpills();
+        if (journal == null) return;
+        try {
+            if (persister != null) persister.close();
+            persister = null;
+            journal.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        journal = null;
+        saveIndex();
+        saveRollup();
+    }
+
+    public void saveToFile(String filename) {
+        try (Writer writer = new FileWriter(filename)) {
+            CsvCodec.writeHistory(writer, rows);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+        // ไฟล์หลักมีข้อมูลครบแล้ว segment เก่าไม่ต้องใช้
+        try {
+            HistoryJournal.removeSegments(Paths.get(filename));
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        indexFile = Paths.get(indexFileFor(filename));
+        rollupFile = Paths.get(rollupFileFor(filename));
+        saveIndex();
+        saveRollup();
+    }
+
+    public void loadFromFile(String filename) {
+        base = null;
+        openWindow(filename);
+        for (Path segment : HistoryJournal.segments(Paths.get(filename))) {
+            try {
+                CsvCodec.readHistory(segment, store, window::spillLoaded);
+            } catch (IOException ignored) {}
+        }
+        window.finishLoad();
+        indexFile = Paths.get(indexFileFor(filename));
+        index = HistoryIndex.loadOrBuild(indexFile, rows, maxRows);
+        rollupFile = Paths.get(rollupFileFor(filename));
+        rollup = HistoryRollup.loadOrBuild(rollupFile, rows);
+    }
+
+    /**
+     * Opens a binary history file (see {@link BinaryHistoryFile}) in place and
+     * then loads records written since, from the CSV journal next to it
+     * ({@link #journalFileFor(String)}). Only the header is read up front.
+     */
+    public void loadFromBinary(String filename) throws IOException {
+        openWindow(journalFileFor(filename));
+        base = BinaryHistoryFile.open(Paths.get(filename));
+        for (Path segment : HistoryJournal.segments(Paths.get(journalFileFor(filename)))) {
+            CsvCodec.readHistory(segment, store, window::spillLoaded);
+        }
+        window.finishLoad();
+        indexFile = Paths.get(indexFileFor(filename));
+        index = HistoryIndex.loadOrBuild(indexFile, rows, maxRows);
+        rollupFile = Paths.get(rollupFileFor(filename));
+        rollup = HistoryRollup.loadOrBuild(rollupFile, rows);
+    }
+
+    public void saveToBinary(String filename) throws IOException {
+        // journal ข้างไฟล์นี้เก็บแค่รายการที่ binary ยังไม่มี เขียนใหม่แล้วต้องล้าง ไม่งั้นโหลดรอบหน้าได้ซ้ำ
+        Path journalFile = Paths.get(journalFileFor(filename)).toAbsolutePath();
+        boolean live = journal != null && journal.getActiveFile().equals(journalFile);
+        if (live && persister != null) persister.flush();
+        BinaryHistoryFile.write(Paths.get(filename), base == null && window.spilledRows() == 0 ? store : rows);
+        if (live) {
+            journal.reset();
+        } else {
+            HistoryJournal.removeSegments(journalFile);
+            Files.deleteIfExists(journalFile);
+        }
+        indexFile = Paths.get(indexFileFor(filename));
+        rollupFile = Paths.get(rollupFileFor(filename));
+        saveIndex();
+        saveRollup();
+    }
+
+    // window ใหม่ต่อไฟล์ที่โหลด segment ที่ spill จะได้อยู่ข้างไฟล์นั้นและใช้ซ้ำได้ตอนโหลดรอบหน้า
+    private void openWindow(String journalFile) {
+        window.close();
+        store.clear();
+        window = new HistoryWindow(store, maxRows, window.isBounded() ? HistoryWindow.spillDirFor(journalFile) : null);
+    }
+
+    // ไฟล์ binary เขียนต่อท้ายไม่ได้ รายการใหม่จึงไปอยู่ใน <file>.csv
+    public static String journalFileFor(String historyFile) {
+        return historyFile.endsWith(".bin") ? historyFile + ".csv" : historyFile;
+    }
+
+    public static String indexFileFor(String historyFile) {
+        return historyFile + ".idx";
+    }
+
+    public static String rollupFileFor(String historyFile) {
+        return historyFile + ".rollup";
+    }
+
+    private final class CombinedRows implements HistoryRows {
+        @Override
+        public int size() {
+            return baseSize() + window.size();
+        }
+
+        @Override
+        public String fromCurrency(int i) {
+            int b = baseSize();
+            return i < b ? base.fromCurrency(i) : window.fromCurrency(i - b);
+        }
+
+        @Override
+        public String toCurrency(int i) {
+            int b = baseSize();
+            return i < b ? base.toCurrency(i) : window.toCurrency(i - b);
+        }
+
+        @Override
+        public double amount(int i) {
+            int b = baseSize();
+            return i < b ? base.amount(i) : window.amount(i - b);
+        }
+
+        @Override
+        public double result(int i) {
+            int b = baseSize();
+            return i < b ? base.result(i) : window.result(i - b);
+        }
+
+        @Override
+        public long epochNanos(int i) {
+            int b = baseSize();
+            return i < b ? base.epochNanos(i) : window.epochNanos(i - b);
+        }
+
+        private int baseSize() {
+            BinaryHistoryFile b = base;
+            return b == null ? 0 : b.size();
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,96 @@
+package model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * Follows a file like {@code tail -F}: reads lines as they are appended,
+ * starting at the current end (or at the beginning), and reopens the file
+ * from the start when it is truncated or replaced by a new file (log
+ * rotation). Polls every {@code pollMillis} while there is nothing new.
+ */
+public class FileTickSource implements RateTickSource {
+    public static final long DEFAULT_POLL_MILLIS = 10;
+    private static final int MAX_LINE = 256;
+
+    private final Path file;
+    private final boolean fromStart;
+    private final long pollMillis;
+    private volatile boolean closed;
+
+    public FileTickSource(Path file, boolean fromStart, long pollMillis) {
+        this.file = file;
+        this.fromStart = fromStart;
+        this.pollMillis = pollMillis;
+    }
+
+    @Override
+    public void readLines(LineConsumer lines) throws IOException {
+        LineSplitter splitter = new LineSplitter(MAX_LINE);
+        boolean first = true;
+        while (!closed) {
+            FileChannel channel;
+            Object key;
+            try {
+                channel = FileChannel.open(file, StandardOpenOption.READ);
+                key = fileKey();
+            } catch (NoSuchFileException e) {
+                // ยังไม่มีไฟล์ (หรืออยู่ระหว่างหมุนไฟล์) รอแล้วลองใหม่
+                if (sleep()) return;
+                continue;
+            }
+            try (FileChannel in = channel) {
+                // เปิดครั้งแรกเริ่มที่ท้ายไฟล์ (ถ้าไม่ได้ขอให้อ่านตั้งแต่ต้น) ไฟล์ใหม่หลังหมุนอ่านตั้งแต่ต้น
+                if (first && !fromStart) in.position(in.size());
+                first = false;
+                splitter.reset();
+                while (!closed) {
+                    int n = in.read(ByteBuffer.wrap(splitter.buffer(), splitter.offset(), splitter.remaining()));
+                    if (n > 0) {
+                        splitter.filled(n, lines);
+                        continue;
+                    }
+                    if (in.size() < in.position() || replaced(key)) break;
+                    if (sleep()) return;
+                }
+            }
+        }
+    }
+
+    private Object fileKey() {
+        try {
+            Object key = Files.readAttributes(file, BasicFileAttributes.class).fileKey();
+            return key != null ? key : Boolean.TRUE;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    // บางระบบไม่มี fileKey จับได้เฉพาะกรณีไฟล์ถูกตัดให้สั้นลง
+    private boolean replaced(Object key) {
+        Object now = fileKey();
+        return now != null && !now.equals(key);
+    }
+
+    // true = ถูกปิดระหว่างรอ
+    private boolean sleep() {
+        try {
+            Thread.sleep(pollMillis);
+            return closed;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return true;
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,232 @@
+package model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Fixed-point money arithmetic on {@code long}. Amounts are minor units
+ * (satang, cents, yen) with the per-currency number of decimals from
+ * {@link #scale(String)}; rates are scaled by 10^{@value #RATE_SCALE}.
+ *
+ * A conversion is one exact 128-bit product and one 128-by-64-bit division,
+ * rounded once with the given {@link RoundingMode}, so the same inputs give
+ * the same minor units on every machine. Nothing on that path allocates;
+ * only {@link #scaleRate(double)} (used when rates are loaded) and
+ * {@link #format} do.
+ */
+public final class FixedPoint {
+    public static final int RATE_SCALE = 9;
+    public static final long RATE_ONE = 1_000_000_000L;
+    public static final RoundingMode DEFAULT_ROUNDING = RoundingMode.HALF_EVEN;
+
+    private static final long[] POW10 = {
+            1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L, 10_000_000L, 100_000_000L, 1_000_000_000L,
+            10_000_000_000L, 100_000_000_000L, 1_000_000_000_000L, 10_000_000_000_000L, 100_000_000_000_000L,
+            1_000_000_000_000_000L, 10_000_000_000_000_000L, 100_000_000_000_000_000L, 1_000_000_000_000_000_000L
+    };
+
+    private FixedPoint() {}
+
+    /** Number of decimals of {@code currency}'s minor unit (ISO 4217), 2 if it is not listed. */
+    public static int scale(String currency) {
+        switch (currency) {
+            case "JPY": case "KRW": case "VND": case "CLP": case "ISK": case "PYG":
+            case "UGX": case "XAF": case "XOF": case "XPF": case "RWF": case "KMF": case "GNF": case "VUV":
+                return 0;
+            case "BHD": case "IQD": case "JOD": case "KWD": case "LYD": case "OMR": case "TND":
+                return 3;
+            default:
+                return 2;
+        }
+    }
+
+    /** {@code rate} scaled by 10^{@value #RATE_SCALE}, rounded half-even; 0 for NaN or non-positive rates. */
+    public static long scaleRate(double rate) {
+        if (!(rate > 0) || Double.isInfinite(rate)) return 0;
+        // valueOf ใช้ทศนิยมที่สั้นที่สุดของ double จึงได้ 36.5 ไม่ใช่ 36.49999...
+        return BigDecimal.valueOf(rate).movePointRight(RATE_SCALE).setScale(0, RoundingMode.HALF_EVEN).longValueExact();
+    }
+
+    /**
+     * Converts {@code amount} minor units of a currency with {@code fromScale}
+     * decimals and rate {@code fromRate} into minor units of one with
+     * {@code toScale} and {@code toRate}. Both rates are scaled longs in the
+     * same base currency.
+     *
+     * @throws ArithmeticException if the result does not fit in a long, or
+     *         {@code mode} is {@code UNNECESSARY} and rounding was needed
+     */
+    public static long convert(long amount, int fromScale, long fromRate, int toScale, long toRate, RoundingMode mode) {
+        if (fromRate <= 0 || toRate <= 0) throw new IllegalArgumentException("Unknown currency");
+        int shift = toScale - fromScale;
+        return shift >= 0
+                ? mulDiv(amount, fromRate, POW10[shift], toRate, mode)
+                : mulDiv(amount, fromRate, 1, Math.multiplyExact(toRate, POW10[-shift]), mode);
+    }
+
+    /** {@code amount * rate / 10^RATE_SCALE}, e.g. applying a fee or a scaled cross rate. */
+    public static long multiply(long amount, long rate, RoundingMode mode) {
+        return mulDiv(amount, rate, 1, RATE_ONE, mode);
+    }
+
+    /**
+     * {@code a * b * c / d} with the product kept exact in 128 bits and a
+     * single rounding. {@code b}, {@code c} and {@code d} must be positive.
+     */
+    static long mulDiv(long a, long b, long c, long d, RoundingMode mode) {
+        if (a == Long.MIN_VALUE) throw new ArithmeticException("long overflow");
+        boolean negative = a < 0;
+        long m = Math.abs(a);
+
+        // m * b ทั้งคู่ไม่ติดลบจึงใช้ multiplyHigh แบบมีเครื่องหมายได้
+        long lo = m * b;
+        long hi = Math.multiplyHigh(m, b);
+        if (c != 1) {
+            long carry = unsignedMultiplyHigh(lo, c);
+            lo *= c;
+            hi = Math.addExact(Math.multiplyExact(hi, c), carry);
+        }
+        if (Long.compareUnsigned(hi, d) >= 0) throw new ArithmeticException("long overflow");
+
+        long q = divideUnsigned(hi, lo, d);
+        long r = lo - q * d;
+        if (q < 0) throw new ArithmeticException("long overflow");
+        if (r != 0) {
+            int half = Long.compareUnsigned(r, d - r);
+            if (roundUp(mode, negative, q, half)) q = Math.addExact(q, 1);
+        }
+        return negative ? -q : q;
+    }
+
+    // ตัดสินว่าต้องปัดขนาด (ค่าสัมบูรณ์) ขึ้นหรือไม่ เมื่อมีเศษ half เทียบเศษกับครึ่งหนึ่งของตัวหาร
+    private static boolean roundUp(RoundingMode mode, boolean negative, long q, int half) {
+        switch (mode) {
+            case DOWN: return false;
+            case UP: return true;
+            case FLOOR: return negative;
+            case CEILING: return !negative;
+            case HALF_UP: return half >= 0;
+            case HALF_DOWN: return half > 0;
+            case HALF_EVEN: return half > 0 || (half == 0 && (q & 1) != 0);
+            default: throw new ArithmeticException("Rounding necessary");
+        }
+    }
+
+    private static long unsignedMultiplyHigh(long x, long y) {
+        return Math.multiplyHigh(x, y) + ((x >> 63) & y) + ((y >> 63) & x);
+    }
+
+    /**
+     * Unsigned {@code (hi:lo) / d} where {@code hi < d} (Hacker's Delight,
+     * divlu): normalise so the divisor's top bit is set, then produce the
+     * quotient 32 bits at a time.
+     */
+    private static long divideUnsigned(long hi, long lo, long d) {
+        if (hi == 0) return Long.divideUnsigned(lo, d);
+        final long b = 1L << 32;
+        int s = Long.numberOfLeadingZeros(d);
+        d <<= s;
+        long dh = d >>> 32;
+        long dl = d & 0xFFFFFFFFL;
+        long un32 = s == 0 ? hi : (hi << s) | (lo >>> (64 - s));
+        long un10 = lo << s;
+        long un1 = un10 >>> 32;
+        long un0 = un10 & 0xFFFFFFFFL;
+
+        long q1 = Long.divideUnsigned(un32, dh);
+        long rhat = un32 - q1 * dh;
+        while (Long.compareUnsigned(q1, b) >= 0 || Long.compareUnsigned(q1 * dl, b * rhat + un1) > 0) {
+            q1--;
+            rhat += dh;
+            if (Long.compareUnsigned(rhat, b) >= 0) break;
+        }
+        long un21 = un32 * b + un1 - q1 * d;
+
+        long q0 = Long.divideUnsigned(un21, dh);
+        rhat = un21 - q0 * dh;
+        while (Long.compareUnsigned(q0, b) >= 0 || Long.compareUnsigned(q0 * dl, b * rhat + un0) > 0) {
+            q0--;
+            rhat += dh;
+            if (Long.compareUnsigned(rhat, b) >= 0) break;
+        }
+        return q1 * b + q0;
+    }
+
+    // ---------- text and double ----------
+
+    /**
+     * Parses a plain decimal such as {@code "-1234.565"} into minor units
+     * with {@code scale} decimals; extra decimals are rounded with
+     * {@code mode}. No exponent or grouping separators.
+     */
+    public static long parse(CharSequence text, int scale, RoundingMode mode) {
+        int i = 0;
+        int n = text.length();
+        boolean negative = false;
+        if (i < n && (text.charAt(i) == '-' || text.charAt(i) == '+')) negative = text.charAt(i++) == '-';
+
+        long value = 0;
+        int decimals = -1;
+        int digits = 0;
+        int firstDropped = -1;
+        boolean sticky = false;
+        try {
+            for (; i < n; i++) {
+                char ch = text.charAt(i);
+                if (ch == '.' && decimals < 0) {
+                    decimals = 0;
+                    continue;
+                }
+                if (ch < '0' || ch > '9') throw new NumberFormatException("Invalid amount: " + text);
+                digits++;
+                if (decimals >= scale) {
+                    // ตัวเลขที่เกิน scale ใช้ตัดสินการปัดเท่านั้น
+                    if (firstDropped < 0) firstDropped = ch - '0';
+                    else sticky |= ch != '0';
+                    continue;
+                }
+                value = Math.addExact(Math.multiplyExact(value, 10), ch - '0');
+                if (decimals >= 0) decimals++;
+            }
+            if (digits == 0) throw new NumberFormatException("Invalid amount: " + text);
+            value = Math.multiplyExact(value, POW10[scale - Math.max(decimals, 0)]);
+            if (firstDropped > 0 || sticky) {
+                int half = firstDropped != 5 ? Integer.compare(firstDropped, 5) : (sticky ? 1 : 0);
+                if (roundUp(mode, negative, value, half)) value = Math.addExact(value, 1);
+            }
+        } catch (ArithmeticException e) {
+            if (e.getMessage() != null && e.getMessage().startsWith("Rounding")) throw e;
+            throw new NumberFormatException("Amount out of range: " + text);
+        }
+        return negative ? -value : value;
+    }
+
+    /** Appends {@code amount} minor units as a decimal with exactly {@code scale} decimals. */
+    public static StringBuilder appendTo(StringBuilder sb, long amount, int scale) {
+        if (scale == 0) return sb.append(amount);
+        long unit = POW10[scale];
+        if (amount < 0) sb.append('-');
+        long whole = Math.abs(amount / unit);
+        long fraction = Math.abs(amount % unit);
+        sb.append(whole).append('.');
+        for (long p = unit / 10; p > fraction && p > 1; p /= 10) sb.append('0');
+        return sb.append(fraction);
+    }
+
+    public static String format(long amount, int scale) {
+        return appendTo(new StringBuilder(24), amount, scale).toString();
+    }
+
+    /**
+     * Nearest minor units of {@code amount}. Exact for any double that came
+     * from {@link #toDouble} (or was otherwise quantised to {@code scale}
+     * decimals) and is below 2^53 minor units.
+     */
+    public static long toMinor(double amount, int scale) {
+        return Math.round(amount * POW10[scale]);
+    }
+
+    public static double toDouble(long amount, int scale) {
+        return (double) amount / POW10[scale];
+    }
+}
\ No newline at end of file
@@ -0,0 +1,374 @@
+package model;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Secondary index over {@link HistoryRows}: per-block timestamp bounds and
+ * posting lists (ascending row numbers) per source currency, per target
+ * currency and per currency pair.
+ *
+ * Rows are added in order with {@link #add}; the index never reads row data
+ * itself except to check timestamps during a query. While timestamps keep
+ * arriving in non-decreasing order (the normal case) a query is two binary
+ * searches over one posting list. Otherwise blocks whose bounds miss the
+ * range are skipped and the rest are filtered.
+ *
+ * Posting lists cost about 12 bytes per row. An index built with a row limit
+ * (the history's {@code maxRows}, see {@link HistoryWindow}) keeps them only
+ * for the newest {@code keepRows} to {@code keepRows + SEGMENT_ROWS} rows.
+ * Older rows are dropped from the lists a segment at a time; each such
+ * segment keeps only the set of currency pairs it contains (8 bytes per
+ * pair). Queries on old rows skip segments without the pair and blocks
+ * outside the range, then filter the rest row by row. Memory then stays
+ * within the window's budget plus a few hundred bytes per segment.
+ */
+public class HistoryIndex {
+    public static final int BLOCK_SIZE = 4096;
+    public static final int SEGMENT_ROWS = HistoryWindow.SEGMENT_ROWS;
+    public static final int UNBOUNDED = HistoryWindow.UNBOUNDED;
+
+    private static final int MAGIC = 0x49485845; // "EXHI" little-endian
+    private static final int VERSION = 2;
+
+    private final CurrencyIds currencies = new CurrencyIds();
+    private IntList[] byFrom = new IntList[0];
+    private IntList[] byTo = new IntList[0];
+    private final Map<Long, IntList> byPair = new HashMap<>();
+
+    private long[] blockMin = new long[0];
+    private long[] blockMax = new long[0];
+    private int size;
+    private boolean sorted = true;
+    private long lastNanos = Long.MIN_VALUE;
+
+    private final int keepRows;
+    // แถวก่อน floor ไม่มี posting แล้ว เหลือช่วงเวลาของ block กับคู่สกุลเงินที่มีในแต่ละ segment (เรียงแล้ว)
+    private int floor;
+    private long[][] segmentPairs = new long[0][];
+
+    public HistoryIndex() {
+        this(UNBOUNDED);
+    }
+
+    /** An index that keeps posting lists for about the newest {@code keepRows} rows only. */
+    public HistoryIndex(int keepRows) {
+        if (keepRows <= 0) throw new IllegalArgumentException("Row limit must be positive");
+        this.keepRows = keepRows;
+    }
+
+    /** Indexes the next row; row numbers are assigned in call order from 0. */
+    public synchronized void add(String fromCurrency, String toCurrency, long epochNanos) {
+        int row = size;
+        int from = currencies.intern(fromCurrency);
+        int to = currencies.intern(toCurrency);
+        postings(from, true).add(row);
+        postings(to, false).add(row);
+        byPair.computeIfAbsent(pairKey(from, to), k -> new IntList()).add(row);
+
+        int block = row / BLOCK_SIZE;
+        if (block == blockMin.length) {
+            blockMin = Arrays.copyOf(blockMin, Math.max(4, block * 2));
+            blockMax = Arrays.copyOf(blockMax, blockMin.length);
+        }
+        if (row % BLOCK_SIZE == 0) {
+            blockMin[block] = epochNanos;
+            blockMax[block] = epochNanos;
+        } else {
+            blockMin[block] = Math.min(blockMin[block], epochNanos);
+            blockMax[block] = Math.max(blockMax[block], epochNanos);
+        }
+        if (epochNanos < lastNanos) sorted = false;
+        lastNanos = epochNanos;
+        size = row + 1;
+        if (size - floor - SEGMENT_ROWS >= keepRows) trim();
+    }
+
+    // ตัด posting ของ segment เก่าสุดทิ้ง จดไว้แค่ว่ามีคู่สกุลเงินใดบ้าง
+    private void trim() {
+        while (size - floor - SEGMENT_ROWS >= keepRows) {
+            int end = floor + SEGMENT_ROWS;
+            long[] pairs = new long[byPair.size()];
+            int n = 0;
+            for (Map.Entry<Long, IntList> entry : byPair.entrySet()) {
+                int k = entry.getValue().lowerBound(end);
+                if (k == 0) continue;
+                pairs[n++] = entry.getKey();
+                entry.getValue().removeFirst(k);
+            }
+            pairs = Arrays.copyOf(pairs, n);
+            Arrays.sort(pairs);
+            for (IntList list : byFrom) {
+                if (list != null) list.removeFirst(list.lowerBound(end));
+            }
+            for (IntList list : byTo) {
+                if (list != null) list.removeFirst(list.lowerBound(end));
+            }
+            segmentPairs = Arrays.copyOf(segmentPairs, segmentPairs.length + 1);
+            segmentPairs[segmentPairs.length - 1] = pairs;
+            floor = end;
+        }
+    }
+
+    /** Indexes rows {@code size()} .. {@code rows.size() - 1}. */
+    public synchronized void catchUp(HistoryRows rows) {
+        for (int i = size, n = rows.size(); i < n; i++) {
+            add(rows.fromCurrency(i), rows.toCurrency(i), rows.epochNanos(i));
+        }
+    }
+
+    public static HistoryIndex build(HistoryRows rows) {
+        return build(rows, UNBOUNDED);
+    }
+
+    public static HistoryIndex build(HistoryRows rows, int keepRows) {
+        HistoryIndex index = new HistoryIndex(keepRows);
+        index.catchUp(rows);
+        return index;
+    }
+
+    public synchronized int size() { return size; }
+
+    /** True while every row's timestamp is no earlier than the one before it. */
+    public synchronized boolean isSorted() { return sorted; }
+
+    /**
+     * Row numbers, ascending, of records matching the given currencies and
+     * timestamp range. {@code null} currencies match anything; the range is
+     * {@code [startNanos, endNanos)}.
+     */
+    public synchronized int[] query(HistoryRows rows, String fromCurrency, String toCurrency, long startNanos, long endNanos) {
+        if (startNanos >= endNanos) return new int[0];
+        IntList postings = null;
+        IntList result = new IntList();
+        if (fromCurrency != null || toCurrency != null) {
+            int from = fromCurrency == null ? -1 : currencies.id(fromCurrency);
+            int to = toCurrency == null ? -1 : currencies.id(toCurrency);
+            if ((fromCurrency != null && from < 0) || (toCurrency != null && to < 0)) return new int[0];
+            if (from >= 0 && to >= 0) postings = byPair.get(pairKey(from, to));
+            else if (from >= 0) postings = from < byFrom.length ? byFrom[from] : null;
+            else postings = to < byTo.length ? byTo[to] : null;
+            if (postings == null) return new int[0];
+            if (floor > 0) scanTrimmed(rows, fromCurrency, toCurrency, from, to, startNanos, endNanos, result);
+        }
+
+        if (sorted) {
+            if (postings == null) {
+                int lo = lowerBound(rows, 0, size, startNanos);
+                int hi = lowerBound(rows, lo, size, endNanos);
+                int[] all = new int[hi - lo];
+                for (int i = 0; i < all.length; i++) all[i] = lo + i;
+                return all;
+            }
+            int lo = lowerBound(rows, postings, 0, postings.size(), startNanos);
+            int hi = lowerBound(rows, postings, lo, postings.size(), endNanos);
+            if (result.size() == 0) return postings.toArray(lo, hi);
+            for (int k = lo; k < hi; k++) result.add(postings.get(k));
+            return result.toArray();
+        }
+
+        // แถวก่อน floor ถูกกรองใน scanTrimmed แล้ว
+        int blocks = (size + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        for (int b = postings == null ? 0 : floor / BLOCK_SIZE; b < blocks; b++) {
+            if (blockMax[b] < startNanos || blockMin[b] >= endNanos) continue;
+            int first = b * BLOCK_SIZE;
+            int last = Math.min(size, first + BLOCK_SIZE);
+            if (postings == null) {
+                for (int i = first; i < last; i++) {
+                    long t = rows.epochNanos(i);
+                    if (t >= startNanos && t < endNanos) result.add(i);
+                }
+            } else {
+                for (int k = postings.lowerBound(first); k < postings.size() && postings.get(k) < last; k++) {
+                    long t = rows.epochNanos(postings.get(k));
+                    if (t >= startNanos && t < endNanos) result.add(postings.get(k));
+                }
+            }
+        }
+        return result.toArray();
+    }
+
+    // แถวที่ตัด posting แล้ว: ข้าม segment ที่ไม่มีคู่สกุลเงินนี้และ block ที่ช่วงเวลาไม่ทับ ที่เหลือกรองทีละแถว
+    private void scanTrimmed(HistoryRows rows, String fromCurrency, String toCurrency, int from, int to,
+                             long startNanos, long endNanos, IntList result) {
+        for (int s = 0; s < segmentPairs.length; s++) {
+            if (!containsPair(segmentPairs[s], from, to)) continue;
+            for (int b = s * (SEGMENT_ROWS / BLOCK_SIZE), end = b + SEGMENT_ROWS / BLOCK_SIZE; b < end; b++) {
+                if (blockMax[b] < startNanos || blockMin[b] >= endNanos) continue;
+                for (int i = b * BLOCK_SIZE, last = i + BLOCK_SIZE; i < last; i++) {
+                    long t = rows.epochNanos(i);
+                    if (t < startNanos || t >= endNanos) continue;
+                    if (fromCurrency != null && !fromCurrency.equals(rows.fromCurrency(i))) continue;
+                    if (toCurrency != null && !toCurrency.equals(rows.toCurrency(i))) continue;
+                    result.add(i);
+                }
+            }
+        }
+    }
+
+    private static boolean containsPair(long[] pairs, int from, int to) {
+        if (from >= 0 && to >= 0) return Arrays.binarySearch(pairs, pairKey(from, to)) >= 0;
+        for (long pair : pairs) {
+            if (from >= 0 ? (int) (pair >>> 32) == from : (int) pair == to) return true;
+        }
+        return false;
+    }
+
+    // ---------- persistence ----------
+
+    /**
+     * Loads the index saved at {@code file} if it still describes a prefix of
+     * {@code rows}, then indexes whatever was appended since. Falls back to
+     * a full rebuild when the file is missing, unreadable or stale.
+     */
+    public static HistoryIndex loadOrBuild(Path file, HistoryRows rows) {
+        return loadOrBuild(file, rows, UNBOUNDED);
+    }
+
+    /** As {@link #loadOrBuild(Path, HistoryRows)}, keeping posting lists for about {@code keepRows} rows. */
+    public static HistoryIndex loadOrBuild(Path file, HistoryRows rows, int keepRows) {
+        HistoryIndex index = null;
+        if (Files.exists(file)) {
+            try {
+                index = read(file, keepRows);
+            } catch (IOException e) {
+                index = null;
+            }
+        }
+        // เช็คแค่จำนวนแถวกับ timestamp แถวสุดท้าย ถ้าไฟล์ประวัติถูกเขียนใหม่ค่าจะไม่ตรง
+        if (index == null || index.size > rows.size()
+                || (index.size > 0 && rows.epochNanos(index.size - 1) != index.lastNanos)) {
+            return build(rows, keepRows);
+        }
+        index.trim();
+        index.catchUp(rows);
+        // บันทึกไว้ตอนจำกัดแถวน้อยกว่านี้ posting ที่ตัดไปเอาคืนไม่ได้ ต้องสร้างใหม่
+        if (index.floor > floorFor(index.size, keepRows)) return build(rows, keepRows);
+        return index;
+    }
+
+    private static int floorFor(int size, int keepRows) {
+        return size <= keepRows ? 0 : (size - keepRows) / SEGMENT_ROWS * SEGMENT_ROWS;
+    }
+
+    /** Writes the index to {@code file} (via a temporary file, then an atomic rename). */
+    public synchronized void save(Path file) throws IOException {
+        Path tmp = file.toAbsolutePath().resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(size);
+            out.writeBoolean(sorted);
+            out.writeLong(lastNanos);
+            out.writeInt(floor);
+            for (long[] pairs : segmentPairs) {
+                out.writeInt(pairs.length);
+                for (long pair : pairs) out.writeLong(pair);
+            }
+            int blocks = (size + BLOCK_SIZE - 1) / BLOCK_SIZE;
+            for (int b = 0; b < blocks; b++) {
+                out.writeLong(blockMin[b]);
+                out.writeLong(blockMax[b]);
+            }
+            List<String> codes = currencies.codes();
+            out.writeInt(codes.size());
+            for (String code : codes) out.writeUTF(code);
+            for (int id = 0; id < codes.size(); id++) {
+                writeList(out, id < byFrom.length ? byFrom[id] : null);
+                writeList(out, id < byTo.length ? byTo[id] : null);
+            }
+            out.writeInt(byPair.size());
+            for (Map.Entry<Long, IntList> entry : byPair.entrySet()) {
+                out.writeLong(entry.getKey());
+                writeList(out, entry.getValue());
+            }
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static HistoryIndex read(Path file, int keepRows) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) throw new IOException("Not a history index: " + file);
+            HistoryIndex index = new HistoryIndex(keepRows);
+            index.size = in.readInt();
+            index.sorted = in.readBoolean();
+            index.lastNanos = in.readLong();
+            index.floor = in.readInt();
+            if (index.floor % SEGMENT_ROWS != 0 || index.floor > index.size) throw new IOException("Corrupt history index: " + file);
+            index.segmentPairs = new long[index.floor / SEGMENT_ROWS][];
+            for (int s = 0; s < index.segmentPairs.length; s++) {
+                long[] pairs = new long[in.readInt()];
+                for (int i = 0; i < pairs.length; i++) pairs[i] = in.readLong();
+                index.segmentPairs[s] = pairs;
+            }
+            int blocks = (index.size + BLOCK_SIZE - 1) / BLOCK_SIZE;
+            index.blockMin = new long[Math.max(4, blocks)];
+            index.blockMax = new long[index.blockMin.length];
+            for (int b = 0; b < blocks; b++) {
+                index.blockMin[b] = in.readLong();
+                index.blockMax[b] = in.readLong();
+            }
+            int count = in.readInt();
+            index.byFrom = new IntList[count];
+            index.byTo = new IntList[count];
+            for (int id = 0; id < count; id++) index.currencies.intern(in.readUTF());
+            for (int id = 0; id < count; id++) {
+                index.byFrom[id] = readList(in);
+                index.byTo[id] = readList(in);
+            }
+            for (int pairs = in.readInt(); pairs > 0; pairs--) {
+                index.byPair.put(in.readLong(), readList(in));
+            }
+            return index;
+        }
+    }
+
+    private static void writeList(DataOutputStream out, IntList list) throws IOException {
+        int n = list == null ? 0 : list.size();
+        out.writeInt(n);
+        for (int i = 0; i < n; i++) out.writeInt(list.get(i));
+    }
+
+    private static IntList readList(DataInputStream in) throws IOException {
+        int n = in.readInt();
+        IntList list = new IntList(n);
+        for (int i = 0; i < n; i++) list.add(in.readInt());
+        return list;
+    }
+
+    // ---------- helpers ----------
+
+    private IntList postings(int id, boolean from) {
+        IntList[] lists = from ? byFrom : byTo;
+        if (id >= lists.length) {
+            lists = Arrays.copyOf(lists, Math.max(id + 1, lists.length * 2));
+            if (from) byFrom = lists;
+            else byTo = lists;
+        }
+        if (lists[id] == null) lists[id] = new IntList();
+        return lists[id];
+    }
+
+    private static long pairKey(int from, int to) {
+        return ((long) from << 32) | (to & 0xFFFFFFFFL);
+    }
+
+    private static int lowerBound(HistoryRows rows, int lo, int hi, long nanos) {
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (rows.epochNanos(mid) < nanos) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    private static int lowerBound(HistoryRows rows, IntList postings, int lo, int hi, long nanos) {
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (rows.epochNanos(postings.get(mid)) < nanos) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,313 @@
+package model;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Append-only journal for history files. Each record is written as one line
+ * at the end of the active file, so the cost of an append does not depend on
+ * how much history already exists.
+ *
+ * When the active file grows past {@code segmentBytes} it is sealed and renamed
+ * to {@code <file>.000001}, {@code <file>.000002}, ... and a fresh active file
+ * is started. Once more than {@code maxSegments} sealed segments pile up, a
+ * background thread appends them to {@code <file>.archive} and then records
+ * the last merged sequence number and the archive length in
+ * {@code <file>.archive.merged}. Segments at or below that number are skipped
+ * by readers and deleted; archive bytes past that length (left by a crash
+ * mid-append) are cut off before the archive is read or appended to again.
+ *
+ * Read order of all files is given by {@link #segments(Path)}.
+ */
+public class HistoryJournal implements Closeable {
+    public static final long DEFAULT_SEGMENT_BYTES = 8L * 1024 * 1024;
+    public static final int DEFAULT_MAX_SEGMENTS = 8;
+
+    private static final String ARCHIVE_SUFFIX = ".archive";
+    private static final String MERGED_SUFFIX = ".merged";
+    // compaction กับ segments() ในโปรเซสเดียวกันห้ามทำพร้อมกัน ไม่งั้นอาจตัด archive ที่กำลังต่อท้ายอยู่
+    private static final Object ARCHIVE_LOCK = new Object();
+    private static final byte[] NEWLINE = System.lineSeparator().getBytes(StandardCharsets.UTF_8);
+
+    private final Path activeFile;
+    private final long segmentBytes;
+    private final int maxSegments;
+    private final ExecutorService compactor;
+
+    private FileOutputStream out;
+    private long activeSize;
+    private long nextSegment;
+    private boolean compacting;
+
+    public HistoryJournal(Path activeFile) throws IOException {
+        this(activeFile, DEFAULT_SEGMENT_BYTES, DEFAULT_MAX_SEGMENTS);
+    }
+
+    public HistoryJournal(Path activeFile, long segmentBytes, int maxSegments) throws IOException {
+        this.activeFile = activeFile.toAbsolutePath();
+        this.segmentBytes = segmentBytes;
+        this.maxSegments = maxSegments;
+        this.compactor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "history-compactor");
+            t.setDaemon(true);
+            return t;
+        });
+
+        // ห้ามใช้เลขที่ merge ไปแล้วซ้ำ แม้ segment เหล่านั้นจะถูกลบไปแล้ว
+        List<Long> sealed = sealedSegments(this.activeFile);
+        long last = Math.max(sealed.isEmpty() ? 0 : sealed.get(sealed.size() - 1), readMerged(this.activeFile).seq);
+        nextSegment = last + 1;
+        openActive();
+    }
+
+    // เขียนต่อท้ายไฟล์ทีละบรรทัด
+    public synchronized void append(String line) throws IOException {
+        long start = System.nanoTime();
+        byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+        out.write(bytes);
+        out.write(NEWLINE);
+        Metrics.HISTORY_WRITE.recordSince(start);
+        activeSize += bytes.length + NEWLINE.length;
+        if (activeSize >= segmentBytes) rotate();
+    }
+
+    // เขียนหลายบรรทัดในครั้งเดียว แล้ว fsync ถ้าต้องการ
+    public synchronized void appendAll(List<String> lines, boolean sync) throws IOException {
+        ByteArrayOutputStream buf = new ByteArrayOutputStream(lines.size() * 64);
+        for (String line : lines) {
+            buf.write(line.getBytes(StandardCharsets.UTF_8));
+            buf.write(NEWLINE);
+        }
+        long start = System.nanoTime();
+        buf.writeTo(out);
+        if (sync) out.getFD().sync();
+        Metrics.HISTORY_WRITE.recordSince(start);
+        activeSize += buf.size();
+        if (activeSize >= segmentBytes) rotate();
+    }
+
+    public synchronized void sync() throws IOException {
+        out.getFD().sync();
+    }
+
+    /** Discards everything written so far, e.g. once the records have been saved to another file. */
+    public synchronized void reset() throws IOException {
+        out.close();
+        removeSegments(activeFile);
+        out = new FileOutputStream(activeFile.toFile(), false);
+        activeSize = 0;
+    }
+
+    public Path getActiveFile() {
+        return activeFile;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        compactor.shutdown();
+        try {
+            compactor.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        out.close();
+    }
+
+    // ปิด segment ปัจจุบันแล้วเริ่มไฟล์ใหม่
+    private void rotate() throws IOException {
+        out.close();
+        Files.move(activeFile, segmentPath(activeFile, nextSegment++), StandardCopyOption.ATOMIC_MOVE);
+        openActive();
+
+        if (!compacting && sealedSegments(activeFile).size() > maxSegments) {
+            compacting = true;
+            compactor.execute(this::compact);
+        }
+    }
+
+    private void openActive() throws IOException {
+        boolean needsNewline = false;
+        if (Files.exists(activeFile) && Files.size(activeFile) > 0) {
+            try (RandomAccessFile raf = new RandomAccessFile(activeFile.toFile(), "r")) {
+                raf.seek(raf.length() - 1);
+                needsNewline = raf.read() != '\n';
+            }
+        }
+        out = new FileOutputStream(activeFile.toFile(), true);
+        if (needsNewline) out.write(NEWLINE);
+        activeSize = Files.size(activeFile);
+    }
+
+    // ต่อท้าย segment ใหม่เข้า archive (ทำงานบน thread พื้นหลัง) ไม่คัดลอก archive เดิมซ้ำ
+    private void compact() {
+        try {
+            Merged merged;
+            synchronized (ARCHIVE_LOCK) {
+                merged = recover(activeFile);
+                List<Long> pending = new ArrayList<>();
+                for (long seq : sealedSegments(activeFile)) {
+                    if (seq > merged.seq) pending.add(seq);
+                }
+                if (!pending.isEmpty()) {
+                    // compaction ครั้งแรกยังไม่มี marker: บันทึกความยาวเดิมก่อนต่อท้าย พังกลางทางจะได้ตัดทิ้งได้
+                    if (!Files.exists(mergedPath(activeFile))) writeMerged(activeFile, merged);
+                    long length;
+                    try (FileChannel archive = FileChannel.open(archivePath(activeFile), StandardOpenOption.CREATE,
+                            StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                        for (long seq : pending) {
+                            try (FileChannel in = FileChannel.open(segmentPath(activeFile, seq), StandardOpenOption.READ)) {
+                                long size = in.size();
+                                for (long pos = 0; pos < size; ) pos += in.transferTo(pos, size - pos, archive);
+                            }
+                        }
+                        archive.force(true);
+                        length = archive.size();
+                    }
+                    // บันทึก marker หลัง archive ลงดิสก์แล้วเท่านั้น ถ้าพังก่อนหน้านี้ส่วนที่ต่อไว้จะถูกตัดทิ้ง
+                    merged = new Merged(pending.get(pending.size() - 1), length);
+                    writeMerged(activeFile, merged);
+                }
+            }
+            for (long seq : sealedSegments(activeFile)) {
+                if (seq <= merged.seq) Files.deleteIfExists(segmentPath(activeFile, seq));
+            }
+        } catch (IOException e) {
+            System.err.println("Error compacting history: " + e.getMessage());
+        } finally {
+            synchronized (this) {
+                compacting = false;
+            }
+        }
+    }
+
+    /**
+     * All files that make up the history at {@code file}, oldest first.
+     * Sealed segments already merged into the archive are left out, and an
+     * archive with an unfinished append is first cut back to its last
+     * complete length.
+     *
+     * @throws UncheckedIOException if the archive marker cannot be read or
+     *         the archive cannot be repaired; the history cannot then be read
+     *         without loading some records twice or losing some
+     */
+    public static List<Path> segments(Path file) {
+        file = file.toAbsolutePath();
+        Merged merged;
+        synchronized (ARCHIVE_LOCK) {
+            try {
+                merged = recover(file);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        List<Path> result = new ArrayList<>();
+        Path archive = archivePath(file);
+        if (Files.exists(archive)) result.add(archive);
+        for (long seq : sealedSegments(file)) {
+            if (seq > merged.seq) result.add(segmentPath(file, seq));
+        }
+        if (Files.exists(file)) result.add(file);
+        return result;
+    }
+
+    /** Removes archive and sealed segments, leaving only the active file. */
+    public static void removeSegments(Path file) throws IOException {
+        file = file.toAbsolutePath();
+        synchronized (ARCHIVE_LOCK) {
+            Files.deleteIfExists(mergedPath(file));
+            Files.deleteIfExists(archivePath(file));
+        }
+        for (long seq : sealedSegments(file)) Files.deleteIfExists(segmentPath(file, seq));
+    }
+
+    // ตัดส่วนท้าย archive ที่ต่อไว้แต่ยังไม่ได้บันทึก marker (ข้อมูลชุดนั้นยังอยู่ใน segment)
+    private static Merged recover(Path file) throws IOException {
+        Merged merged = readMerged(file);
+        Path archive = archivePath(file);
+        if (Files.exists(archive) && Files.size(archive) > merged.archiveBytes) {
+            try (FileChannel channel = FileChannel.open(archive, StandardOpenOption.WRITE)) {
+                channel.truncate(merged.archiveBytes);
+                channel.force(true);
+            }
+        }
+        return merged;
+    }
+
+    // ไม่มี marker = ยังไม่เคย compact แบบต่อท้าย (archive รุ่นเก่าเขียนทั้งไฟล์ทีเดียว) ถือว่า archive สมบูรณ์
+    // marker อ่านไม่ได้ห้ามเดา: ถือว่าทุก segment ยังไม่ merge ก็โหลดซ้ำ ถือว่า merge แล้วก็หาย
+    private static Merged readMerged(Path file) throws IOException {
+        Path marker = mergedPath(file);
+        if (Files.exists(marker)) {
+            String[] fields = new String(Files.readAllBytes(marker), StandardCharsets.UTF_8).trim().split(" ");
+            try {
+                if (fields.length == 2) {
+                    Merged merged = new Merged(Long.parseLong(fields[0]), Long.parseLong(fields[1]));
+                    if (merged.seq >= 0 && merged.archiveBytes >= 0) return merged;
+                }
+            } catch (NumberFormatException e) {
+                // แจ้งด้านล่าง
+            }
+            throw new IOException("Unreadable history archive marker: " + marker);
+        }
+        Path archive = archivePath(file);
+        return new Merged(0, Files.exists(archive) ? Files.size(archive) : 0);
+    }
+
+    private static void writeMerged(Path file, Merged merged) throws IOException {
+        Path marker = mergedPath(file);
+        Path tmp = marker.resolveSibling(marker.getFileName() + ".tmp");
+        byte[] bytes = (merged.seq + " " + merged.archiveBytes).getBytes(StandardCharsets.UTF_8);
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buf = ByteBuffer.wrap(bytes);
+            while (buf.hasRemaining()) channel.write(buf);
+            channel.force(true);
+        }
+        Files.move(tmp, marker, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static Path mergedPath(Path file) {
+        return file.resolveSibling(file.getFileName() + ARCHIVE_SUFFIX + MERGED_SUFFIX);
+    }
+
+    private static Path archivePath(Path file) {
+        return file.resolveSibling(file.getFileName() + ARCHIVE_SUFFIX);
+    }
+
+    private static Path segmentPath(Path file, long seq) {
+        return file.resolveSibling(String.format("%s.%06d", file.getFileName(), seq));
+    }
+
+    // sequence สุดท้ายที่อยู่ใน archive แล้ว และความยาว archive ตอนนั้น
+    private static final class Merged {
+        final long seq;
+        final long archiveBytes;
+
+        Merged(long seq, long archiveBytes) {
+            this.seq = seq;
+            this.archiveBytes = archiveBytes;
+        }
+    }
+
+    private static List<Long> sealedSegments(Path file) {
+        List<Long> seqs = new ArrayList<>();
+        String prefix = file.getFileName() + ".";
+        try (DirectoryStream<Path> dir = Files.newDirectoryStream(file.toAbsolutePath().getParent(), prefix + "*")) {
+            for (Path p : dir) {
+                String suffix = p.getFileName().toString().substring(prefix.length());
+                if (suffix.length() == 6 && suffix.chars().allMatch(Character::isDigit)) {
+                    seqs.add(Long.parseLong(suffix));
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Error listing history segments: " + e.getMessage());
+        }
+        Collections.sort(seqs);
+        return seqs;
+    }
+}
\ No newline at end of file
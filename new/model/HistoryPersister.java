@@ -0,0 +1,181 @@
+package model;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Write-behind persister for history lines. Callers only enqueue; a background
+ * thread collects up to {@code batchSize} lines (or whatever arrived within
+ * {@code flushIntervalMillis} of the first one) and writes them to the journal
+ * with a single write + fsync.
+ *
+ * Lines are never dropped. If the queue is full (the disk cannot keep up),
+ * {@link #submit} writes the backlog and the new line itself, in order, so the
+ * caller feels the backpressure as one synchronous write; such lines are
+ * counted in {@link Metrics#HISTORY_WRITE_THROUGH}. If that write fails, the
+ * lines stay pending for the background thread to retry and {@code submit}
+ * returns false so the caller can report that history is not reaching disk.
+ *
+ * {@link #close()} stops accepting lines, drains the queue and returns once
+ * everything is on disk. Write errors while closing are retried a few times;
+ * if lines still cannot be written, {@code close()} throws.
+ */
+public class HistoryPersister implements Closeable {
+    public static final int DEFAULT_CAPACITY = 65536;
+    public static final int DEFAULT_BATCH_SIZE = 512;
+    public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 20;
+    private static final int CLOSE_RETRIES = 3;
+
+    private final HistoryJournal journal;
+    private final BlockingQueue<String> queue;
+    private final int batchSize;
+    private final long flushIntervalMillis;
+    private final Thread worker;
+    private volatile boolean running = true;
+    // submit ถือ read lock ระหว่างเช็ก running กับใส่คิว (หรือเขียนตรง) close ถือ write lock ตอนหยุดรับ
+    // บรรทัดที่ผ่านการเช็กแล้วจึงอยู่ในคิวหรือบนดิสก์ก่อน worker เริ่มระบายรอบสุดท้ายเสมอ
+    private final ReadWriteLock closing = new ReentrantReadWriteLock();
+    // worker กับการเขียนตรงจาก submit ผลัดกันถือ ลำดับบรรทัดบนดิสก์จึงตรงกับลำดับที่เข้าคิว
+    private final Object writeLock = new Object();
+    private final List<String> batch;
+    private volatile IOException closeFailure;
+    private volatile int unwritten;
+
+    public HistoryPersister(HistoryJournal journal) {
+        this(journal, DEFAULT_CAPACITY, DEFAULT_BATCH_SIZE, DEFAULT_FLUSH_INTERVAL_MILLIS);
+    }
+
+    public HistoryPersister(HistoryJournal journal, int capacity, int batchSize, long flushIntervalMillis) {
+        if (batchSize <= 0 || capacity <= 0) throw new IllegalArgumentException("Batch size and capacity must be positive");
+        this.journal = journal;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = batchSize;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.batch = new ArrayList<>(batchSize);
+        this.worker = new Thread(this::run, "history-persister");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    // ใส่คิวแล้วคืนทันที ถ้าคิวเต็มเขียนงานค้างพร้อมบรรทัดนี้เองแทนการทิ้ง
+    // คืน false เมื่อเขียนไม่สำเร็จ บรรทัดยังค้างอยู่ให้ worker ลองใหม่
+    public boolean submit(String line) {
+        closing.readLock().lock();
+        try {
+            if (!running) throw new IllegalStateException("Persister is closed");
+            return queue.offer(line) || writeThrough(line);
+        } finally {
+            closing.readLock().unlock();
+        }
+    }
+
+    private boolean writeThrough(String line) {
+        synchronized (writeLock) {
+            queue.drainTo(batch);
+            batch.add(line);
+            Metrics.HISTORY_WRITE_THROUGH.increment();
+            try {
+                write();
+                return true;
+            } catch (IOException e) {
+                Metrics.HISTORY_WRITE_ERRORS.increment();
+                System.err.println("Error writing history backlog: " + e.getMessage());
+                return false;
+            }
+        }
+    }
+
+    /** Writes everything submitted so far before returning. */
+    public void flush() throws IOException {
+        synchronized (writeLock) {
+            queue.drainTo(batch);
+            if (!batch.isEmpty()) write();
+        }
+    }
+
+    public int pending() {
+        return queue.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        closing.writeLock().lock();
+        try {
+            running = false;
+        } finally {
+            closing.writeLock().unlock();
+        }
+        try {
+            worker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        IOException failure = closeFailure;
+        if (failure != null) throw new IOException(unwritten + " history lines were not written", failure);
+        journal.sync();
+    }
+
+    private void run() {
+        int closeRetries = 0;
+        while (true) {
+            try {
+                synchronized (writeLock) {
+                    if (!running && queue.isEmpty() && batch.isEmpty()) return;
+                    // ตอนคิวเต็ม collect ได้ครบ batch ทันที submit ที่รอเขียนตรงจึงรอแค่การเขียนรอบเดียว
+                    if (batch.isEmpty()) collect(batch);
+                    if (!batch.isEmpty()) write();
+                }
+            } catch (InterruptedException e) {
+                // ปิดด้วย close() เท่านั้น
+            } catch (IOException e) {
+                // เก็บ batch ไว้ลองใหม่รอบถัดไป ตอนปิดลองได้จำกัดครั้งแล้วแจ้งให้ close() โยนต่อ
+                Metrics.HISTORY_WRITE_ERRORS.increment();
+                System.err.println("Error writing history batch: " + e.getMessage());
+                if (!running && ++closeRetries > CLOSE_RETRIES) {
+                    synchronized (writeLock) {
+                        unwritten = batch.size() + queue.size();
+                    }
+                    closeFailure = e;
+                    return;
+                }
+                sleepQuietly(flushIntervalMillis);
+            }
+        }
+    }
+
+    // เรียกภายใต้ writeLock
+    private void write() throws IOException {
+        long start = System.nanoTime();
+        journal.appendAll(batch, true);
+        Metrics.HISTORY_FLUSH.recordSince(start);
+        Metrics.HISTORY_FLUSHED.add(batch.size());
+        batch.clear();
+    }
+
+    // รอรายการแรก แล้วรวบรวมต่อจนเต็ม batch หรือหมดเวลา flush interval
+    private void collect(List<String> batch) throws InterruptedException {
+        String first = queue.poll(flushIntervalMillis, TimeUnit.MILLISECONDS);
+        if (first == null) return;
+        batch.add(first);
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+        while (batch.size() < batchSize) {
+            queue.drainTo(batch, batchSize - batch.size());
+            if (batch.size() >= batchSize || !running) break;
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) break;
+            String next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) break;
+            batch.add(next);
+        }
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ignored) {}
+    }
+}
\ No newline at end of file
@@ -1,38 +1,55 @@
-package model;
-
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-
-public class HistoryRecord {
-    public String fromCurrency;
-    private String toCurrency;
-    private double amount;
-    private double result;
-    public LocalDateTime timestamp;
-
-    public HistoryRecord(String fromCurrency, String toCurrency, double amount, double result) {
-        this.fromCurrency = fromCurrency;
-        this.toCurrency = toCurrency;
-        this.amount = amount;
-        this.result = result;
-        this.timestamp = LocalDateTime.now();
-    }
-
-    public String toCSV() {
-        return String.format("%s,%s,%.2f,%.2f,%s", fromCurrency, toCurrency, amount, result, timestamp);
-    }
-
-    public static HistoryRecord fromCSV(String line) {
-        String[] parts = line.split(",");
-        if (parts.length != 5) return null;
-        HistoryRecord hr = new HistoryRecord(parts[0], parts[1], Double.parseDouble(parts[2]), Double.parseDouble(parts[3]));
-        hr.timestamp = LocalDateTime.parse(parts[4]);
-        return hr;
-    }
-
-    @Override
-    public String toString() {
-        DateTimeFormatter fmt = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
-        return String.format("[%s] %.2f %s → %.2f %s", timestamp.format(fmt), amount, fromCurrency, result, toCurrency);
-    }
+package model;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+public class HistoryRecord {
+    public String fromCurrency;
+    private String toCurrency;
+    private double amount;
+    private double result;
+    public LocalDateTime timestamp;
+
+    public HistoryRecord(String fromCurrency, String toCurrency, double amount, double result) {
+        this.fromCurrency = fromCurrency;
+        this.toCurrency = toCurrency;
+        this.amount = amount;
+        this.result = result;
+        this.timestamp = LocalDateTime.now();
+    }
+
+    public HistoryRecord(String fromCurrency, String toCurrency, double amount, double result, LocalDateTime timestamp) {
+        this.fromCurrency = fromCurrency;
+        this.toCurrency = toCurrency;
+        this.amount = amount;
+        this.result = result;
+        this.timestamp = timestamp;
+    }
+
+    public String getFromCurrency() { return fromCurrency; }
+    public String getToCurrency() { return toCurrency; }
+    public double getAmount() { return amount; }
+    public double getResult() { return result; }
+    public LocalDateTime getTimestamp() { return timestamp; }
+
+    public String toCSV() {
+        return CsvCodec.appendHistory(new StringBuilder(64), fromCurrency, toCurrency, amount, result,
+                HistoryStore.toEpochNanos(timestamp)).toString();
+    }
+
+    public static HistoryRecord fromCSV(String line) {
+        byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+        return CsvCodec.parseHistoryRecord(bytes, 0, bytes.length);
+    }
+
+    @Override
+    public String toString() {
+        DateTimeFormatter fmt = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+        int fromScale = FixedPoint.scale(fromCurrency);
+        int toScale = FixedPoint.scale(toCurrency);
+        return String.format("[%s] %s %s → %s %s", timestamp.format(fmt),
+                FixedPoint.format(FixedPoint.toMinor(amount, fromScale), fromScale), fromCurrency,
+                FixedPoint.format(FixedPoint.toMinor(result, toScale), toScale), toCurrency);
+    }
 }
\ No newline at end of file
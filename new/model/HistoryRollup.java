@@ -0,0 +1,251 @@
+package model;
+
+import java.io.*;
+import java.nio.file.*;
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Running totals of {@link HistoryRows} per (from currency, to currency, day):
+ * count, total amount, total result and the largest amount. Each row is
+ * folded in once by {@link #add}. Buckets are kept per currency pair in day
+ * order, so a summary over any range of days costs one step per bucket it
+ * returns (plus one per pair when a currency is left open) instead of a pass
+ * over every record.
+ *
+ * Saved next to the history like {@link HistoryIndex} and validated the same
+ * way: the saved rollup must describe a prefix of the rows (its row count
+ * and last timestamp still match), and only rows appended after it are
+ * added on load. It is rebuilt from scratch only when the history file was
+ * rewritten underneath it.
+ */
+public class HistoryRollup {
+    private static final int MAGIC = 0x55525845; // "EXRU" little-endian
+    private static final int VERSION = 1;
+    private static final long NANOS_PER_DAY = 86_400_000_000_000L;
+
+    private final CurrencyIds currencies = new CurrencyIds();
+    // key = from (16 บิต) | to (16 บิต) แต่ละคู่เรียงตามวัน
+    private final Map<Integer, TreeMap<Long, Bucket>> pairs = new HashMap<>();
+    private int bucketCount;
+    private int size;
+    private long lastNanos = Long.MIN_VALUE;
+
+    /** Folds in the next row; rows must be added in row order. */
+    public synchronized void add(String fromCurrency, String toCurrency, double amount, double result, long epochNanos) {
+        int from = currencies.intern(fromCurrency);
+        int to = currencies.intern(toCurrency);
+        long day = Math.floorDiv(epochNanos, NANOS_PER_DAY);
+        Bucket bucket = bucket(from, to, day);
+        bucket.count++;
+        bucket.totalAmount += amount;
+        bucket.totalResult += result;
+        bucket.maxAmount = Math.max(bucket.maxAmount, amount);
+        lastNanos = epochNanos;
+        size++;
+    }
+
+    /** Adds rows {@code size()} .. {@code rows.size() - 1}. */
+    public synchronized void catchUp(HistoryRows rows) {
+        for (int i = size, n = rows.size(); i < n; i++) {
+            add(rows.fromCurrency(i), rows.toCurrency(i), rows.amount(i), rows.result(i), rows.epochNanos(i));
+        }
+    }
+
+    public static HistoryRollup build(HistoryRows rows) {
+        HistoryRollup rollup = new HistoryRollup();
+        rollup.catchUp(rows);
+        return rollup;
+    }
+
+    /** Number of rows folded in. */
+    public synchronized int size() { return size; }
+
+    // ---------- queries ----------
+
+    /**
+     * Buckets for the given currencies with days in {@code [start, end]},
+     * ordered by day, then from, then to. Any argument may be {@code null}
+     * to leave that side open.
+     */
+    public synchronized List<Bucket> query(String fromCurrency, String toCurrency, LocalDate start, LocalDate end) {
+        int from = fromCurrency == null ? -1 : currencies.id(fromCurrency);
+        int to = toCurrency == null ? -1 : currencies.id(toCurrency);
+        if ((fromCurrency != null && from < 0) || (toCurrency != null && to < 0)) return Collections.emptyList();
+        long first = start == null ? Long.MIN_VALUE : start.toEpochDay();
+        long last = end == null ? Long.MAX_VALUE : end.toEpochDay();
+
+        List<Bucket> result = new ArrayList<>();
+        if (from >= 0 && to >= 0) {
+            // คู่เดียว: ช่วงวันของคู่นั้นเรียงอยู่แล้ว
+            TreeMap<Long, Bucket> days = pairs.get(pairKey(from, to));
+            if (days != null) {
+                for (Bucket bucket : days.subMap(first, true, last, true).values()) result.add(bucket.copy());
+            }
+            return result;
+        }
+        for (TreeMap<Long, Bucket> days : pairs.values()) {
+            Bucket any = days.firstEntry().getValue();
+            if (from >= 0 && any.from != from) continue;
+            if (to >= 0 && any.to != to) continue;
+            for (Bucket bucket : days.subMap(first, true, last, true).values()) result.add(bucket.copy());
+        }
+        result.sort(Comparator.comparingLong((Bucket b) -> b.day).thenComparing(Bucket::getFromCurrency)
+                .thenComparing(Bucket::getToCurrency));
+        return result;
+    }
+
+    /**
+     * One total per currency pair over days {@code [start, end]} (either may
+     * be {@code null}), ordered by from then to; the day of each result is
+     * null.
+     */
+    public synchronized List<Bucket> pairTotals(LocalDate start, LocalDate end) {
+        Map<Long, Bucket> totals = new TreeMap<>();
+        for (Bucket bucket : query(null, null, start, end)) {
+            totals.computeIfAbsent(key(bucket.from, bucket.to, 0), k -> new Bucket(bucket.from, bucket.to, Long.MIN_VALUE))
+                    .merge(bucket);
+        }
+        List<Bucket> result = new ArrayList<>(totals.values());
+        result.sort(Comparator.comparing(Bucket::getFromCurrency).thenComparing(Bucket::getToCurrency));
+        return result;
+    }
+
+    /** Totals over everything matching, as one bucket (day null). */
+    public synchronized Bucket total(String fromCurrency, String toCurrency, LocalDate start, LocalDate end) {
+        Bucket total = new Bucket(-1, -1, Long.MIN_VALUE);
+        for (Bucket bucket : query(fromCurrency, toCurrency, start, end)) total.merge(bucket);
+        return total;
+    }
+
+    public synchronized int bucketCount() { return bucketCount; }
+
+    private Bucket bucket(int from, int to, long day) {
+        TreeMap<Long, Bucket> days = pairs.computeIfAbsent(pairKey(from, to), k -> new TreeMap<>());
+        Bucket bucket = days.get(day);
+        if (bucket == null) {
+            bucket = new Bucket(from, to, day);
+            days.put(day, bucket);
+            bucketCount++;
+        }
+        return bucket;
+    }
+
+    private static int pairKey(int from, int to) {
+        return (from << 16) | (to & 0xFFFF);
+    }
+
+    private static long key(int from, int to, long day) {
+        return ((long) from << 48) | ((long) (to & 0xFFFF) << 32) | (day & 0xFFFFFFFFL);
+    }
+
+    /** Totals of one (from, to, day); copies returned by queries are not updated afterwards. */
+    public final class Bucket {
+        private final int from;
+        private final int to;
+        private final long day;
+        private long count;
+        private double totalAmount;
+        private double totalResult;
+        private double maxAmount = Double.NEGATIVE_INFINITY;
+
+        private Bucket(int from, int to, long day) {
+            this.from = from;
+            this.to = to;
+            this.day = day;
+        }
+
+        public String getFromCurrency() { return from < 0 ? null : currencies.code(from); }
+        public String getToCurrency() { return to < 0 ? null : currencies.code(to); }
+        public LocalDate getDay() { return day == Long.MIN_VALUE ? null : LocalDate.ofEpochDay(day); }
+        public long getCount() { return count; }
+        public double getTotalAmount() { return totalAmount; }
+        public double getTotalResult() { return totalResult; }
+        public double getAverageAmount() { return count == 0 ? 0 : totalAmount / count; }
+        public double getAverageResult() { return count == 0 ? 0 : totalResult / count; }
+        public double getMaxAmount() { return count == 0 ? 0 : maxAmount; }
+
+        private Bucket copy() {
+            Bucket b = new Bucket(from, to, day);
+            b.merge(this);
+            return b;
+        }
+
+        private void merge(Bucket other) {
+            count += other.count;
+            totalAmount += other.totalAmount;
+            totalResult += other.totalResult;
+            maxAmount = Math.max(maxAmount, other.maxAmount);
+        }
+    }
+
+    // ---------- persistence ----------
+
+    /**
+     * Loads the rollup saved at {@code file} if it still describes a prefix
+     * of {@code rows}, then adds whatever was appended since. Rebuilds when
+     * the file is missing, unreadable or stale.
+     */
+    public static HistoryRollup loadOrBuild(Path file, HistoryRows rows) {
+        HistoryRollup rollup = null;
+        if (Files.exists(file)) {
+            try {
+                rollup = read(file);
+            } catch (IOException e) {
+                rollup = null;
+            }
+        }
+        // เหมือน HistoryIndex: ไฟล์ประวัติถูกเขียนใหม่ (compact/แปลงรูปแบบ) จำนวนแถวหรือ timestamp จะไม่ตรง
+        if (rollup == null || rollup.size > rows.size()
+                || (rollup.size > 0 && rows.epochNanos(rollup.size - 1) != rollup.lastNanos)) {
+            return build(rows);
+        }
+        rollup.catchUp(rows);
+        return rollup;
+    }
+
+    /** Writes the rollup to {@code file} (via a temporary file, then an atomic rename). */
+    public synchronized void save(Path file) throws IOException {
+        Path tmp = file.toAbsolutePath().resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(size);
+            out.writeLong(lastNanos);
+            List<String> codes = currencies.codes();
+            out.writeInt(codes.size());
+            for (String code : codes) out.writeUTF(code);
+            out.writeInt(bucketCount);
+            for (TreeMap<Long, Bucket> days : pairs.values()) {
+                for (Bucket bucket : days.values()) {
+                    out.writeShort(bucket.from);
+                    out.writeShort(bucket.to);
+                    out.writeLong(bucket.day);
+                    out.writeLong(bucket.count);
+                    out.writeDouble(bucket.totalAmount);
+                    out.writeDouble(bucket.totalResult);
+                    out.writeDouble(bucket.maxAmount);
+                }
+            }
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static HistoryRollup read(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) throw new IOException("Not a history rollup: " + file);
+            HistoryRollup rollup = new HistoryRollup();
+            rollup.size = in.readInt();
+            rollup.lastNanos = in.readLong();
+            for (int n = in.readInt(); n > 0; n--) rollup.currencies.intern(in.readUTF());
+            for (int n = in.readInt(); n > 0; n--) {
+                Bucket bucket = rollup.bucket(in.readUnsignedShort(), in.readUnsignedShort(), in.readLong());
+                bucket.count = in.readLong();
+                bucket.totalAmount = in.readDouble();
+                bucket.totalResult = in.readDouble();
+                bucket.maxAmount = in.readDouble();
+            }
+            return rollup;
+        }
+    }
+}
\ No newline at end of file
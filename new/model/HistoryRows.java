@@ -0,0 +1,25 @@
+package model;
+
+/**
+ * Read-only, index-based access to history rows, whatever holds them
+ * (in-memory columns, a memory-mapped file, or both).
+ */
+public interface HistoryRows {
+    int size();
+
+    String fromCurrency(int i);
+
+    String toCurrency(int i);
+
+    double amount(int i);
+
+    double result(int i);
+
+    /** Nanoseconds since 1970-01-01T00:00 of the record's local date-time. */
+    long epochNanos(int i);
+
+    default HistoryRecord toRecord(int i) {
+        return new HistoryRecord(fromCurrency(i), toCurrency(i), amount(i), result(i),
+                HistoryStore.toLocalDateTime(epochNanos(i)));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,204 @@
+package model;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+
+/**
+ * Column-oriented storage for exchange history. Each record takes 32 bytes
+ * spread over primitive columns (currency ids, amount, result, timestamp)
+ * instead of a {@link HistoryRecord} object with its Strings and
+ * {@link LocalDateTime}.
+ *
+ * Columns are kept in fixed-size chunks so growing never copies existing
+ * data. Appends are expected from one thread at a time; readers on other
+ * threads see every record below {@link #size()}. Leading chunks can be
+ * dropped with {@link #releaseChunksBefore(int)} once their rows are kept
+ * elsewhere (see {@link HistoryWindow}); row numbers do not change.
+ *
+ * Timestamps are stored as nanoseconds since 1970-01-01T00:00 of the
+ * record's local date-time (no zone is applied, same as the CSV file).
+ */
+public class HistoryStore implements HistoryRows {
+    static final int CHUNK_BITS = 16;
+    static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private final CurrencyIds currencies;
+
+    private int[][] fromIds = new int[0][];
+    private int[][] toIds = new int[0][];
+    private double[][] amounts = new double[0][];
+    private double[][] results = new double[0][];
+    private long[][] times = new long[0][];
+    private volatile int size;
+    private int releasedChunks;
+
+    public HistoryStore() {
+        this(new CurrencyIds());
+    }
+
+    public HistoryStore(CurrencyIds currencies) {
+        this.currencies = currencies;
+    }
+
+    public void append(String fromCurrency, String toCurrency, double amount, double result, LocalDateTime timestamp) {
+        append(currencies.intern(fromCurrency), currencies.intern(toCurrency), amount, result, toEpochNanos(timestamp));
+    }
+
+    public void append(int fromId, int toId, double amount, double result, long epochNanos) {
+        int i = size;
+        int chunk = i >>> CHUNK_BITS;
+        if (chunk == fromIds.length) grow();
+        int off = i & CHUNK_MASK;
+        fromIds[chunk][off] = fromId;
+        toIds[chunk][off] = toId;
+        amounts[chunk][off] = amount;
+        results[chunk][off] = result;
+        times[chunk][off] = epochNanos;
+        size = i + 1;
+    }
+
+    @Override
+    public int size() { return size; }
+
+    public CurrencyIds getCurrencies() { return currencies; }
+
+    public int fromId(int i) { return fromIds[i >>> CHUNK_BITS][i & CHUNK_MASK]; }
+    public int toId(int i) { return toIds[i >>> CHUNK_BITS][i & CHUNK_MASK]; }
+    @Override
+    public double amount(int i) { return amounts[i >>> CHUNK_BITS][i & CHUNK_MASK]; }
+    @Override
+    public double result(int i) { return results[i >>> CHUNK_BITS][i & CHUNK_MASK]; }
+    @Override
+    public long epochNanos(int i) { return times[i >>> CHUNK_BITS][i & CHUNK_MASK]; }
+
+    // chunk ของแถว i หรือ null ถ้าถูกปล่อยไปแล้ว ค่าใน chunk ที่ได้มาแล้วไม่เปลี่ยนอีก (ใช้โดย HistoryWindow)
+    int[] fromIdChunk(int i) { return fromIds[i >>> CHUNK_BITS]; }
+    int[] toIdChunk(int i) { return toIds[i >>> CHUNK_BITS]; }
+    double[] amountChunk(int i) { return amounts[i >>> CHUNK_BITS]; }
+    double[] resultChunk(int i) { return results[i >>> CHUNK_BITS]; }
+    long[] timeChunk(int i) { return times[i >>> CHUNK_BITS]; }
+
+    @Override
+    public String fromCurrency(int i) { return currencies.code(fromId(i)); }
+    @Override
+    public String toCurrency(int i) { return currencies.code(toId(i)); }
+    public LocalDateTime timestamp(int i) { return toLocalDateTime(epochNanos(i)); }
+
+    // สร้าง HistoryRecord ขึ้นมาเฉพาะตอนที่ต้องใช้จริง
+    @Override
+    public HistoryRecord toRecord(int i) {
+        return new HistoryRecord(fromCurrency(i), toCurrency(i), amount(i), result(i), timestamp(i));
+    }
+
+    /** Rows still held in memory: those from {@link #firstRetainedRow()} up to {@link #size()}. */
+    public int retainedRows() { return size - firstRetainedRow(); }
+
+    public synchronized int firstRetainedRow() { return releasedChunks << CHUNK_BITS; }
+
+    /**
+     * Drops the chunks that lie entirely below {@code row}. Reading a row in
+     * a dropped chunk through the getters afterwards fails; readers that may
+     * race with this read through the package-private chunk accessors and
+     * treat a null chunk as released (see {@link HistoryWindow}).
+     */
+    public synchronized void releaseChunksBefore(int row) {
+        int chunks = Math.min(row, size) >>> CHUNK_BITS;
+        for (int c = releasedChunks; c < chunks; c++) {
+            fromIds[c] = null;
+            toIds[c] = null;
+            amounts[c] = null;
+            results[c] = null;
+            times[c] = null;
+        }
+        releasedChunks = Math.max(releasedChunks, chunks);
+    }
+
+    public synchronized void clear() {
+        releasedChunks = 0;
+        fromIds = new int[0][];
+        toIds = new int[0][];
+        amounts = new double[0][];
+        results = new double[0][];
+        times = new long[0][];
+        size = 0;
+    }
+
+    /** A reusable cursor over the store; no object is created per row. */
+    public Cursor cursor() {
+        return new Cursor(0, size);
+    }
+
+    public Cursor cursor(int from, int to) {
+        return new Cursor(from, to);
+    }
+
+    /** List view that creates a {@link HistoryRecord} per {@code get}. */
+    public List<HistoryRecord> asList() {
+        return new AbstractList<HistoryRecord>() {
+            @Override
+            public HistoryRecord get(int index) {
+                if (index < 0 || index >= size) throw new IndexOutOfBoundsException("Index: " + index);
+                return toRecord(index);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    // synchronized กับ releaseChunksBefore ไม่ให้สำเนาตารางชี้ chunk ที่เพิ่งปล่อยไปแล้ว
+    private synchronized void grow() {
+        int n = fromIds.length + 1;
+        fromIds = Arrays.copyOf(fromIds, n);
+        toIds = Arrays.copyOf(toIds, n);
+        amounts = Arrays.copyOf(amounts, n);
+        results = Arrays.copyOf(results, n);
+        times = Arrays.copyOf(times, n);
+        fromIds[n - 1] = new int[CHUNK_SIZE];
+        toIds[n - 1] = new int[CHUNK_SIZE];
+        amounts[n - 1] = new double[CHUNK_SIZE];
+        results[n - 1] = new double[CHUNK_SIZE];
+        times[n - 1] = new long[CHUNK_SIZE];
+    }
+
+    public static long toEpochNanos(LocalDateTime t) {
+        // long นาโนวินาทีครอบคลุมปี 1677-2262 เกินจากนั้นให้ error แทนที่จะได้ค่าผิด
+        return Math.addExact(Math.multiplyExact(t.toEpochSecond(ZoneOffset.UTC), 1_000_000_000L), t.getNano());
+    }
+
+    public static LocalDateTime toLocalDateTime(long epochNanos) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(epochNanos, 1_000_000_000L),
+                (int) Math.floorMod(epochNanos, 1_000_000_000L), ZoneOffset.UTC);
+    }
+
+    /**
+     * Flyweight over a range of rows. Call {@link #next()} to move to the next
+     * row, then read its columns through the getters.
+     */
+    public final class Cursor {
+        private final int end;
+        private int index;
+
+        private Cursor(int start, int end) {
+            this.index = start - 1;
+            this.end = end;
+        }
+
+        public boolean next() {
+            return ++index < end;
+        }
+
+        public int index() { return index; }
+        public int fromId() { return HistoryStore.this.fromId(index); }
+        public int toId() { return HistoryStore.this.toId(index); }
+        public String fromCurrency() { return HistoryStore.this.fromCurrency(index); }
+        public String toCurrency() { return HistoryStore.this.toCurrency(index); }
+        public double amount() { return HistoryStore.this.amount(index); }
+        public double result() { return HistoryStore.this.result(index); }
+        public long epochNanos() { return HistoryStore.this.epochNanos(index); }
+    }
+}
\ No newline at end of file
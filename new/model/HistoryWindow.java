@@ -0,0 +1,372 @@
+package model;
+
+import java.io.*;
+import java.nio.file.*;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * History rows with a bounded number of them on the heap. Records are
+ * appended to a {@link HistoryStore}; once it holds more than
+ * {@code maxRows}, the oldest full chunks ({@link #SEGMENT_ROWS} rows each)
+ * are written to binary segments ({@link BinaryHistoryFile}) in the spill
+ * directory on a background thread and released from the store. Reads by
+ * row number go to whichever holds the row, so callers keep seeing one
+ * sequence of {@link #size()} rows with the same ids as the store.
+ *
+ * The store holds at most {@code maxRows} plus two segments' worth of rows:
+ * one being filled and one being written; if the disk falls further behind,
+ * the next append that would start a spill waits for it. A segment's chunks are released
+ * right after the segment is published; a reader that chose the store for
+ * a row whose chunk has just been released sees the missing chunk and
+ * reads the row from the newer layout instead, however many segments were
+ * published in between.
+ *
+ * Segments are named by their first row and are only a copy of what is in
+ * the history file. When the same history is loaded again, segments that
+ * still match are reused; the rest are rewritten or deleted.
+ */
+public class HistoryWindow implements HistoryRows, Closeable {
+    public static final int UNBOUNDED = Integer.MAX_VALUE;
+    public static final int SEGMENT_ROWS = HistoryStore.CHUNK_SIZE;
+    public static final String MAX_ROWS_PROPERTY = "exchange.history.maxRows";
+    public static final String MAX_MB_PROPERTY = "exchange.history.maxMB";
+
+    private static final String SEGMENT_SUFFIX = ".bin";
+
+    private final HistoryStore store;
+    private final int maxRows;
+    private final boolean temporary;
+    private final ExecutorService spiller;
+    private Path dir;
+    // แถว i < spilledRows อยู่ใน segments[i / SEGMENT_ROWS] ไม่ได้อยู่ใน store แล้ว
+    private volatile Spilled spilled = new Spilled(new BinaryHistoryFile[0], new int[0][]);
+    // แถวที่ส่งให้ spiller แล้ว แก้จาก thread ที่ append เท่านั้น
+    private int scheduled;
+    private Future<?> lastSpill;
+
+    /** An unbounded window: everything stays in a new {@link HistoryStore}. */
+    public HistoryWindow() {
+        this(new HistoryStore(), UNBOUNDED, null);
+    }
+
+    /**
+     * Keeps at most about {@code maxRows} rows of {@code store} in memory and
+     * spills older ones to {@code dir}, or to a temporary directory removed
+     * on exit if {@code dir} is {@code null}.
+     */
+    public HistoryWindow(HistoryStore store, int maxRows, Path dir) {
+        if (maxRows <= 0) throw new IllegalArgumentException("Window size must be positive");
+        this.store = store;
+        this.maxRows = maxRows;
+        this.dir = dir;
+        this.temporary = dir == null;
+        this.spiller = maxRows == UNBOUNDED ? null : Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "history-spill");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /** Spill directory used for the history file {@code historyFile}. */
+    public static Path spillDirFor(String historyFile) {
+        return Paths.get(historyFile + ".spill");
+    }
+
+    /**
+     * Window size from the system property {@code exchange.history.maxRows},
+     * else {@code exchange.history.maxMB} (see {@link #rowsForMegabytes}),
+     * else {@link #UNBOUNDED}.
+     */
+    public static int maxRowsFromProperties() {
+        Integer rows = Integer.getInteger(MAX_ROWS_PROPERTY);
+        if (rows != null) return rows;
+        Long megabytes = Long.getLong(MAX_MB_PROPERTY);
+        return megabytes == null ? UNBOUNDED : rowsForMegabytes(megabytes);
+    }
+
+    /** Rows that fit in {@code megabytes} of heap at 32 bytes per row. */
+    public static int rowsForMegabytes(long megabytes) {
+        return (int) Math.max(1, Math.min(UNBOUNDED, megabytes * (1 << 20) / BinaryHistoryFile.RECORD_BYTES));
+    }
+
+    public void append(String fromCurrency, String toCurrency, double amount, double result, LocalDateTime timestamp) {
+        store.append(fromCurrency, toCurrency, amount, result, timestamp);
+        afterAppend();
+    }
+
+    public void append(int fromId, int toId, double amount, double result, long epochNanos) {
+        store.append(fromId, toId, amount, result, epochNanos);
+        afterAppend();
+    }
+
+    // ครบ maxRows + หนึ่ง segment แล้วค่อยส่ง segment เก่าสุดให้ thread พื้นหลังเขียน
+    private void afterAppend() {
+        if (!isBounded() || store.size() - scheduled < maxRows + SEGMENT_ROWS) return;
+        // ดิสก์ตามไม่ทัน (ยังเขียน segment ก่อนหน้าไม่เสร็จ) ให้รอก่อน หน่วยความจำจะได้ไม่โตเกินขอบเขต
+        if (scheduled - spilledRows() >= SEGMENT_ROWS) awaitSpills();
+        scheduled += SEGMENT_ROWS;
+        int target = scheduled;
+        lastSpill = spiller.submit(() -> spillUpTo(target));
+    }
+
+    /**
+     * Spills on the calling thread instead of in the background; meant to be
+     * called between batches while a file is read into the store, so loading
+     * a large history never holds more than the window either.
+     */
+    public void spillLoaded() {
+        if (!isBounded()) return;
+        while (store.size() - scheduled >= maxRows + SEGMENT_ROWS) scheduled += SEGMENT_ROWS;
+        spillUpTo(scheduled);
+    }
+
+    /** Deletes segments left from an earlier, longer load that this one did not reuse. */
+    public void finishLoad() {
+        if (!isBounded() || dir == null || !Files.isDirectory(dir)) return;
+        int kept = spilled.segments.length;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                Integer first = segmentStart(file);
+                if (first != null && first / SEGMENT_ROWS >= kept) Files.deleteIfExists(file);
+            }
+        } catch (IOException e) {
+            System.err.println("Error removing old history segments: " + e.getMessage());
+        }
+    }
+
+    // เขียน segment ต่อจากอันล่าสุดจนครอบคลุมถึงแถว target ถ้าพลาดรอบหน้าเริ่มจากตรงเดิม
+    private synchronized void spillUpTo(int target) {
+        try {
+            while (spilledRows() + SEGMENT_ROWS <= target) spill(spilledRows());
+        } catch (IOException e) {
+            Metrics.HISTORY_WRITE_ERRORS.increment();
+            System.err.println("Error spilling history: " + e.getMessage());
+        }
+    }
+
+    private void spill(int first) throws IOException {
+        if (dir == null) {
+            dir = Files.createTempDirectory("history-spill");
+            dir.toFile().deleteOnExit();
+        }
+        Files.createDirectories(dir);
+        Path file = dir.resolve(String.format("%010d%s", first, SEGMENT_SUFFIX));
+        if (temporary) file.toFile().deleteOnExit();
+        BinaryHistoryFile segment = reusable(file, first);
+        if (segment == null) {
+            BinaryHistoryFile.write(file, new Range(first));
+            segment = BinaryHistoryFile.open(file);
+        }
+        int[] remap = new int[segment.getCurrencies().size()];
+        for (int id = 0; id < remap.length; id++) remap[id] = store.getCurrencies().intern(segment.getCurrencies().get(id));
+
+        // publish layout ใหม่ก่อนแล้วค่อยปล่อย chunk reader ที่เจอ chunk ว่างจึงหา layout ที่ครอบคลุมแถวนั้นเจอเสมอ
+        Spilled next = spilled.plus(segment, remap);
+        spilled = next;
+        store.releaseChunksBefore(next.rows());
+    }
+
+    // segment จากรอบก่อนใช้ต่อได้ถ้าจำนวนแถวตรงและแถวแรก/แถวสุดท้ายตรงกับที่อ่านมา
+    private BinaryHistoryFile reusable(Path file, int first) {
+        if (!Files.exists(file)) return null;
+        try {
+            BinaryHistoryFile segment = BinaryHistoryFile.open(file);
+            if (segment.size() == SEGMENT_ROWS && sameRow(segment, 0, first)
+                    && sameRow(segment, SEGMENT_ROWS - 1, first + SEGMENT_ROWS - 1)) {
+                return segment;
+            }
+        } catch (IOException e) {
+            // เขียนใหม่ทับ
+        }
+        return null;
+    }
+
+    private boolean sameRow(BinaryHistoryFile segment, int i, int row) {
+        return segment.epochNanos(i) == store.epochNanos(row)
+                && Double.compare(segment.amount(i), store.amount(row)) == 0
+                && Double.compare(segment.result(i), store.result(row)) == 0
+                && segment.fromCurrency(i).equals(store.fromCurrency(row))
+                && segment.toCurrency(i).equals(store.toCurrency(row));
+    }
+
+    private static Integer segmentStart(Path file) {
+        String name = file.getFileName().toString();
+        try {
+            return Integer.valueOf(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /** Waits until every segment handed to the background thread is written. */
+    public void awaitSpills() {
+        Future<?> last = lastSpill;
+        if (last == null) return;
+        try {
+            last.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            System.err.println("Error spilling history: " + e.getCause());
+        }
+    }
+
+    public boolean isBounded() { return maxRows != UNBOUNDED; }
+
+    public int getMaxRows() { return maxRows; }
+
+    public HistoryStore getStore() { return store; }
+
+    /** Shares ids with the store; rows read from segments are mapped onto them. */
+    public CurrencyIds getCurrencies() { return store.getCurrencies(); }
+
+    /** Rows served from segments on disk: {@code [0, spilledRows())}. */
+    public int spilledRows() { return spilled.segments.length * SEGMENT_ROWS; }
+
+    /** Rows currently held in memory. */
+    public int memoryRows() { return store.retainedRows(); }
+
+    @Override
+    public int size() { return store.size(); }
+
+    public int fromId(int i) {
+        Spilled s = spilled;
+        if (i >= s.rows()) {
+            int[] chunk = store.fromIdChunk(i);
+            if (chunk != null) return chunk[i & HistoryStore.CHUNK_MASK];
+            s = covering(i);
+        }
+        int seg = i / SEGMENT_ROWS;
+        return s.remaps[seg][s.segments[seg].fromId(i % SEGMENT_ROWS)];
+    }
+
+    public int toId(int i) {
+        Spilled s = spilled;
+        if (i >= s.rows()) {
+            int[] chunk = store.toIdChunk(i);
+            if (chunk != null) return chunk[i & HistoryStore.CHUNK_MASK];
+            s = covering(i);
+        }
+        int seg = i / SEGMENT_ROWS;
+        return s.remaps[seg][s.segments[seg].toId(i % SEGMENT_ROWS)];
+    }
+
+    @Override
+    public String fromCurrency(int i) { return store.getCurrencies().code(fromId(i)); }
+
+    @Override
+    public String toCurrency(int i) { return store.getCurrencies().code(toId(i)); }
+
+    @Override
+    public double amount(int i) {
+        Spilled s = spilled;
+        if (i >= s.rows()) {
+            double[] chunk = store.amountChunk(i);
+            if (chunk != null) return chunk[i & HistoryStore.CHUNK_MASK];
+            s = covering(i);
+        }
+        return s.segments[i / SEGMENT_ROWS].amount(i % SEGMENT_ROWS);
+    }
+
+    @Override
+    public double result(int i) {
+        Spilled s = spilled;
+        if (i >= s.rows()) {
+            double[] chunk = store.resultChunk(i);
+            if (chunk != null) return chunk[i & HistoryStore.CHUNK_MASK];
+            s = covering(i);
+        }
+        return s.segments[i / SEGMENT_ROWS].result(i % SEGMENT_ROWS);
+    }
+
+    @Override
+    public long epochNanos(int i) {
+        Spilled s = spilled;
+        if (i >= s.rows()) {
+            long[] chunk = store.timeChunk(i);
+            if (chunk != null) return chunk[i & HistoryStore.CHUNK_MASK];
+            s = covering(i);
+        }
+        return s.segments[i / SEGMENT_ROWS].epochNanos(i % SEGMENT_ROWS);
+    }
+
+    // chunk ถูกปล่อยหลัง publish layout ที่ครอบคลุมแถวนั้นแล้วเสมอ จึงรอแค่ให้เห็นค่า volatile ล่าสุด
+    private Spilled covering(int i) {
+        Spilled s;
+        while (i >= (s = spilled).rows()) Thread.onSpinWait();
+        return s;
+    }
+
+    public LocalDateTime timestamp(int i) { return HistoryStore.toLocalDateTime(epochNanos(i)); }
+
+    /**
+     * Stops the background thread once pending segments are written. A
+     * temporary spill directory is deleted; spilled rows already mapped stay
+     * readable where the OS allows it, but the window should not be used after.
+     */
+    @Override
+    public void close() {
+        if (spiller == null) return;
+        spiller.shutdown();
+        try {
+            spiller.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!temporary || dir == null) return;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) Files.deleteIfExists(file);
+            Files.deleteIfExists(dir);
+        } catch (IOException e) {
+            // ยังมี deleteOnExit
+            System.err.println("Error removing history spill directory: " + e.getMessage());
+        }
+    }
+
+    // segment ที่ spill แล้วกับตารางแปลง id ของแต่ละ segment เป็น id ใน store เปลี่ยนทั้งก้อนทีเดียว
+    private static final class Spilled {
+        final BinaryHistoryFile[] segments;
+        final int[][] remaps;
+
+        Spilled(BinaryHistoryFile[] segments, int[][] remaps) {
+            this.segments = segments;
+            this.remaps = remaps;
+        }
+
+        int rows() {
+            return segments.length * SEGMENT_ROWS;
+        }
+
+        Spilled plus(BinaryHistoryFile segment, int[] remap) {
+            BinaryHistoryFile[] s = Arrays.copyOf(segments, segments.length + 1);
+            int[][] r = Arrays.copyOf(remaps, remaps.length + 1);
+            s[s.length - 1] = segment;
+            r[r.length - 1] = remap;
+            return new Spilled(s, r);
+        }
+    }
+
+    // แถว [first, first + SEGMENT_ROWS) ของ store สำหรับเขียนเป็น segment
+    private final class Range implements HistoryRows {
+        private final int first;
+
+        Range(int first) {
+            this.first = first;
+        }
+
+        @Override
+        public int size() { return SEGMENT_ROWS; }
+        @Override
+        public String fromCurrency(int i) { return store.fromCurrency(first + i); }
+        @Override
+        public String toCurrency(int i) { return store.toCurrency(first + i); }
+        @Override
+        public double amount(int i) { return store.amount(first + i); }
+        @Override
+        public double result(int i) { return store.result(first + i); }
+        @Override
+        public long epochNanos(int i) { return store.epochNanos(first + i); }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,72 @@
+package model;
+
+import java.util.Arrays;
+
+/** Growable int array; used for posting lists, row selections and adjacency lists. */
+final class IntList {
+    private int[] values;
+    private int size;
+
+    IntList() {
+        this(8);
+    }
+
+    IntList(int capacity) {
+        values = new int[Math.max(1, capacity)];
+    }
+
+    void add(int value) {
+        if (size == values.length) values = Arrays.copyOf(values, values.length * 2);
+        values[size++] = value;
+    }
+
+    /** Removes the first occurrence of {@code value}, keeping the order of the rest. */
+    boolean remove(int value) {
+        for (int i = 0; i < size; i++) {
+            if (values[i] != value) continue;
+            System.arraycopy(values, i + 1, values, i, size - i - 1);
+            size--;
+            return true;
+        }
+        return false;
+    }
+
+    /** Drops the first {@code n} values; shrinks the array once it is mostly empty. */
+    void removeFirst(int n) {
+        if (n <= 0) return;
+        size -= n;
+        if (size < values.length / 4) {
+            values = Arrays.copyOfRange(values, n, n + Math.max(8, size * 2));
+        } else {
+            System.arraycopy(values, n, values, 0, size);
+        }
+    }
+
+    int get(int i) {
+        return values[i];
+    }
+
+    int size() {
+        return size;
+    }
+
+    int[] toArray() {
+        return Arrays.copyOf(values, size);
+    }
+
+    int[] toArray(int from, int to) {
+        return Arrays.copyOfRange(values, from, to);
+    }
+
+    /** First position whose value is >= {@code value} (values must be ascending). */
+    int lowerBound(int value) {
+        int lo = 0;
+        int hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (values[mid] < value) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+}
\ No newline at end of file
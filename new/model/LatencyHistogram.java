@@ -0,0 +1,115 @@
+package model;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Log-bucketed latency histogram in the style of HdrHistogram: values below
+ * 64 ns get their own bucket, larger values share one of 32 sub-buckets per
+ * power of two, so any reported value is within about 3% of the recorded
+ * one. Recording is a few atomic increments with no locks and no
+ * allocation; reading walks the ~1900 buckets.
+ *
+ * Registered through {@link Metrics}, which also exposes it over JMX.
+ */
+public final class LatencyHistogram implements LatencyHistogramMXBean {
+    private static final int SUB_BITS = 5;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int BUCKETS = (64 - SUB_BITS) * SUB_COUNT;
+
+    private final String name;
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder total = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    LatencyHistogram(String name) {
+        this.name = name;
+    }
+
+    public String getName() { return name; }
+
+    /** Records one operation that took {@code nanos}. */
+    public void record(long nanos) {
+        if (nanos < 0) nanos = 0;
+        counts.incrementAndGet(bucket(nanos));
+        total.add(nanos);
+        long m = max.get();
+        while (nanos > m && !max.compareAndSet(m, nanos)) m = max.get();
+    }
+
+    /** Records the time elapsed since {@code startNanos} (from {@link System#nanoTime()}). */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    @Override
+    public long getCount() {
+        long n = 0;
+        for (int i = 0; i < BUCKETS; i++) n += counts.get(i);
+        return n;
+    }
+
+    @Override
+    public double getMeanMicros() {
+        long n = getCount();
+        return n == 0 ? 0 : total.sum() / 1e3 / n;
+    }
+
+    @Override
+    public double getMaxMicros() { return max.get() / 1e3; }
+
+    @Override
+    public double getP50Micros() { return percentileNanos(0.50) / 1e3; }
+
+    @Override
+    public double getP90Micros() { return percentileNanos(0.90) / 1e3; }
+
+    @Override
+    public double getP99Micros() { return percentileNanos(0.99) / 1e3; }
+
+    @Override
+    public double getP999Micros() { return percentileNanos(0.999) / 1e3; }
+
+    /**
+     * Upper bound of the bucket holding the {@code p}-th fraction of
+     * recorded values (capped at the maximum), or 0 if nothing was recorded.
+     */
+    public long percentileNanos(double p) {
+        long[] snapshot = new long[BUCKETS];
+        long n = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            n += snapshot[i];
+        }
+        if (n == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(p * n));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) return Math.min(upperBound(i), max.get());
+        }
+        return max.get();
+    }
+
+    // การอ่านกับ reset ไม่ atomic ร่วมกัน ค่าที่บันทึกระหว่างนั้นอาจตกไปอยู่ช่วงถัดไป
+    @Override
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) counts.set(i, 0);
+        total.reset();
+        max.set(0);
+    }
+
+    static int bucket(long value) {
+        if (value < 2 * SUB_COUNT) return (int) value;
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+        return shift * SUB_COUNT + (int) (value >>> shift);
+    }
+
+    static long upperBound(int bucket) {
+        if (bucket < 2 * SUB_COUNT) return bucket;
+        int shift = bucket / SUB_COUNT - 1;
+        long sub = bucket % SUB_COUNT + SUB_COUNT;
+        return ((sub + 1) << shift) - 1;
+    }
+}
\ No newline at end of file
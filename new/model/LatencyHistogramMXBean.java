@@ -0,0 +1,20 @@
+package model;
+
+/** JMX view of a {@link LatencyHistogram}; times are in microseconds. */
+public interface LatencyHistogramMXBean {
+    long getCount();
+
+    double getMeanMicros();
+
+    double getMaxMicros();
+
+    double getP50Micros();
+
+    double getP90Micros();
+
+    double getP99Micros();
+
+    double getP999Micros();
+
+    void reset();
+}
\ No newline at end of file
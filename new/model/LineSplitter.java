@@ -0,0 +1,58 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * Splits a byte stream read in arbitrary pieces into lines. Read into
+ * {@link #buffer()} at {@link #offset()}, then call {@link #filled}; complete
+ * lines go to the consumer and a partial last line is kept for the next
+ * read. A line longer than {@code maxLine} is discarded up to its newline
+ * and counted in {@link Metrics#TICKS_DROPPED}.
+ */
+final class LineSplitter {
+    private final int maxLine;
+    private byte[] buf;
+    private int length;
+    private boolean skipping;
+
+    LineSplitter(int maxLine) {
+        this.maxLine = maxLine;
+        this.buf = new byte[Math.max(8192, maxLine * 2)];
+    }
+
+    byte[] buffer() { return buf; }
+
+    int offset() { return length; }
+
+    int remaining() { return buf.length - length; }
+
+    void filled(int n, RateTickSource.LineConsumer lines) {
+        int end = length + n;
+        int start = 0;
+        for (int i = length; i < end; i++) {
+            if (buf[i] != '\n') continue;
+            if (!skipping) {
+                int lineEnd = i > start && buf[i - 1] == '\r' ? i - 1 : i;
+                if (lineEnd > start) lines.line(buf, start, lineEnd);
+            }
+            skipping = false;
+            start = i + 1;
+        }
+        // เก็บบรรทัดที่ยังไม่จบไว้ต้นบัฟเฟอร์ ถ้ายาวเกิน maxLine ทิ้งจนกว่าจะเจอ newline
+        int partial = end - start;
+        if (skipping || partial > maxLine) {
+            if (!skipping) Metrics.TICKS_DROPPED.increment();
+            skipping = true;
+            partial = 0;
+        } else if (start > 0) {
+            System.arraycopy(buf, start, buf, 0, partial);
+        }
+        length = partial;
+        if (remaining() < maxLine) buf = Arrays.copyOf(buf, buf.length * 2);
+    }
+
+    void reset() {
+        length = 0;
+        skipping = false;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,75 @@
+package model;
+
+/**
+ * Largest-Triangle-Three-Buckets downsampling (Steinarsson, 2013): keeps the
+ * first and last point and, from each of {@code threshold - 2} equal-sized
+ * buckets in between, the point forming the largest triangle with the point
+ * kept before it and the average of the next bucket. Peaks and troughs
+ * survive, so a line through the result looks like the full series.
+ */
+public final class Lttb {
+    private Lttb() {}
+
+    /**
+     * Indices, ascending, of at most {@code threshold} points chosen from
+     * {@code [from, to)}. All indices are returned when the range is already
+     * small enough. {@code x} must be non-decreasing.
+     */
+    public static int[] select(long[] x, double[] y, int from, int to, int threshold) {
+        int n = to - from;
+        if (n <= 0) return new int[0];
+        if (threshold >= n || threshold < 3) {
+            int[] all = new int[n];
+            for (int i = 0; i < n; i++) all[i] = from + i;
+            return all;
+        }
+
+        // ใช้ x เทียบกับจุดแรก เพื่อไม่ให้ค่าเวลาแบบ epoch millis เสียความละเอียดตอนคูณ
+        long origin = x[from];
+        int[] sampled = new int[threshold];
+        int count = 0;
+        double every = (double) (n - 2) / (threshold - 2);
+        int a = from;
+        sampled[count++] = a;
+
+        for (int i = 0; i < threshold - 2; i++) {
+            int nextStart = from + (int) ((i + 1) * every) + 1;
+            int nextEnd = Math.min(from + (int) ((i + 2) * every) + 1, to);
+            double avgX = 0;
+            double avgY = 0;
+            int avgCount = 0;
+            for (int j = nextStart; j < nextEnd; j++) {
+                if (Double.isNaN(y[j])) continue;
+                avgX += x[j] - origin;
+                avgY += y[j];
+                avgCount++;
+            }
+            if (avgCount > 0) {
+                avgX /= avgCount;
+                avgY /= avgCount;
+            } else {
+                avgX = x[to - 1] - origin;
+                avgY = y[to - 1];
+            }
+
+            int start = from + (int) (i * every) + 1;
+            int end = from + (int) ((i + 1) * every) + 1;
+            double ax = x[a] - origin;
+            double ay = y[a];
+            double maxArea = -1;
+            int chosen = start;
+            for (int j = start; j < end; j++) {
+                double area = Math.abs((ax - avgX) * (y[j] - ay) - (ax - (x[j] - origin)) * (avgY - ay));
+                // จุด NaN (ไม่มีเรท) ได้พื้นที่ NaN เก็บไว้เป็นช่องว่างของเส้นเฉพาะเมื่อทั้ง bucket ไม่มีค่า
+                if (area > maxArea) {
+                    maxArea = area;
+                    chosen = j;
+                }
+            }
+            sampled[count++] = chosen;
+            a = chosen;
+        }
+        sampled[count++] = to - 1;
+        return sampled;
+    }
+}
\ No newline at end of file
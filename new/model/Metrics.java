@@ -0,0 +1,108 @@
+package model;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Process-wide registry of latency histograms and counters. Each metric is
+ * created on first use and registered as a platform MBean under
+ * {@code exchange:type=Latency,name=...} or {@code exchange:type=Counter,name=...},
+ * so jconsole/VisualVM or any JMX client can read it.
+ *
+ * The constants below are the metrics the application records itself.
+ * {@link #startReporter} prints a text {@link #snapshot()} periodically;
+ * setting the system property {@code exchange.metrics.dumpSeconds} starts it
+ * from {@link #startReporterFromProperty()}.
+ */
+public final class Metrics {
+    public static final String DUMP_PROPERTY = "exchange.metrics.dumpSeconds";
+
+    private static final Map<String, LatencyHistogram> LATENCIES = new ConcurrentSkipListMap<>();
+    private static final Map<String, Counter> COUNTERS = new ConcurrentSkipListMap<>();
+
+    public static final LatencyHistogram CONVERT = latency("convert");
+    public static final LatencyHistogram CONVERT_BATCH = latency("convert.batch");
+    public static final Counter CONVERTED = counter("convert.amounts");
+    public static final LatencyHistogram HISTORY_APPEND = latency("history.append");
+    public static final LatencyHistogram HISTORY_WRITE = latency("history.write");
+    public static final LatencyHistogram HISTORY_FLUSH = latency("history.flush");
+    public static final Counter HISTORY_FLUSHED = counter("history.flushed.records");
+    public static final Counter HISTORY_WRITE_ERRORS = counter("history.write.errors");
+    public static final Counter HISTORY_WRITE_THROUGH = counter("history.writethrough.records");
+    public static final LatencyHistogram RATES_LOAD = latency("rates.load");
+    public static final LatencyHistogram RATES_SAVE = latency("rates.save");
+    public static final Counter TICKS_RECEIVED = counter("ticks.received");
+    public static final Counter TICKS_COALESCED = counter("ticks.coalesced");
+    public static final Counter TICKS_DROPPED = counter("ticks.dropped");
+    public static final Counter TICKS_APPLIED = counter("ticks.applied.rates");
+    public static final LatencyHistogram TICKS_APPLY = latency("ticks.apply");
+    public static final LatencyHistogram EDT_DISPATCH = latency("edt.dispatch");
+    public static final LatencyHistogram EDT_ACTION = latency("edt.action");
+
+    private static ScheduledExecutorService reporter;
+
+    private Metrics() {}
+
+    public static LatencyHistogram latency(String name) {
+        return LATENCIES.computeIfAbsent(name, n -> register(new LatencyHistogram(n), "Latency", n));
+    }
+
+    public static Counter counter(String name) {
+        return COUNTERS.computeIfAbsent(name, n -> register(new Counter(n), "Counter", n));
+    }
+
+    // ลงทะเบียนไม่ได้ (เช่นชื่อซ้ำใน classloader อื่น) ก็ยังบันทึกค่าได้ตามปกติ
+    private static <T> T register(T metric, String type, String name) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName("exchange:type=" + type + ",name=" + ObjectName.quote(name));
+            if (!server.isRegistered(objectName)) server.registerMBean(metric, objectName);
+        } catch (Exception | LinkageError e) {
+            System.err.println("Could not register metric " + name + ": " + e);
+        }
+        return metric;
+    }
+
+    /** One line per metric that has recorded anything. */
+    public static String snapshot() {
+        StringBuilder sb = new StringBuilder(1024);
+        for (LatencyHistogram h : LATENCIES.values()) {
+            long n = h.getCount();
+            if (n == 0) continue;
+            sb.append(String.format("%-24s n=%-10d mean=%.1fus p50=%.1fus p99=%.1fus p99.9=%.1fus max=%.1fus%n",
+                    h.getName(), n, h.getMeanMicros(), h.getP50Micros(), h.getP99Micros(), h.getP999Micros(), h.getMaxMicros()));
+        }
+        for (Counter c : COUNTERS.values()) {
+            long n = c.getCount();
+            if (n == 0) continue;
+            sb.append(String.format("%-24s count=%d%n", c.getName(), n));
+        }
+        return sb.toString();
+    }
+
+    /** Prints {@link #snapshot()} to {@code out} every {@code periodSeconds}; later calls are ignored. */
+    public static synchronized void startReporter(long periodSeconds, PrintStream out) {
+        if (reporter != null || periodSeconds <= 0) return;
+        reporter = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "metrics-reporter");
+            t.setDaemon(true);
+            return t;
+        });
+        reporter.scheduleAtFixedRate(() -> {
+            String text = snapshot();
+            if (!text.isEmpty()) out.print("--- metrics " + java.time.LocalDateTime.now() + " ---" + System.lineSeparator() + text);
+        }, periodSeconds, periodSeconds, TimeUnit.SECONDS);
+    }
+
+    // เปิด reporter เมื่อกำหนด -Dexchange.metrics.dumpSeconds=N
+    public static void startReporterFromProperty() {
+        startReporter(Long.getLong(DUMP_PROPERTY, 0L), System.err);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,41 @@
+package model;
+
+import java.util.*;
+
+/**
+ * What changed between two rate snapshots. {@code changed} holds the new rate
+ * of every added or modified currency; {@code removed} holds currencies that
+ * no longer have a rate.
+ */
+public class RateChangeEvent {
+    private final RatesSnapshot previous;
+    private final RatesSnapshot current;
+    private final Map<String, Double> changed;
+    private final Set<String> removed;
+
+    public RateChangeEvent(RatesSnapshot previous, RatesSnapshot current, Map<String, Double> changed, Set<String> removed) {
+        this.previous = previous;
+        this.current = current;
+        this.changed = Collections.unmodifiableMap(changed);
+        this.removed = Collections.unmodifiableSet(removed);
+    }
+
+    public RatesSnapshot getPrevious() { return previous; }
+    public RatesSnapshot getCurrent() { return current; }
+    public Map<String, Double> getChanged() { return changed; }
+    public Set<String> getRemoved() { return removed; }
+
+    // มีสกุลเงินเพิ่มหรือหายไป (ไม่ใช่แค่เรทเปลี่ยน)
+    public boolean currenciesChanged() {
+        if (!removed.isEmpty()) return true;
+        for (String code : changed.keySet()) {
+            if (previous.getRate(code) == null) return true;
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return "RateChangeEvent[v" + current.getVersion() + " changed=" + changed + " removed=" + removed + "]";
+    }
+}
\ No newline at end of file
@@ -0,0 +1,5 @@
+package model;
+
+public interface RateChangeListener {
+    void ratesChanged(RateChangeEvent event);
+}
\ No newline at end of file
@@ -0,0 +1,135 @@
+package model;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Every rate each currency has had, kept as one {@link RateSeries} per
+ * currency. Changes are appended to a log file ({@code CODE,rate,epochMillis}
+ * per line, an empty rate meaning "removed") so the history survives
+ * restarts and rewrites of the rates file.
+ *
+ * Register it with {@link CurrencyManager#addRateChangeListener} to record
+ * changes as they are applied.
+ */
+public class RateHistory implements RateChangeListener, Closeable {
+    private final Map<String, RateSeries> series = new ConcurrentHashMap<>();
+    private final Path logFile;
+    private OutputStream log;
+
+    /** In-memory only; nothing is written to disk. */
+    public RateHistory() {
+        this.logFile = null;
+    }
+
+    /** Loads {@code logFile} if it exists and appends new changes to it. */
+    public RateHistory(Path logFile) throws IOException {
+        this.logFile = logFile;
+        if (Files.exists(logFile)) load(logFile);
+        log = new BufferedOutputStream(new FileOutputStream(logFile.toFile(), true));
+    }
+
+    /** Log file used next to a rates file. */
+    public static Path logFileFor(String ratesFile) {
+        return Paths.get(ratesFile + ".history");
+    }
+
+    @Override
+    public void ratesChanged(RateChangeEvent event) {
+        long now = event.getCurrent().getLoadedAt().toEpochMilli();
+        for (Map.Entry<String, Double> entry : event.getChanged().entrySet()) record(entry.getKey(), now, entry.getValue());
+        for (String code : event.getRemoved()) record(code, now, Double.NaN);
+        flush();
+    }
+
+    /**
+     * Records that {@code currency} had {@code rate} from {@code epochMillis}
+     * on; NaN means it had no rate. Repeats of the latest value are ignored.
+     */
+    public void record(String currency, long epochMillis, double rate) {
+        RateSeries s = series.computeIfAbsent(currency, c -> new RateSeries());
+        synchronized (s) {
+            if (s.size() > 0 && Double.compare(s.lastValue(), rate) == 0) return;
+            s.append(epochMillis, rate);
+        }
+        if (log == null) return;
+        synchronized (this) {
+            try {
+                log.write((currency + "," + (Double.isNaN(rate) ? "" : Double.toString(rate)) + "," + epochMillis + "\n")
+                        .getBytes(StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                System.err.println("Error writing rate history: " + e.getMessage());
+            }
+        }
+    }
+
+    /** Rate of {@code currency} in effect at {@code at}, or NaN if it had none. */
+    public double rateAt(String currency, Instant at) {
+        RateSeries s = series.get(currency);
+        return s == null ? Double.NaN : s.valueAt(at.toEpochMilli());
+    }
+
+    public RateSeries getSeries(String currency) {
+        return series.get(currency);
+    }
+
+    public Set<String> getCurrencies() {
+        return new TreeSet<>(series.keySet());
+    }
+
+    public synchronized void flush() {
+        if (log == null) return;
+        try {
+            log.flush();
+        } catch (IOException e) {
+            System.err.println("Error writing rate history: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (log != null) log.close();
+        log = null;
+    }
+
+    public Path getLogFile() {
+        return logFile;
+    }
+
+    // ข้ามบรรทัดที่อ่านไม่ได้ (เช่นบรรทัดสุดท้ายที่เขียนไม่ครบ)
+    private void load(Path file) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int c1 = line.indexOf(',');
+                int c2 = line.lastIndexOf(',');
+                if (c1 <= 0 || c2 == c1) continue;
+                try {
+                    String rate = line.substring(c1 + 1, c2);
+                    double value = rate.isEmpty() ? Double.NaN : Double.parseDouble(rate);
+                    long time = Long.parseLong(line.substring(c2 + 1).trim());
+                    RateSeries s = series.computeIfAbsent(line.substring(0, c1), k -> new RateSeries());
+                    if (s.size() == 0 || Double.compare(s.lastValue(), value) != 0) s.append(time, value);
+                } catch (NumberFormatException ignored) {}
+            }
+        }
+    }
+
+    /**
+     * Appends {@code rates} as of {@code at} to the log at {@code logFile}
+     * without loading it; for tools that rewrite the rates file directly.
+     * Unchanged values are dropped again when the log is loaded.
+     */
+    public static void append(Path logFile, Map<String, Double> rates, Instant at) throws IOException {
+        StringBuilder sb = new StringBuilder(rates.size() * 24);
+        for (Map.Entry<String, Double> entry : rates.entrySet()) {
+            sb.append(entry.getKey()).append(',').append(entry.getValue()).append(',').append(at.toEpochMilli()).append('\n');
+        }
+        Files.write(logFile, sb.toString().getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+}
\ No newline at end of file
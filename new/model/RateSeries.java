@@ -0,0 +1,307 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * Compressed time series of one currency's rate, in the style of Facebook's
+ * Gorilla: timestamps (epoch millis) as delta-of-delta, values as the XOR
+ * against the previous value. Most unchanged-interval updates cost a few
+ * bits instead of 16 bytes.
+ *
+ * Points are grouped into blocks of {@link #BLOCK_POINTS}; each block starts
+ * with a raw timestamp and value and remembers its bit offset, so a lookup
+ * is a binary search over block start times followed by decoding at most
+ * one block. A NaN value marks the currency as having no rate from then on.
+ *
+ * One thread appends; any number may read. Readers work on a
+ * {@link Reader} taken at a point in time and never see later appends.
+ */
+public final class RateSeries {
+    public static final int BLOCK_POINTS = 128;
+
+    private long[] words = new long[16];
+    private long bitLength;
+    private int count;
+
+    private long[] blockTime = new long[4];
+    private long[] blockBit = new long[4];
+    private int blocks;
+
+    // สถานะของจุดสุดท้าย ใช้ตอนเข้ารหัสจุดถัดไป
+    private long lastTime;
+    private long lastDelta;
+    private long lastBits;
+    private int lastLeading = Integer.MAX_VALUE;
+    private int lastTrailing;
+
+    /**
+     * Appends a point. Timestamps must not go backwards; an earlier one is
+     * stored as the last timestamp so the series stays ordered.
+     */
+    public synchronized void append(long epochMillis, double value) {
+        long time = count > 0 ? Math.max(epochMillis, lastTime) : epochMillis;
+        long bits = Double.doubleToRawLongBits(value);
+
+        if (count % BLOCK_POINTS == 0) {
+            if (blocks == blockTime.length) {
+                blockTime = Arrays.copyOf(blockTime, blocks * 2);
+                blockBit = Arrays.copyOf(blockBit, blocks * 2);
+            }
+            blockTime[blocks] = time;
+            blockBit[blocks] = bitLength;
+            blocks++;
+            write(time, 64);
+            write(bits, 64);
+            lastDelta = 0;
+            lastLeading = Integer.MAX_VALUE;
+        } else {
+            long delta = time - lastTime;
+            writeDeltaOfDelta(delta - lastDelta);
+            writeXor(bits ^ lastBits);
+            lastDelta = delta;
+        }
+        lastTime = time;
+        lastBits = bits;
+        count++;
+    }
+
+    public synchronized int size() { return count; }
+
+    /** Timestamp of the latest point; only meaningful when {@link #size()} > 0. */
+    public synchronized long lastTime() { return lastTime; }
+
+    /** Value of the latest point, or NaN if the series is empty. */
+    public synchronized double lastValue() {
+        return count == 0 ? Double.NaN : Double.longBitsToDouble(lastBits);
+    }
+
+    /** Approximate heap used by the encoded points, in bytes. */
+    public synchronized long encodedBytes() {
+        return (bitLength + 7) / 8 + blocks * 16L;
+    }
+
+    /** Value in effect at {@code epochMillis}, or NaN if there was none yet. */
+    public double valueAt(long epochMillis) {
+        return reader().valueAt(epochMillis);
+    }
+
+    public synchronized Reader reader() {
+        return new Reader(words, count, blockTime, blockBit, blocks);
+    }
+
+    // ---------- encoding ----------
+
+    private void writeDeltaOfDelta(long dod) {
+        if (dod == 0) {
+            write(0, 1);
+        } else if (fits(dod, 7)) {
+            write(0b10, 2);
+            write(dod, 7);
+        } else if (fits(dod, 9)) {
+            write(0b110, 3);
+            write(dod, 9);
+        } else if (fits(dod, 12)) {
+            write(0b1110, 4);
+            write(dod, 12);
+        } else {
+            write(0b1111, 4);
+            write(dod, 64);
+        }
+    }
+
+    private void writeXor(long xor) {
+        if (xor == 0) {
+            write(0, 1);
+            return;
+        }
+        int leading = Math.min(31, Long.numberOfLeadingZeros(xor));
+        int trailing = Long.numberOfTrailingZeros(xor);
+        if (lastLeading != Integer.MAX_VALUE && leading >= lastLeading && trailing >= lastTrailing) {
+            // บิตที่มีความหมายอยู่ในหน้าต่างเดิม ไม่ต้องเก็บตำแหน่งซ้ำ
+            write(0b10, 2);
+            write(xor >>> lastTrailing, 64 - lastLeading - lastTrailing);
+        } else {
+            int significant = 64 - leading - trailing;
+            write(0b11, 2);
+            write(leading, 5);
+            write(significant - 1, 6);
+            write(xor >>> trailing, significant);
+            lastLeading = leading;
+            lastTrailing = trailing;
+        }
+    }
+
+    private static boolean fits(long value, int bits) {
+        long limit = 1L << (bits - 1);
+        return value >= -limit && value < limit;
+    }
+
+    private void write(long value, int bits) {
+        if (bits < 64) value &= (1L << bits) - 1;
+        int word = (int) (bitLength >>> 6);
+        if (word + 1 >= words.length) words = Arrays.copyOf(words, words.length * 2);
+        int offset = (int) (bitLength & 63);
+        int free = 64 - offset;
+        if (bits <= free) {
+            words[word] |= value << (free - bits);
+        } else {
+            words[word] |= value >>> (bits - free);
+            words[word + 1] |= value << (64 - (bits - free));
+        }
+        bitLength += bits;
+    }
+
+    // ---------- decoding ----------
+
+    /**
+     * Read-only view of the series as it was when taken. Lookups with
+     * non-decreasing timestamps continue decoding from the previous
+     * position, so repricing time-ordered records is close to O(1) each.
+     */
+    public static final class Reader {
+        private final long[] words;
+        private final int count;
+        private final long[] blockTime;
+        private final long[] blockBit;
+        private final int blocks;
+
+        // ตำแหน่งถอดรหัสล่าสุด
+        private int block = -1;
+        private int index;
+        private long bit;
+        private long time;
+        private long delta;
+        private long bits;
+        private int leading;
+        private int trailing;
+
+        private Reader(long[] words, int count, long[] blockTime, long[] blockBit, int blocks) {
+            this.words = words;
+            this.count = count;
+            this.blockTime = blockTime;
+            this.blockBit = blockBit;
+            this.blocks = blocks;
+        }
+
+        public int size() { return count; }
+
+        /** Value in effect at {@code epochMillis}, or NaN if there was none yet. */
+        public double valueAt(long epochMillis) {
+            if (count == 0 || epochMillis < blockTime[0]) return Double.NaN;
+
+            int b = block;
+            if (b < 0 || epochMillis < time || (b + 1 < blocks && epochMillis >= blockTime[b + 1])) {
+                b = findBlock(epochMillis);
+                if (b != block || epochMillis < time) startBlock(b);
+            }
+            int end = Math.min(count, (block + 1) * BLOCK_POINTS);
+            while (index + 1 < end) {
+                long savedBit = bit;
+                long savedTime = time;
+                long savedDelta = delta;
+                long savedBits = bits;
+                int savedLeading = leading;
+                int savedTrailing = trailing;
+                next();
+                if (time > epochMillis) {
+                    bit = savedBit;
+                    time = savedTime;
+                    delta = savedDelta;
+                    bits = savedBits;
+                    leading = savedLeading;
+                    trailing = savedTrailing;
+                    break;
+                }
+                index++;
+            }
+            return Double.longBitsToDouble(bits);
+        }
+
+        /**
+         * Decodes points {@code fromIndex} .. {@code size() - 1} into
+         * {@code times} and {@code values}, starting at position 0, and
+         * returns how many were written.
+         */
+        public int copyTo(int fromIndex, long[] times, double[] values) {
+            if (fromIndex >= count) return 0;
+            startBlock(fromIndex / BLOCK_POINTS);
+            int n = 0;
+            while (true) {
+                if (index >= fromIndex) {
+                    times[n] = time;
+                    values[n++] = Double.longBitsToDouble(bits);
+                }
+                if (index + 1 >= count) return n;
+                if ((index + 1) % BLOCK_POINTS == 0) {
+                    startBlock(block + 1);
+                } else {
+                    next();
+                    index++;
+                }
+            }
+        }
+
+        // block สุดท้ายที่เริ่มก่อนหรือเท่ากับเวลาที่ขอ
+        private int findBlock(long epochMillis) {
+            int lo = 0;
+            int hi = blocks - 1;
+            while (lo < hi) {
+                int mid = (lo + hi + 1) >>> 1;
+                if (blockTime[mid] <= epochMillis) lo = mid;
+                else hi = mid - 1;
+            }
+            return lo;
+        }
+
+        private void startBlock(int b) {
+            block = b;
+            index = b * BLOCK_POINTS;
+            bit = blockBit[b];
+            time = read(64);
+            bits = read(64);
+            delta = 0;
+            leading = -1;
+        }
+
+        private void next() {
+            long dod;
+            if (read(1) == 0) dod = 0;
+            else if (read(1) == 0) dod = signed(read(7), 7);
+            else if (read(1) == 0) dod = signed(read(9), 9);
+            else if (read(1) == 0) dod = signed(read(12), 12);
+            else dod = read(64);
+            delta += dod;
+            time += delta;
+
+            if (read(1) == 0) return;
+            if (read(1) == 0) {
+                bits ^= read(64 - leading - trailing) << trailing;
+            } else {
+                leading = (int) read(5);
+                int significant = (int) read(6) + 1;
+                trailing = 64 - leading - significant;
+                bits ^= read(significant) << trailing;
+            }
+        }
+
+        private long read(int n) {
+            int word = (int) (bit >>> 6);
+            int offset = (int) (bit & 63);
+            int free = 64 - offset;
+            long value;
+            if (n <= free) {
+                value = words[word] << offset >>> (64 - n);
+                if (n == 64) value = words[word];
+            } else {
+                long high = words[word] << offset >>> offset;
+                value = (high << (n - free)) | (words[word + 1] >>> (64 - (n - free)));
+            }
+            bit += n;
+            return value;
+        }
+
+        private static long signed(long value, int bits) {
+            return value << (64 - bits) >> (64 - bits);
+        }
+    }
+}
\ No newline at end of file
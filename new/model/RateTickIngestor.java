@@ -0,0 +1,241 @@
+package model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Applies a stream of rate ticks to a {@link CurrencyManager} in batches.
+ *
+ * Ticks are conflated per currency: each one only overwrites that
+ * currency's latest value, so however fast they arrive the ingestor holds at
+ * most one pending rate per currency. Every {@code intervalMillis} a
+ * background thread takes the latest values and applies them with one
+ * {@link CurrencyManager#applyChanges} call, i.e. one snapshot swap and one
+ * {@link RateChangeEvent}. Converters keep reading the previous snapshot
+ * meanwhile and never wait on ingestion; producers only hold a short lock to
+ * store a value, never wait for an apply.
+ *
+ * Under overload nothing queues up: ticks superseded before they were
+ * applied are counted as coalesced, and if applying a batch takes longer
+ * than the interval the next batch is simply larger. Ticks that cannot be
+ * used (unparsable, rate not positive and finite, or a new currency beyond
+ * {@code maxCurrencies}) are dropped and counted.
+ */
+public class RateTickIngestor implements Closeable {
+    public static final long DEFAULT_INTERVAL_MILLIS = 50;
+    public static final int DEFAULT_MAX_CURRENCIES = 4096;
+    public static final String PORT_PROPERTY = "exchange.ticks.port";
+    public static final String FILE_PROPERTY = "exchange.ticks.file";
+
+    private final CurrencyManager manager;
+    private final long intervalMillis;
+    private final int maxCurrencies;
+    private final CurrencyIds ids = new CurrencyIds();
+    private final List<RateTickSource> sources = new CopyOnWriteArrayList<>();
+    private final Thread applier;
+    private volatile boolean running = true;
+    // ดึงค่ากับ apply ต้องเป็นลำดับเดียวกัน batch เก่าจะได้ไม่ทับ batch ใหม่
+    private final Object applyLock = new Object();
+
+    // เรทล่าสุดต่อสกุลเงิน (index = id) และ bit ว่ามีค่าใหม่ที่ยังไม่ได้ใช้
+    private double[] latest = new double[64];
+    private long[] dirty = new long[1];
+    private int dirtyCount;
+
+    public RateTickIngestor(CurrencyManager manager) {
+        this(manager, DEFAULT_INTERVAL_MILLIS, DEFAULT_MAX_CURRENCIES);
+    }
+
+    public RateTickIngestor(CurrencyManager manager, long intervalMillis, int maxCurrencies) {
+        if (intervalMillis <= 0 || maxCurrencies <= 0) throw new IllegalArgumentException("Interval and currency limit must be positive");
+        this.manager = manager;
+        this.intervalMillis = intervalMillis;
+        this.maxCurrencies = maxCurrencies;
+        this.applier = new Thread(this::run, "rate-ticks");
+        this.applier.setDaemon(true);
+        this.applier.start();
+    }
+
+    /**
+     * Starts an ingestor for {@code manager} with the sources named by the
+     * system properties {@code exchange.ticks.port} (a {@link SocketTickSource})
+     * and {@code exchange.ticks.file} (a {@link FileTickSource} from the
+     * current end), or returns {@code null} if neither is set.
+     */
+    public static RateTickIngestor fromProperties(CurrencyManager manager) throws IOException {
+        Integer port = Integer.getInteger(PORT_PROPERTY);
+        String file = System.getProperty(FILE_PROPERTY);
+        if (port == null && file == null) return null;
+        RateTickIngestor ingestor = new RateTickIngestor(manager);
+        if (port != null) {
+            SocketTickSource socket = new SocketTickSource(port);
+            ingestor.addSource(socket, "socket");
+            System.out.println("Listening for rate ticks on port " + socket.getPort());
+        }
+        if (file != null) ingestor.addSource(new FileTickSource(Paths.get(file), false, FileTickSource.DEFAULT_POLL_MILLIS), "file");
+        return ingestor;
+    }
+
+    /** Reads {@code source} on its own daemon thread until the source or this ingestor is closed. */
+    public void addSource(RateTickSource source, String name) {
+        if (!running) throw new IllegalStateException("Ingestor is closed");
+        sources.add(source);
+        Thread reader = new Thread(() -> {
+            try {
+                source.readLines(this::offer);
+            } catch (IOException e) {
+                if (running) System.err.println("Error reading rate ticks from " + name + ": " + e.getMessage());
+            } finally {
+                sources.remove(source);
+            }
+        }, "rate-ticks-" + name);
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    /** One tick as a {@code CODE,RATE} line in {@code bytes[start, end)}. */
+    public void offer(byte[] bytes, int start, int end) {
+        int c1 = indexOf(bytes, start, end, (byte) ',');
+        if (c1 <= start) {
+            drop();
+            return;
+        }
+        int c2 = indexOf(bytes, c1 + 1, end, (byte) ',');
+        double rate;
+        try {
+            rate = CsvCodec.parseDouble(bytes, c1 + 1, c2 < 0 ? end : c2);
+        } catch (NumberFormatException e) {
+            drop();
+            return;
+        }
+        int id = ids.id(bytes, start, c1);
+        if (id < 0) {
+            String code = new String(bytes, start, c1 - start, StandardCharsets.UTF_8).trim().toUpperCase();
+            if (code.isEmpty()) {
+                drop();
+                return;
+            }
+            id = intern(code);
+        }
+        offer(id, rate);
+    }
+
+    public void offer(String currency, double rate) {
+        offer(intern(currency.toUpperCase()), rate);
+    }
+
+    private int intern(String code) {
+        int id = ids.id(code);
+        if (id >= 0) return id;
+        // จำกัดจำนวนสกุลเงิน feed ที่ส่งรหัสขยะมาจะได้ไม่ทำให้หน่วยความจำโตไม่จำกัด
+        synchronized (this) {
+            if (ids.size() >= maxCurrencies) return -1;
+            return ids.intern(code);
+        }
+    }
+
+    private void offer(int id, double rate) {
+        if (id < 0 || !(rate > 0) || Double.isInfinite(rate)) {
+            drop();
+            return;
+        }
+        Metrics.TICKS_RECEIVED.increment();
+        synchronized (this) {
+            if (id >= latest.length) {
+                latest = Arrays.copyOf(latest, Math.max(id + 1, latest.length * 2));
+                dirty = Arrays.copyOf(dirty, (latest.length + 63) >>> 6);
+            }
+            latest[id] = rate;
+            long bit = 1L << id;
+            if ((dirty[id >>> 6] & bit) != 0) {
+                Metrics.TICKS_COALESCED.increment();
+            } else {
+                dirty[id >>> 6] |= bit;
+                dirtyCount++;
+            }
+        }
+    }
+
+    private static void drop() {
+        Metrics.TICKS_DROPPED.increment();
+    }
+
+    /** Applies whatever is pending now; returns the number of currencies in the batch. */
+    public int applyPending() {
+        synchronized (applyLock) {
+            Map<String, Double> batch;
+            synchronized (this) {
+                if (dirtyCount == 0) return 0;
+                batch = new HashMap<>(dirtyCount * 2);
+                for (int w = 0; w < dirty.length; w++) {
+                    long bits = dirty[w];
+                    while (bits != 0) {
+                        int id = (w << 6) + Long.numberOfTrailingZeros(bits);
+                        batch.put(ids.code(id), latest[id]);
+                        bits &= bits - 1;
+                    }
+                    dirty[w] = 0;
+                }
+                dirtyCount = 0;
+            }
+            long start = System.nanoTime();
+            manager.applyChanges(batch, false);
+            Metrics.TICKS_APPLY.recordSince(start);
+            Metrics.TICKS_APPLIED.add(batch.size());
+            return batch.size();
+        }
+    }
+
+    /** Currencies with a tick not yet applied. */
+    public synchronized int pending() {
+        return dirtyCount;
+    }
+
+    private void run() {
+        long next = System.nanoTime();
+        while (running) {
+            next += intervalMillis * 1_000_000L;
+            long wait = next - System.nanoTime();
+            if (wait > 0) {
+                try {
+                    Thread.sleep(wait / 1_000_000L, (int) (wait % 1_000_000L));
+                } catch (InterruptedException e) {
+                    // ปิดด้วย close() เท่านั้น
+                }
+            } else {
+                // apply รอบก่อนช้ากว่า interval: ไม่ไล่ชดเชยรอบที่พลาด ค่าที่ค้างรวมเป็น batch เดียว
+                next = System.nanoTime();
+            }
+            try {
+                applyPending();
+            } catch (RuntimeException e) {
+                System.err.println("Error applying rate ticks: " + e.getMessage());
+            }
+        }
+    }
+
+    /** Closes every source, stops the applier and applies what is still pending. */
+    @Override
+    public void close() throws IOException {
+        running = false;
+        for (RateTickSource source : sources) source.close();
+        applier.interrupt();
+        try {
+            applier.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        applyPending();
+    }
+
+    private static int indexOf(byte[] bytes, int start, int end, byte b) {
+        for (int i = start; i < end; i++) {
+            if (bytes[i] == b) return i;
+        }
+        return -1;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,20 @@
+package model;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Where rate ticks come from. A source reads on the thread that calls
+ * {@link #readLines} and hands over each line ({@code CODE,RATE}, anything
+ * after a second comma ignored) as raw bytes; parsing and conflation are up
+ * to {@link RateTickIngestor}. {@link #close()} from another thread makes
+ * {@code readLines} return.
+ */
+public interface RateTickSource extends Closeable {
+    void readLines(LineConsumer lines) throws IOException;
+
+    /** Receives one line, without the line terminator, in {@code bytes[start, end)}. */
+    interface LineConsumer {
+        void line(byte[] bytes, int start, int end);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,172 @@
+package model;
+
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * Immutable view of all exchange rates at one point in time, together with
+ * the precomputed cross-rate matrix. A snapshot is never changed after it is
+ * built; edits produce a new snapshot with a higher {@link #getVersion()}.
+ *
+ * Rates are THB per unit, so the cross rate from {@code a} to {@code b} is
+ * {@code rate(a) / rate(b)}. Each rate is also kept as a scaled long for
+ * the exact minor-unit conversions of {@link #convertMinor}.
+ */
+public final class RatesSnapshot {
+    private final long version;
+    private final Instant loadedAt;
+    private final CurrencyIds ids;
+    private final Map<String, Double> rates;
+    private final double[] rateById;
+    private final double[] crossRates;
+    private final long[] scaledRateById;
+    private final int[] scaleById;
+    private final int width;
+
+    private RatesSnapshot(long version, Instant loadedAt, CurrencyIds ids, Map<String, Double> rates,
+                          double[] rateById, double[] crossRates, long[] scaledRateById, int[] scaleById, int width) {
+        this.version = version;
+        this.loadedAt = loadedAt;
+        this.ids = ids;
+        this.rates = rates;
+        this.rateById = rateById;
+        this.crossRates = crossRates;
+        this.scaledRateById = scaledRateById;
+        this.scaleById = scaleById;
+        this.width = width;
+    }
+
+    /** Builds a snapshot from scratch; {@code ids} is shared between versions. */
+    public static RatesSnapshot build(long version, CurrencyIds ids, Map<String, Double> rates) {
+        for (String currency : rates.keySet()) ids.intern(currency);
+
+        int n = ids.size();
+        double[] byId = new double[n];
+        long[] scaled = new long[n];
+        int[] scales = new int[n];
+        for (int i = 0; i < n; i++) {
+            Double rate = rates.get(ids.code(i));
+            byId[i] = rate == null ? Double.NaN : rate;
+            scaled[i] = FixedPoint.scaleRate(byId[i]);
+            scales[i] = FixedPoint.scale(ids.code(i));
+        }
+
+        double[] cross = new double[n * n];
+        for (int from = 0; from < n; from++) {
+            for (int to = 0; to < n; to++) {
+                cross[from * n + to] = byId[from] / byId[to];
+            }
+        }
+        return new RatesSnapshot(version, Instant.now(), ids,
+                Collections.unmodifiableMap(new LinkedHashMap<>(rates)), byId, cross, scaled, scales, n);
+    }
+
+    public static RatesSnapshot empty(CurrencyIds ids) {
+        return build(0, ids, Collections.emptyMap());
+    }
+
+    // สร้าง snapshot ใหม่ที่เปลี่ยนเรทสกุลเดียว ของเดิมไม่ถูกแก้
+    public RatesSnapshot withRate(String currency, double rate) {
+        return withChanges(Collections.singletonMap(currency, rate), Collections.emptySet());
+    }
+
+    /**
+     * Returns a snapshot with {@code changed} applied and {@code removed}
+     * dropped. Only the rows and columns of those currencies are recomputed,
+     * unless a brand-new currency forces the matrix to grow.
+     */
+    public RatesSnapshot withChanges(Map<String, Double> changed, Set<String> removed) {
+        Map<String, Double> next = new LinkedHashMap<>(rates);
+        next.keySet().removeAll(removed);
+        next.putAll(changed);
+
+        for (String currency : changed.keySet()) {
+            if (ids.intern(currency) >= width) return build(version + 1, ids, next);
+        }
+
+        double[] byId = rateById.clone();
+        double[] cross = crossRates.clone();
+        long[] scaled = scaledRateById.clone();
+        for (String currency : removed) {
+            int id = ids.id(currency);
+            if (id >= 0 && id < width) patch(byId, cross, scaled, id, Double.NaN);
+        }
+        for (Map.Entry<String, Double> entry : changed.entrySet()) {
+            patch(byId, cross, scaled, ids.id(entry.getKey()), entry.getValue());
+        }
+        return new RatesSnapshot(version + 1, Instant.now(), ids,
+                Collections.unmodifiableMap(next), byId, cross, scaled, scaleById, width);
+    }
+
+    private void patch(double[] byId, double[] cross, long[] scaled, int id, double rate) {
+        byId[id] = rate;
+        scaled[id] = FixedPoint.scaleRate(rate);
+        for (int other = 0; other < width; other++) {
+            cross[id * width + other] = rate / byId[other];
+            cross[other * width + id] = byId[other] / rate;
+        }
+    }
+
+    public double convert(int fromId, int toId, double amount) {
+        if (fromId < 0 || toId < 0 || fromId >= width || toId >= width) {
+            throw new IllegalArgumentException("Unknown currency");
+        }
+        double rate = crossRates[fromId * width + toId];
+        if (Double.isNaN(rate)) throw new IllegalArgumentException("Unknown currency");
+        return amount * rate;
+    }
+
+    /** Converts {@code in[i]} from {@code fromIds[i]} to {@code toIds[i]} into {@code out[i]}, all with these rates. */
+    public void convertAll(int[] fromIds, int[] toIds, double[] in, double[] out) {
+        BulkConversion.convertAll(this, fromIds, toIds, in, out);
+    }
+
+    /**
+     * Converts {@code amount} minor units of {@code fromId} into minor units
+     * of {@code toId}, rounded once with {@code mode}. Allocation-free.
+     */
+    public long convertMinor(int fromId, int toId, long amount, RoundingMode mode) {
+        if (fromId < 0 || toId < 0 || fromId >= width || toId >= width) {
+            throw new IllegalArgumentException("Unknown currency");
+        }
+        return FixedPoint.convert(amount, scaleById[fromId], scaledRateById[fromId],
+                scaleById[toId], scaledRateById[toId], mode);
+    }
+
+    /** Returns the dense id of {@code currency}, or -1 if it has no rate here. */
+    public int id(String currency) {
+        int id = ids.id(currency);
+        if (id < 0) id = ids.id(currency.toUpperCase());
+        if (id < 0 || id >= width || Double.isNaN(rateById[id])) return -1;
+        return id;
+    }
+
+    /** Same as {@link #id(String)} for the upper-case ASCII code in {@code bytes[start, end)}. */
+    public int id(byte[] bytes, int start, int end) {
+        int id = ids.id(bytes, start, end);
+        if (id < 0 || id >= width || Double.isNaN(rateById[id])) return -1;
+        return id;
+    }
+
+    public String code(int id) { return ids.code(id); }
+
+    public double rate(int id) { return rateById[id]; }
+
+    /** Rate of {@code id} scaled by 10^{@value FixedPoint#RATE_SCALE}, 0 if it has none. */
+    public long scaledRate(int id) { return scaledRateById[id]; }
+
+    /** Decimals of the minor unit of {@code id}. */
+    public int scale(int id) { return scaleById[id]; }
+
+    public Double getRate(String currency) { return rates.get(currency); }
+
+    /** Rates by code, in file order. */
+    public Map<String, Double> getRates() { return rates; }
+
+    public long getVersion() { return version; }
+
+    public Instant getLoadedAt() { return loadedAt; }
+
+    public int width() { return width; }
+}
\ No newline at end of file
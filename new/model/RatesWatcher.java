@@ -0,0 +1,76 @@
+package model;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * Watches one file with a {@link WatchService} and runs a callback after it
+ * changes. Bursts of events (an editor truncating then writing, several saves
+ * in a row) are collapsed: the callback runs once the file has been quiet for
+ * {@code debounceMillis}.
+ */
+public class RatesWatcher implements Closeable {
+    public static final long DEFAULT_DEBOUNCE_MILLIS = 50;
+
+    private final Path file;
+    private final long debounceMillis;
+    private final Runnable onChange;
+    private final WatchService watchService;
+    private final Thread thread;
+    private volatile boolean closed;
+
+    public RatesWatcher(Path file, long debounceMillis, Runnable onChange) throws IOException {
+        this.file = file.toAbsolutePath();
+        this.debounceMillis = debounceMillis;
+        this.onChange = onChange;
+        this.watchService = this.file.getFileSystem().newWatchService();
+        this.file.getParent().register(watchService, ENTRY_CREATE, ENTRY_MODIFY);
+
+        this.thread = new Thread(this::run, "rates-watcher");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        watchService.close();
+    }
+
+    private void run() {
+        try {
+            while (!closed) {
+                if (!concernsFile(watchService.take())) continue;
+
+                // รอจนไฟล์เงียบครบ debounce แล้วค่อยอ่าน
+                WatchKey key;
+                while ((key = watchService.poll(debounceMillis, TimeUnit.MILLISECONDS)) != null) {
+                    concernsFile(key);
+                }
+                try {
+                    onChange.run();
+                } catch (RuntimeException e) {
+                    System.err.println("Error reloading " + file.getFileName() + ": " + e.getMessage());
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // ปิดแล้ว
+        }
+    }
+
+    private boolean concernsFile(WatchKey key) {
+        boolean hit = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW) {
+                hit = true;
+            } else if (file.getFileName().equals(event.context())) {
+                hit = true;
+            }
+        }
+        key.reset();
+        return hit;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,62 @@
+package model;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+
+/**
+ * Listens on a local TCP port and reads tick lines from one connection at a
+ * time; when a feed disconnects the next one is accepted. Binds to the
+ * loopback address only.
+ */
+public class SocketTickSource implements RateTickSource {
+    private static final int MAX_LINE = 256;
+
+    private final ServerSocket server;
+    private volatile Socket connection;
+    private volatile boolean closed;
+
+    /** @param port 0 picks a free port (see {@link #getPort()}) */
+    public SocketTickSource(int port) throws IOException {
+        server = new ServerSocket();
+        server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+    }
+
+    public int getPort() {
+        return server.getLocalPort();
+    }
+
+    @Override
+    public void readLines(LineConsumer lines) throws IOException {
+        LineSplitter splitter = new LineSplitter(MAX_LINE);
+        while (!closed) {
+            try (Socket socket = server.accept()) {
+                connection = socket;
+                if (closed) return;
+                InputStream in = socket.getInputStream();
+                splitter.reset();
+                int n;
+                while ((n = in.read(splitter.buffer(), splitter.offset(), splitter.remaining())) > 0) {
+                    splitter.filled(n, lines);
+                }
+            } catch (SocketException e) {
+                // ปิด source ระหว่างรอหรืออ่าน หรือ feed ตัดการเชื่อมต่อ: รับรายใหม่ต่อ
+                if (closed) return;
+            } finally {
+                connection = null;
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        Socket socket = connection;
+        if (socket != null) socket.close();
+        server.close();
+    }
+}
\ No newline at end of file
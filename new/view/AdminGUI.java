@@ -1,87 +1,149 @@
-package view;
-import javax.swing.*;
-import javax.swing.table.*;
-import java.awt.*;
-import java.io.*;
-
-public class AdminGUI extends JFrame {
-    private JTable table;
-    private DefaultTableModel tableModel;
-    private String filename = "rates.csv";
-
-    public AdminGUI() {
-        setTitle("Admin - Manage Exchange Rates");
-        setSize(400, 400);
-        setLocationRelativeTo(null);
-        setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
-
-        // สร้างตารางพร้อม model
-        tableModel = new DefaultTableModel(new Object[]{"Currency", "Rate"}, 0) {
-            // กำหนดให้แค่คอลัมน์ Rate สามารถแก้ไขได้
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return column == 1;
-            }
-        };
-
-        table = new JTable(tableModel);
-        JScrollPane scrollPane = new JScrollPane(table);
-
-        // โหลดข้อมูลจากไฟล์ rates.csv
-        loadRatesFromFile();
-
-        // ปุ่มบันทึก
-        JButton saveButton = new JButton("Save Rates");
-        saveButton.addActionListener(e -> {
-            if (saveRatesToFile()) {
-                JOptionPane.showMessageDialog(this, "Saved successfully!");
-            } else {
-                JOptionPane.showMessageDialog(this, "Error saving file.");
-            }
-        });
-
-        // จัด layout
-        setLayout(new BorderLayout());
-        add(scrollPane, BorderLayout.CENTER);
-        add(saveButton, BorderLayout.SOUTH);
-    }
-
-    private void loadRatesFromFile() {
-        tableModel.setRowCount(0); // เคลียร์ข้อมูลเก่า
-        try (BufferedReader br = new BufferedReader(new FileReader(filename))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                String[] parts = line.split(",");
-                if (parts.length == 2) {
-                    String currency = parts[0].trim();
-                    String rate = parts[1].trim();
-                    tableModel.addRow(new Object[]{currency, rate});
-                }
-            }
-        } catch (IOException e) {
-            JOptionPane.showMessageDialog(this, "Error loading rates file: " + e.getMessage());
-        }
-    }
-
-    private boolean saveRatesToFile() {
-        try (PrintWriter pw = new PrintWriter(new FileWriter(filename))) {
-            for (int i = 0; i < tableModel.getRowCount(); i++) {
-                String currency = tableModel.getValueAt(i, 0).toString();
-                String rateStr = tableModel.getValueAt(i, 1).toString();
-                // ตรวจสอบว่าค่า rate เป็นตัวเลข
-                double rate = Double.parseDouble(rateStr);
-                pw.println(currency + "," + rate);
-            }
-            return true;
-        } catch (IOException | NumberFormatException e) {
-            return false;
-        }
-    }
-
-    // สำหรับทดสอบเปิด GUI
-    public static void main(String[] args) {
-        SwingUtilities.invokeLater(() -> {
-            new AdminGUI().setVisible(true);
-        });
-    }
+package view;
+import javax.swing.*;
+import javax.swing.table.*;
+import java.awt.*;
+import java.io.*;
+import java.nio.file.*;
+import java.time.Instant;
+import java.util.*;
+import model.Metrics;
+import model.RateHistory;
+
+public class AdminGUI extends JFrame {
+    private JTable table;
+    private DefaultTableModel tableModel;
+    private String filename = "rates.csv";
+    private JButton saveButton;
+
+    public AdminGUI() {
+        setTitle("Admin - Manage Exchange Rates");
+        setSize(400, 400);
+        setLocationRelativeTo(null);
+        setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
+
+        // สร้างตารางพร้อม model
+        tableModel = new DefaultTableModel(new Object[]{"Currency", "Rate"}, 0) {
+            // กำหนดให้แค่คอลัมน์ Rate สามารถแก้ไขได้
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return column == 1;
+            }
+        };
+
+        table = new JTable(tableModel);
+        JScrollPane scrollPane = new JScrollPane(table);
+
+        // ปุ่มบันทึก (ใช้ได้เมื่อโหลดเรทเสร็จ)
+        saveButton = new JButton("Save Rates");
+        saveButton.setEnabled(false);
+        saveButton.addActionListener(e -> {
+            if (saveRatesToFile()) {
+                JOptionPane.showMessageDialog(this, "Saved successfully!");
+            } else {
+                JOptionPane.showMessageDialog(this, "Error saving file.");
+            }
+        });
+
+        // จัด layout
+        setLayout(new BorderLayout());
+        add(scrollPane, BorderLayout.CENTER);
+        add(saveButton, BorderLayout.SOUTH);
+
+        // โหลดข้อมูลจากไฟล์ rates.csv บน thread พื้นหลัง หน้าต่างแสดงได้ทันที
+        loadRatesFromFile();
+    }
+
+    private void loadRatesFromFile() {
+        setTitle("Admin - Manage Exchange Rates (loading...)");
+        saveButton.setEnabled(false);
+        new SwingWorker<Vector<Vector<Object>>, Void>() {
+            @Override
+            protected Vector<Vector<Object>> doInBackground() throws IOException {
+                return readRatesFile();
+            }
+
+            @Override
+            protected void done() {
+                setTitle("Admin - Manage Exchange Rates");
+                try {
+                    // แทนข้อมูลทั้งตารางครั้งเดียว แทนการ addRow ทีละแถว
+                    tableModel.setDataVector(get(), new Vector<>(Arrays.asList("Currency", "Rate")));
+                    saveButton.setEnabled(true);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (java.util.concurrent.ExecutionException e) {
+                    JOptionPane.showMessageDialog(AdminGUI.this, "Error loading rates file: " + e.getCause().getMessage());
+                }
+            }
+        }.execute();
+    }
+
+    private Vector<Vector<Object>> readRatesFile() throws IOException {
+        long start = System.nanoTime();
+        Vector<Vector<Object>> rows = new Vector<>();
+        try (BufferedReader br = new BufferedReader(new FileReader(filename))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                String[] parts = line.split(",");
+                if (parts.length == 2) {
+                    String currency = parts[0].trim();
+                    String rate = parts[1].trim();
+                    rows.add(new Vector<>(Arrays.asList(currency, rate)));
+                }
+            }
+        } finally {
+            Metrics.RATES_LOAD.recordSince(start);
+        }
+        return rows;
+    }
+
+    private boolean saveRatesToFile() {
+        long start = System.nanoTime();
+        try {
+            return writeRatesFile();
+        } finally {
+            Metrics.RATES_SAVE.recordSince(start);
+        }
+    }
+
+    private boolean writeRatesFile() {
+        // เขียนลงไฟล์ชั่วคราวแล้วค่อยแทนที่ ผู้ที่เฝ้าไฟล์อยู่จะไม่เห็นไฟล์ที่เขียนไม่ครบ
+        Path target = Paths.get(filename).toAbsolutePath();
+        Path tmp = target.resolveSibling(target.getFileName() + ".tmp");
+        Map<String, Double> rates = new LinkedHashMap<>();
+        try (PrintWriter pw = new PrintWriter(new FileWriter(tmp.toFile()))) {
+            for (int i = 0; i < tableModel.getRowCount(); i++) {
+                String currency = tableModel.getValueAt(i, 0).toString();
+                String rateStr = tableModel.getValueAt(i, 1).toString();
+                // ตรวจสอบว่าค่า rate เป็นตัวเลข
+                double rate = Double.parseDouble(rateStr);
+                pw.println(currency + "," + rate);
+                rates.put(currency, rate);
+            }
+        } catch (IOException | NumberFormatException e) {
+            tmp.toFile().delete();
+            return false;
+        }
+        try {
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            return false;
+        }
+        // เก็บเรทเดิมไว้ในประวัติเรท ไฟล์ rates.csv มีแค่ค่าล่าสุด
+        try {
+            RateHistory.append(RateHistory.logFileFor(filename), rates, Instant.now());
+        } catch (IOException e) {
+            System.err.println("Error writing rate history: " + e.getMessage());
+        }
+        return true;
+    }
+
+    // สำหรับทดสอบเปิด GUI
+    public static void main(String[] args) {
+        Metrics.startReporterFromProperty();
+        EdtMetrics.install();
+        SwingUtilities.invokeLater(() -> {
+            new AdminGUI().setVisible(true);
+        });
+    }
 }
\ No newline at end of file
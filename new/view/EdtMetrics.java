@@ -0,0 +1,38 @@
+package view;
+
+import model.Metrics;
+
+import java.awt.AWTEvent;
+import java.awt.EventQueue;
+import java.awt.Toolkit;
+import java.awt.event.ActionEvent;
+
+/**
+ * Times every event the EDT dispatches ({@code edt.dispatch}) and, separately,
+ * action events such as button clicks ({@code edt.action}), by pushing a
+ * thin {@link EventQueue} subclass in front of the system queue. A slow
+ * listener shows up as a long tail in these histograms.
+ */
+final class EdtMetrics extends EventQueue {
+    private static boolean installed;
+
+    private EdtMetrics() {}
+
+    static synchronized void install() {
+        if (installed) return;
+        installed = true;
+        Toolkit.getDefaultToolkit().getSystemEventQueue().push(new EdtMetrics());
+    }
+
+    @Override
+    protected void dispatchEvent(AWTEvent event) {
+        long start = System.nanoTime();
+        try {
+            super.dispatchEvent(event);
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            Metrics.EDT_DISPATCH.record(elapsed);
+            if (event instanceof ActionEvent) Metrics.EDT_ACTION.record(elapsed);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,340 @@
+package view;
+
+import model.HistoryRows;
+import model.HistoryStore;
+import model.Lttb;
+import model.RateHistory;
+import model.RateSeries;
+import org.jfree.chart.ChartPanel;
+import org.jfree.chart.JFreeChart;
+import org.jfree.chart.axis.DateAxis;
+import org.jfree.chart.axis.NumberAxis;
+import org.jfree.chart.plot.CombinedDomainXYPlot;
+import org.jfree.chart.plot.XYPlot;
+import org.jfree.chart.renderer.xy.XYLineAndShapeRenderer;
+import org.jfree.data.Range;
+import org.jfree.data.xy.XYSeries;
+import org.jfree.data.xy.XYSeriesCollection;
+
+import javax.swing.*;
+import java.awt.*;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.zone.ZoneRules;
+import java.util.Arrays;
+
+/**
+ * Rate and conversion-volume time series on JFreeChart. The full series are
+ * kept as primitive arrays; the chart only ever holds an LTTB-downsampled
+ * copy of the visible range, about one point per horizontal pixel, so
+ * zooming and panning stay responsive with millions of points.
+ *
+ * Decoding, bucketing and downsampling run on SwingWorkers; the EDT only
+ * swaps finished series in. New records and rate changes are picked up
+ * every second and appended without reloading what was already loaded.
+ */
+public class TimeSeriesChartFrame extends JFrame {
+    private static final long VOLUME_BUCKET_MILLIS = 60_000;
+    private static final int REFRESH_MILLIS = 1000;
+
+    private final RateHistory rateHistory;
+    private final HistoryRows history;
+
+    private final JComboBox<String> currencyBox;
+    private final XYSeries rateSeries = new XYSeries("Rate", false, true);
+    private final XYSeries volumeSeries = new XYSeries("Conversions / min", false, true);
+    private final DateAxis timeAxis = new DateAxis("Time");
+    private final ChartPanel chartPanel;
+    private final JLabel status = new JLabel(" ");
+    private final Timer refreshTimer;
+
+    // ข้อมูลเต็มของทั้งสอง series ใช้บน EDT เท่านั้น
+    private final Points rates = new Points();
+    private final Points volume = new Points();
+    private String currency;
+    private int historySeen;
+    private boolean loading;
+    private int generation;
+    private boolean updatingChart;
+    private SwingWorker<?, ?> resampler;
+
+    public TimeSeriesChartFrame(RateHistory rateHistory, HistoryRows history) {
+        this.rateHistory = rateHistory;
+        this.history = history;
+        setTitle("Rate and Volume History");
+        setSize(900, 600);
+        setLocationRelativeTo(null);
+        setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
+
+        currencyBox = new JComboBox<>(rateHistory.getCurrencies().toArray(new String[0]));
+        currencyBox.addActionListener(e -> reload());
+
+        XYLineAndShapeRenderer rateRenderer = new XYLineAndShapeRenderer(true, false);
+        rateRenderer.setSeriesPaint(0, new Color(70, 130, 180));
+        XYPlot ratePlot = new XYPlot(new XYSeriesCollection(rateSeries), null, new NumberAxis("Rate (THB)"), rateRenderer);
+        ((NumberAxis) ratePlot.getRangeAxis()).setAutoRangeIncludesZero(false);
+
+        XYLineAndShapeRenderer volumeRenderer = new XYLineAndShapeRenderer(true, false);
+        volumeRenderer.setSeriesPaint(0, new Color(220, 120, 40));
+        XYPlot volumePlot = new XYPlot(new XYSeriesCollection(volumeSeries), null, new NumberAxis("Conversions"), volumeRenderer);
+
+        CombinedDomainXYPlot plot = new CombinedDomainXYPlot(timeAxis);
+        plot.add(ratePlot, 2);
+        plot.add(volumePlot, 1);
+        JFreeChart chart = new JFreeChart(null, JFreeChart.DEFAULT_TITLE_FONT, plot, false);
+
+        chartPanel = new ChartPanel(chart);
+        chartPanel.setMouseWheelEnabled(true);
+        // ซูม/เลื่อนแล้วค่อยสุ่มจุดใหม่ตามช่วงที่มองเห็น
+        timeAxis.addChangeListener(e -> {
+            if (!updatingChart) resample();
+        });
+
+        JPanel top = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        top.add(new JLabel("Currency:"));
+        top.add(currencyBox);
+        top.add(status);
+
+        setLayout(new BorderLayout());
+        add(top, BorderLayout.NORTH);
+        add(chartPanel, BorderLayout.CENTER);
+
+        refreshTimer = new Timer(REFRESH_MILLIS, e -> refresh());
+        reload();
+        refreshTimer.start();
+    }
+
+    @Override
+    public void dispose() {
+        refreshTimer.stop();
+        super.dispose();
+    }
+
+    // ---------- loading ----------
+
+    // โหลดใหม่ทั้งหมดเมื่อเปลี่ยนสกุลเงิน
+    private void reload() {
+        currency = (String) currencyBox.getSelectedItem();
+        rates.clear();
+        volume.clear();
+        historySeen = 0;
+        generation++;
+        timeAxis.setAutoRange(true);
+        refresh();
+    }
+
+    // อ่านเฉพาะส่วนที่เพิ่มมาตั้งแต่ครั้งก่อน (ถอดรหัส/นับบน thread พื้นหลัง)
+    private void refresh() {
+        if (loading) return;
+        RateSeries series = currency == null ? null : rateHistory.getSeries(currency);
+        int rateFrom = rates.size;
+        int historyFrom = historySeen;
+        int historyTo = history.size();
+        RateSeries.Reader reader = series == null ? null : series.reader();
+        if ((reader == null || reader.size() == rateFrom) && historyTo == historyFrom) return;
+
+        loading = true;
+        int started = generation;
+        status.setText("Loading...");
+        new SwingWorker<Points[], Void>() {
+            @Override
+            protected Points[] doInBackground() {
+                Points newRates = new Points();
+                if (reader != null && reader.size() > rateFrom) {
+                    newRates.ensure(reader.size() - rateFrom);
+                    newRates.size = reader.copyTo(rateFrom, newRates.x, newRates.y);
+                }
+                return new Points[] {newRates, countConversions(historyFrom, historyTo)};
+            }
+
+            @Override
+            protected void done() {
+                loading = false;
+                Points[] loaded;
+                try {
+                    loaded = get();
+                } catch (Exception e) {
+                    status.setText("Error: " + e.getMessage());
+                    return;
+                }
+                if (started != generation) {
+                    refresh();
+                    return;
+                }
+                historySeen = historyTo;
+                boolean grew = rates.append(loaded[0]) | volume.merge(loaded[1]);
+                status.setText(rates.size + " rate points, " + historyTo + " conversions");
+                if (grew) resample();
+            }
+        }.execute();
+    }
+
+    // นับจำนวนการแปลงต่อนาที ถ้าเวลาไม่เรียงก็ sort ก่อน
+    // เวลาในประวัติเป็นเวลาท้องถิ่น แปลงเป็น epoch millis จริงให้ตรงกับแกน DateAxis
+    private Points countConversions(int from, int to) {
+        ZoneRules zone = ZoneId.systemDefault().getRules();
+        long[] minutes = new long[to - from];
+        boolean sorted = true;
+        long lastLocal = Long.MIN_VALUE;
+        long lastMinute = 0;
+        for (int i = from; i < to; i++) {
+            long local = Math.floorDiv(Math.floorDiv(history.epochNanos(i), 1_000_000L), VOLUME_BUCKET_MILLIS) * VOLUME_BUCKET_MILLIS;
+            if (local != lastLocal) {
+                LocalDateTime t = HistoryStore.toLocalDateTime(local * 1_000_000L);
+                lastMinute = local - zone.getOffset(t).getTotalSeconds() * 1000L;
+                lastLocal = local;
+            }
+            long m = lastMinute;
+            minutes[i - from] = m;
+            if (i > from && m < minutes[i - from - 1]) sorted = false;
+        }
+        if (!sorted) Arrays.sort(minutes);
+
+        Points buckets = new Points();
+        for (long m : minutes) {
+            if (buckets.size > 0 && buckets.x[buckets.size - 1] == m) buckets.y[buckets.size - 1]++;
+            else buckets.add(m, 1);
+        }
+        return buckets;
+    }
+
+    // ---------- downsampling ----------
+
+    // สุ่มจุดของช่วงที่มองเห็นให้เหลือประมาณหนึ่งจุดต่อพิกเซล
+    private void resample() {
+        if (resampler != null) resampler.cancel(false);
+        boolean auto = timeAxis.isAutoRange();
+        Range visible = timeAxis.getRange();
+        long lo = auto ? Long.MIN_VALUE : (long) visible.getLowerBound();
+        long hi = auto ? Long.MAX_VALUE : (long) Math.ceil(visible.getUpperBound());
+        int threshold = Math.max(100, chartPanel.getWidth());
+        Points rateView = rates.copy();
+        Points volumeView = volume.copy();
+
+        SwingWorker<Points[], Void> worker = new SwingWorker<Points[], Void>() {
+            @Override
+            protected Points[] doInBackground() {
+                return new Points[] {rateView.downsample(lo, hi, threshold, true), volumeView.downsample(lo, hi, threshold, false)};
+            }
+
+            @Override
+            protected void done() {
+                if (isCancelled() || resampler != this) return;
+                resampler = null;
+                try {
+                    Points[] result = get();
+                    updatingChart = true;
+                    try {
+                        result[0].fill(rateSeries);
+                        result[1].fill(volumeSeries);
+                    } finally {
+                        updatingChart = false;
+                    }
+                } catch (Exception e) {
+                    status.setText("Error: " + e.getMessage());
+                }
+            }
+        };
+        resampler = worker;
+        worker.execute();
+    }
+
+    /** Growable (time, value) arrays sorted by time. */
+    private static final class Points {
+        long[] x = new long[16];
+        double[] y = new double[16];
+        int size;
+
+        void ensure(int capacity) {
+            if (capacity > x.length) {
+                x = Arrays.copyOf(x, Math.max(capacity, x.length * 2));
+                y = Arrays.copyOf(y, x.length);
+            }
+        }
+
+        void add(long time, double value) {
+            ensure(size + 1);
+            x[size] = time;
+            y[size++] = value;
+        }
+
+        // array ใหม่ ไม่เขียนทับของเดิมที่ worker อาจยังอ่านอยู่
+        void clear() {
+            x = new long[16];
+            y = new double[16];
+            size = 0;
+        }
+
+        // สำเนาแบบตื้น: worker อ่านเฉพาะ [0, size) ซึ่ง EDT ไม่แก้อีก (append เขียนต่อท้ายหรือสร้าง array ใหม่)
+        Points copy() {
+            Points p = new Points();
+            p.x = x;
+            p.y = y;
+            p.size = size;
+            return p;
+        }
+
+        boolean append(Points more) {
+            for (int i = 0; i < more.size; i++) add(more.x[i], more.y[i]);
+            return more.size > 0;
+        }
+
+        // bucket ของชุดใหม่อาจซ้ำหรือเก่ากว่า bucket เดิม (เวลาย้อน) กรณีนั้นรวมลง array ใหม่
+        // เพื่อไม่แก้ array ที่ worker อาจกำลังอ่านอยู่
+        boolean merge(Points more) {
+            if (more.size == 0) return false;
+            if (size == 0 || more.x[0] > x[size - 1]) return append(more);
+
+            long[] mx = new long[size + more.size];
+            double[] my = new double[mx.length];
+            int i = 0, j = 0, n = 0;
+            while (i < size || j < more.size) {
+                if (j == more.size || (i < size && x[i] < more.x[j])) {
+                    mx[n] = x[i];
+                    my[n++] = y[i++];
+                } else if (i == size || more.x[j] < x[i]) {
+                    mx[n] = more.x[j];
+                    my[n++] = more.y[j++];
+                } else {
+                    mx[n] = x[i];
+                    my[n++] = y[i++] + more.y[j++];
+                }
+            }
+            x = mx;
+            y = my;
+            size = n;
+            return true;
+        }
+
+        Points downsample(long lo, long hi, int threshold, boolean step) {
+            int from = lowerBound(lo);
+            int to = lowerBound(hi == Long.MAX_VALUE ? hi : hi + 1);
+            // รวมจุดก่อนหน้าช่วง เพื่อให้เส้นเรทเริ่มจากขอบซ้ายได้
+            if (step && from > 0) from--;
+            if (to < size) to++;
+            int[] picked = Lttb.select(x, y, from, to, threshold);
+            Points result = new Points();
+            result.ensure(picked.length);
+            for (int i : picked) result.add(x[i], y[i]);
+            return result;
+        }
+
+        private int lowerBound(long time) {
+            int lo = 0;
+            int hi = size;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (x[mid] < time) lo = mid + 1;
+                else hi = mid;
+            }
+            return lo;
+        }
+
+        void fill(XYSeries series) {
+            series.setNotify(false);
+            series.clear();
+            for (int i = 0; i < size; i++) series.add((double) x[i], y[i], false);
+            series.setNotify(true);
+        }
+    }
+}
\ No newline at end of file
@@ -1,408 +1,1082 @@
-package view;
-
-import javax.swing.*;
-import java.awt.*;
-import java.awt.event.*;
-import java.awt.geom.Rectangle2D;
-import java.util.*;
-import java.util.List;
-import java.io.*;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-
-public class UserGUI {
-
-    // ---------- Currency ----------
-    static class Currency {
-        private String code;
-        private double rate;
-
-        public Currency(String code, double rate) {
-            this.code = code;
-            this.rate = rate;
-        }
-
-        public String getCode() {
-            return code;
-        }
-
-        public double getRate() {
-            return rate;
-        }
-
-        public void setRate(double rate) {
-            this.rate = rate;
-        }
-    }
-
-    // ---------- CurrencyManager ----------
-    static class CurrencyManager {
-        private Map<String, Currency> currencies = new HashMap<>();
-
-        public void loadRatesFromFile(String filename) {
-            try (BufferedReader reader = new BufferedReader(new FileReader(filename))) {
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    String[] parts = line.split(",");
-                    if (parts.length == 2) {
-                        String code = parts[0].trim();
-                        double rate = Double.parseDouble(parts[1].trim());
-                        currencies.put(code, new Currency(code, rate));
-                    }
-                }
-            } catch (IOException e) {
-                System.err.println("Error loading rates: " + e.getMessage());
-            }
-        }
-
-        public Currency getCurrency(String code) {
-            return currencies.get(code);
-        }
-
-        public Collection<Currency> getAllCurrencies() {
-            return currencies.values();
-        }
-    }
-
-    // ---------- CurrencyConverter ----------
-    static class CurrencyConverter {
-        private CurrencyManager manager;
-
-        public CurrencyConverter(CurrencyManager manager) {
-            this.manager = manager;
-        }
-
-        public double convert(String fromCode, String toCode, double amount) {
-            Currency from = manager.getCurrency(fromCode);
-            Currency to = manager.getCurrency(toCode);
-
-            if (from == null || to == null) {
-                throw new IllegalArgumentException("Invalid currency code");
-            }
-
-            double thbAmount = amount * from.getRate(); // แปลงเป็น THB ก่อน
-            return thbAmount / to.getRate(); // แปลงจาก THB ไปสกุลปลายทาง
-        }
-    }
-
-    // ---------- HistoryRecord ----------
-    static class HistoryRecord {
-        private String fromCurrency;
-        private String toCurrency;
-        private double amount;
-        private double result;
-        private LocalDateTime timestamp;
-
-        public HistoryRecord(String from, String to, double amount, double result) {
-            this.fromCurrency = from;
-            this.toCurrency = to;
-            this.amount = amount;
-            this.result = result;
-            this.timestamp = LocalDateTime.now();
-        }
-
-        public String toString() {
-            DateTimeFormatter fmt = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
-            return "[" + timestamp.format(fmt) + "] " + String.format("%.2f %s → %.2f %s", amount, fromCurrency, result, toCurrency);
-        }
-
-        public String toCSV() {
-            return String.format("%s,%s,%.2f,%.2f,%s", fromCurrency, toCurrency, amount, result, timestamp.toString());
-        }
-
-        public static HistoryRecord fromCSV(String line) {
-            String[] parts = line.split(",");
-            if (parts.length != 5) return null;
-
-            String from = parts[0];
-            String to = parts[1];
-            double amount = Double.parseDouble(parts[2]);
-            double result = Double.parseDouble(parts[3]);
-            LocalDateTime time = LocalDateTime.parse(parts[4]);
-
-            HistoryRecord record = new HistoryRecord(from, to, amount, result);
-            record.timestamp = time;
-            return record;
-        }
-    }
-
-    // ---------- ExchangeHistory ----------
-    static class ExchangeHistory {
-        private List<HistoryRecord> records = new ArrayList<>();
-
-        public void addRecord(HistoryRecord record) {
-            records.add(record);
-        }
-
-        public List<HistoryRecord> getAllRecords() {
-            return records;
-        }
-
-        public void saveToFile(String filename) {
-            try (BufferedWriter writer = new BufferedWriter(new FileWriter(filename))) {
-                for (HistoryRecord r : records) {
-                    writer.write(r.toCSV());
-                    writer.newLine();
-                }
-            } catch (IOException e) {
-                System.err.println("Error saving history: " + e.getMessage());
-            }
-        }
-
-        public void loadFromFile(String filename) {
-            records.clear();
-            try (BufferedReader reader = new BufferedReader(new FileReader(filename))) {
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    HistoryRecord r = HistoryRecord.fromCSV(line);
-                    if (r != null) records.add(r);
-                }
-            } catch (IOException e) {
-                System.out.println("No existing history found.");
-            }
-        }
-    }
-
-    // ---------- SplitColorPanel ----------
-    static class SplitColorPanel extends JPanel {
-        private Color leftColor;
-        private Color rightColor;
-
-        public SplitColorPanel(Color leftColor, Color rightColor) {
-            this.leftColor = leftColor;
-            this.rightColor = rightColor;
-            setLayout(null);
-        }
-
-        protected void paintComponent(Graphics g) {
-            super.paintComponent(g);
-            int width = getWidth();
-            int height = getHeight();
-            int leftWidth = (int)(width * 0.3);
-            int rightWidth = width - leftWidth;
-
-            g.setColor(leftColor);
-            g.fillRect(0, 0, leftWidth, height);
-
-            g.setColor(rightColor);
-            g.fillRect(leftWidth, 0, rightWidth, height);
-
-            Graphics2D g2d = (Graphics2D) g;
-            g2d.setColor(Color.BLACK);
-            g2d.setStroke(new BasicStroke(3));
-            g2d.drawLine(leftWidth, 0, leftWidth, height);
-        }
-    }
-
-    // ---------- CurrencyChartFrame (กราฟ) ----------
-    static class CurrencyChartFrame extends JFrame {
-        public CurrencyChartFrame(Map<String, Currency> currencies) {
-            setTitle("Currency Exchange Rate Chart");
-            setSize(900, 500);
-            setLocationRelativeTo(null);
-            setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
-            add(new CurrencyChartPanel(currencies));
-        }
-
-        static class CurrencyChartPanel extends JPanel {
-            private Map<String, Currency> data;
-
-            public CurrencyChartPanel(Map<String, Currency> data) {
-                this.data = data;
-                setPreferredSize(new Dimension(700, 450));
-            }
-
-            @Override
-            protected void paintComponent(Graphics g) {
-                super.paintComponent(g);
-                int width = getWidth();
-                int height = getHeight();
-                int margin = 50;
-                int barWidth = (width - 2 * margin) / data.size();
-
-                double maxVal = data.values().stream()
-                .mapToDouble(Currency::getRate)
-                .max().orElse(1);
-
-                int x = margin;
-                Graphics2D g2d = (Graphics2D) g;
-                g2d.setFont(new Font("Arial", Font.BOLD, 12));
-
-                for (Currency c : data.values()) {
-                    int barHeight = (int) ((c.getRate() / maxVal) * (height - 2 * margin));
-                    g2d.setColor(new Color(70, 130, 180)); // สีแท่งกราฟ
-                    Rectangle2D bar = new Rectangle2D.Double(x, height - margin - barHeight, barWidth - 10, barHeight);
-                    g2d.fill(bar);
-
-                    g2d.setColor(Color.BLACK);
-                    g2d.draw(bar);
-
-                    // เขียนชื่อสกุลเงินใต้แท่ง
-                    g2d.drawString(c.getCode(), x, height - margin + 15);
-
-                    // เขียนค่า rate บนแท่ง
-                    g2d.drawString(String.format("%.2f", c.getRate()), x, height - margin - barHeight - 5);
-
-                    x += barWidth;
-                }
-
-                // แกน X และ Y
-                g2d.drawLine(margin, height - margin, width - margin, height - margin); // แกน X
-                g2d.drawLine(margin, margin, margin, height - margin); // แกน Y
-
-                // ชื่อแกน
-                g2d.drawString("Currency", width / 2, height - 10);
-                g2d.drawString("Rate", 10, height / 2);
-            }
-        }
-    }
-
-    // ---------- main ----------
-    public static void main(String[] args) {
-        CurrencyManager manager = new CurrencyManager();
-        manager.loadRatesFromFile("rates.csv");
-
-        CurrencyConverter converter = new CurrencyConverter(manager);
-
-        ExchangeHistory history = new ExchangeHistory();
-        history.loadFromFile("history.csv");
-
-        JFrame f = new JFrame("Exchange Money");
-        f.setSize(620, 430);
-        f.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-        f.setLocationRelativeTo(null);
-
-        JPanel p = new SplitColorPanel(new Color(102, 204, 255), new Color(153, 204, 255));
-        p.setBounds(0, 0, 620, 430);
-
-        JLabel l1 = new JLabel("Currency Money");
-        l1.setFont(new Font("Comic Sans MS", Font.BOLD, 25));
-        l1.setBounds(300, 15, 200, 50);
-
-        //JLabel l2 = new JLabel("Amount : ");
-        //l2.setFont(new Font("Comic Sans MS", Font.BOLD, 18));
-        //l2.setBounds(290,80,200,50);
-
-        //JLabel l3 = new JLabel(" To ");
-        //l3.setFont(new Font("Comic Sans MS", Font.BOLD, 18));
-        //l3.setBounds(380,135,200,50);
-
-        JTextField af = new JTextField();
-        af.setBounds(250, 92, 150, 35);
-        af.addKeyListener(new KeyAdapter() {
-            public void keyTyped(KeyEvent e) {
-                if (!Character.isDigit(e.getKeyChar()) && e.getKeyChar() != '.') {
-                    e.consume();
-                }
-            }
-        });
-
-        String[] codes = manager.getAllCurrencies().stream().map(Currency::getCode).toArray(String[]::new);
-        JComboBox<String> currency1 = new JComboBox<>(codes);
-        currency1.setBounds(440, 93, 100, 35);
-
-        JComboBox<String> currency2 = new JComboBox<>(codes);
-        currency2.setBounds(440, 193, 100, 35);
-
-        JButton b1 = new JButton("Convert");
-        b1.setFont(new Font("Comic Sans MS", Font.BOLD, 15));
-        b1.setBounds(350,250,100,35);
-
-        JLabel rl = new JLabel("Result");
-        rl.setFont(new Font("Comic Sans MS", Font.BOLD, 20));
-        rl.setBounds(292, 163, 300, 30);
-
-        JLabel l4 = new JLabel("History");
-        l4.setFont(new Font("Comic Sans MS", Font.BOLD, 20));
-        l4.setBounds(60,15,200,50);
-
-        JButton b2 = new JButton("Show");
-        b2.setFont(new Font("Comic Sans MS", Font.BOLD, 15));
-        b2.setBounds(54,65,85,30);
-
-        JLabel l5 = new JLabel("Exchange rate");
-        l5.setFont(new Font("Comic Sans MS", Font.BOLD, 19));
-        l5.setBounds(30,130,200,50);
-
-        JButton b3 = new JButton("Show");
-        b3.setFont(new Font("Comic Sans MS", Font.BOLD, 15));
-        b3.setBounds(54,180,85,30);
-
-        p.add(l1);
-        //p.add(l2);
-        //p.add(l3);
-        p.add(af);
-        p.add(currency1);
-        p.add(currency2);
-        p.add(b1);
-        p.add(rl);
-        p.add(l4);
-        p.add(b2);
-        p.add(l5);
-        p.add(b3);
-
-        f.add(p);
-        f.setLayout(null);
-        f.setVisible(true);
-
-        // Event: Convert button
-        b1.addActionListener(e -> {
-            String from = (String) currency1.getSelectedItem();
-            String to = (String) currency2.getSelectedItem();
-            String amountStr = af.getText();
-
-            if (amountStr.isEmpty()) {
-                JOptionPane.showMessageDialog(f, "Please enter an amount");
-                return;
-            }
-
-            try {
-                double amount = Double.parseDouble(amountStr);
-                if (amount <= 0) {
-                    JOptionPane.showMessageDialog(f, "Amount must be positive");
-                    return;
-                }
-
-                double result = converter.convert(from, to, amount);
-                rl.setText(String.format("%.2f %s = %.2f %s", amount, from, result, to));
-
-                // บันทึกประวัติ
-                HistoryRecord record = new HistoryRecord(from, to, amount, result);
-                history.addRecord(record);
-                history.saveToFile("history.csv");
-
-            } catch (NumberFormatException ex) {
-                JOptionPane.showMessageDialog(f, "Invalid amount");
-            } catch (IllegalArgumentException ex) {
-                JOptionPane.showMessageDialog(f, ex.getMessage());
-            }
-        });
-
-        // Event: Show History button (b2)
-        b2.addActionListener(e -> {
-            List<HistoryRecord> records = history.getAllRecords();
-            if (records.isEmpty()) {
-                JOptionPane.showMessageDialog(f, "No history available");
-                return;
-            }
-            StringBuilder sb = new StringBuilder();
-            for (HistoryRecord r : records) {
-                sb.append(r.toString()).append("\n");
-            }
-            JTextArea ta = new JTextArea(sb.toString());
-            ta.setEditable(false);
-            JScrollPane scroll = new JScrollPane(ta);
-            scroll.setPreferredSize(new Dimension(400, 300));
-            JOptionPane.showMessageDialog(f, scroll, "Exchange History", JOptionPane.INFORMATION_MESSAGE);
-        });
-
-        // Event: Show Exchange rate Chart button (b3)
-        b3.addActionListener(e -> {
-            CurrencyChartFrame chartFrame = new CurrencyChartFrame(manager.currencies);
-            chartFrame.setVisible(true);
-        });
-    }
-}
-
-
-
+package view;
+
+import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.table.AbstractTableModel;
+import java.awt.*;
+import java.awt.event.*;
+import java.awt.geom.Rectangle2D;
+import model.CsvCodec;
+import model.FixedPoint;
+import model.HistoryJournal;
+import model.HistoryPersister;
+import model.HistoryRollup;
+import model.HistoryStore;
+import model.HistoryWindow;
+import model.Metrics;
+import model.RateHistory;
+import model.RatesWatcher;
+import java.util.*;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.io.*;
+import java.nio.file.*;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+public class UserGUI {
+
+    // ---------- Currency ----------
+    static class Currency {
+        private String code;
+        private double rate;
+        private long scaledRate;
+
+        public Currency(String code, double rate) {
+            this.code = code;
+            setRate(rate);
+        }
+
+        public String getCode() {
+            return code;
+        }
+
+        public double getRate() {
+            return rate;
+        }
+
+        // เรทแบบ long คำนวณครั้งเดียวตอนตั้งค่า ใช้กับการแปลงแบบ fixed-point
+        public long getScaledRate() {
+            return scaledRate;
+        }
+
+        public void setRate(double rate) {
+            this.rate = rate;
+            this.scaledRate = FixedPoint.scaleRate(rate);
+        }
+    }
+
+    // ---------- CurrencyManager ----------
+    static class CurrencyManager {
+        private Map<String, Currency> currencies = new HashMap<>();
+
+        public void loadRatesFromFile(String filename) {
+            long start = System.nanoTime();
+            try {
+                for (Map.Entry<String, Double> entry : CsvCodec.readRates(Paths.get(filename)).entrySet()) {
+                    currencies.put(entry.getKey(), new Currency(entry.getKey(), entry.getValue()));
+                }
+            } catch (IOException e) {
+                System.err.println("Error loading rates: " + e.getMessage());
+            }
+            Metrics.RATES_LOAD.recordSince(start);
+        }
+
+        // อ่านไฟล์เรทอย่างเดียว ไม่แก้ข้อมูลใน manager (เรียกนอก EDT ได้)
+        public static Map<String, Double> readRates(String filename) {
+            long start = System.nanoTime();
+            try {
+                return CsvCodec.readRates(Paths.get(filename));
+            } catch (IOException | NumberFormatException e) {
+                System.err.println("Error loading rates: " + e.getMessage());
+                return null;
+            } finally {
+                Metrics.RATES_LOAD.recordSince(start);
+            }
+        }
+
+        // ใช้เฉพาะเรทที่เปลี่ยน คืนค่า true ถ้ามีสกุลเงินเพิ่มหรือหายไป
+        public boolean applyRates(Map<String, Double> rates) {
+            boolean codesChanged = currencies.keySet().retainAll(rates.keySet());
+            for (Map.Entry<String, Double> entry : rates.entrySet()) {
+                Currency c = currencies.get(entry.getKey());
+                if (c == null) {
+                    currencies.put(entry.getKey(), new Currency(entry.getKey(), entry.getValue()));
+                    codesChanged = true;
+                } else if (c.getRate() != entry.getValue()) {
+                    c.setRate(entry.getValue());
+                }
+            }
+            return codesChanged;
+        }
+
+        public Currency getCurrency(String code) {
+            return currencies.get(code);
+        }
+
+        public Collection<Currency> getAllCurrencies() {
+            return currencies.values();
+        }
+    }
+
+    // ---------- CurrencyConverter ----------
+    static class CurrencyConverter {
+        private CurrencyManager manager;
+
+        public CurrencyConverter(CurrencyManager manager) {
+            this.manager = manager;
+        }
+
+        public double convert(String fromCode, String toCode, double amount) {
+            long start = System.nanoTime();
+            Currency from = manager.getCurrency(fromCode);
+            Currency to = manager.getCurrency(toCode);
+
+            if (from == null || to == null) {
+                throw new IllegalArgumentException("Invalid currency code");
+            }
+
+            double thbAmount = amount * from.getRate(); // แปลงเป็น THB ก่อน
+            double result = thbAmount / to.getRate(); // แปลงจาก THB ไปสกุลปลายทาง
+            Metrics.CONVERT.recordSince(start);
+            return result;
+        }
+
+        // แปลงเป็นหน่วยย่อย (สตางค์ เซนต์) แบบ long ไม่มีการปัดเศษซ้อนแบบ double
+        public long convertMinor(String fromCode, String toCode, long amount) {
+            long start = System.nanoTime();
+            Currency from = manager.getCurrency(fromCode);
+            Currency to = manager.getCurrency(toCode);
+
+            if (from == null || to == null) {
+                throw new IllegalArgumentException("Invalid currency code");
+            }
+
+            long result = FixedPoint.convert(amount, FixedPoint.scale(from.getCode()), from.getScaledRate(),
+                    FixedPoint.scale(to.getCode()), to.getScaledRate(), FixedPoint.DEFAULT_ROUNDING);
+            Metrics.CONVERT.recordSince(start);
+            return result;
+        }
+    }
+
+    // ---------- HistoryRecord ----------
+    static class HistoryRecord {
+        private String fromCurrency;
+        private String toCurrency;
+        private double amount;
+        private double result;
+        private LocalDateTime timestamp;
+
+        public HistoryRecord(String from, String to, double amount, double result) {
+            this.fromCurrency = from;
+            this.toCurrency = to;
+            this.amount = amount;
+            this.result = result;
+            this.timestamp = LocalDateTime.now();
+        }
+
+        public String toString() {
+            DateTimeFormatter fmt = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+            int fromScale = FixedPoint.scale(fromCurrency);
+            int toScale = FixedPoint.scale(toCurrency);
+            return "[" + timestamp.format(fmt) + "] " + FixedPoint.format(FixedPoint.toMinor(amount, fromScale), fromScale) + " " + fromCurrency
+                    + " → " + FixedPoint.format(FixedPoint.toMinor(result, toScale), toScale) + " " + toCurrency;
+        }
+
+        public String toCSV() {
+            return CsvCodec.appendHistory(new StringBuilder(64), fromCurrency, toCurrency, amount, result,
+                    HistoryStore.toEpochNanos(timestamp)).toString();
+        }
+
+        public static HistoryRecord fromCSV(String line) {
+            String[] parts = line.split(",");
+            if (parts.length != 5) return null;
+
+            String from = parts[0];
+            String to = parts[1];
+            double amount = Double.parseDouble(parts[2]);
+            double result = Double.parseDouble(parts[3]);
+            LocalDateTime time = LocalDateTime.parse(parts[4]);
+
+            HistoryRecord record = new HistoryRecord(from, to, amount, result);
+            record.timestamp = time;
+            return record;
+        }
+    }
+
+    // ---------- ExchangeHistory ----------
+    static class ExchangeHistory {
+        // รายการเก่าเกิน exchange.history.maxRows ย้ายไป segment บนดิสก์ ตารางกับกราฟยังอ่านได้ครบ
+        private HistoryWindow window = new HistoryWindow();
+        private HistoryJournal journal;
+        private HistoryPersister persister;
+        // ยอดรวมรายวันต่อคู่สกุลเงิน อัปเดตทุก addRecord หน้าสรุปไม่ต้องไล่ทุกรายการ
+        private HistoryRollup rollup = new HistoryRollup();
+        private Path rollupFile;
+        // ก่อน adopt รายการที่แปลงอยู่แค่ใน window ชั่วคราว ยังไม่มี journal
+        private boolean adopted;
+        private boolean shutDown;
+
+        public void addRecord(HistoryRecord record) {
+            long start = System.nanoTime();
+            window.append(record.fromCurrency, record.toCurrency, record.amount, record.result, record.timestamp);
+            rollup.add(record.fromCurrency, record.toCurrency, record.amount, record.result, window.epochNanos(window.size() - 1));
+            if (persister != null) {
+                if (!persister.submit(record.toCSV())) {
+                    System.err.println("Error writing history: journal is failing, record kept in memory for retry");
+                }
+            } else if (journal != null) {
+                try {
+                    journal.append(record.toCSV());
+                } catch (IOException e) {
+                    Metrics.HISTORY_WRITE_ERRORS.increment();
+                    System.err.println("Error appending history: " + e.getMessage());
+                }
+            }
+            Metrics.HISTORY_APPEND.recordSince(start);
+        }
+
+        // เขียนต่อท้ายไฟล์เฉพาะรายการใหม่ ไม่ต้องเขียนใหม่ทั้งไฟล์
+        public void openJournal(String filename) {
+            try {
+                journal = new HistoryJournal(Paths.get(filename));
+            } catch (IOException e) {
+                System.err.println("Error opening history journal: " + e.getMessage());
+            }
+        }
+
+        // เขียนไฟล์บน thread พื้นหลัง ไม่ให้ EDT ต้องรอดิสก์
+        public void openAsyncJournal(String filename, int batchSize, long flushIntervalMillis) {
+            openJournal(filename);
+            if (journal != null) {
+                persister = new HistoryPersister(journal, HistoryPersister.DEFAULT_CAPACITY, batchSize, flushIntervalMillis);
+            }
+        }
+
+        public void closeJournal() {
+            window.awaitSpills();
+            if (journal == null) return;
+            try {
+                if (persister != null) persister.close();
+                persister = null;
+                journal.close();
+            } catch (IOException e) {
+                System.err.println("Error closing history journal: " + e.getMessage());
+            }
+            journal = null;
+            saveRollup();
+        }
+
+        /**
+         * Called once on exit. Closes the journal, or, if history has not
+         * been adopted yet, appends the records converted so far to
+         * {@code filename} so they are not lost. A later {@link #adopt} does
+         * nothing.
+         */
+        public synchronized void shutdown(String filename) {
+            shutDown = true;
+            if (adopted) {
+                closeJournal();
+                return;
+            }
+            if (window.size() == 0) return;
+            List<String> lines = new ArrayList<>(window.size());
+            for (int i = 0; i < window.size(); i++) lines.add(toRecord(i).toCSV());
+            try (HistoryJournal pending = new HistoryJournal(Paths.get(filename))) {
+                pending.appendAll(lines, true);
+            } catch (IOException e) {
+                System.err.println("Error saving history: " + e.getMessage());
+            }
+        }
+
+        public void saveRollup() {
+            if (rollupFile == null) return;
+            try {
+                rollup.save(rollupFile);
+            } catch (IOException e) {
+                System.err.println("Error saving history rollup: " + e.getMessage());
+            }
+        }
+
+        public HistoryRollup getRollup() {
+            return rollup;
+        }
+
+        // สร้าง HistoryRecord เฉพาะแถวที่ถูกอ่าน ข้อมูลจริงอยู่ใน HistoryWindow
+        public List<HistoryRecord> getAllRecords() {
+            return new AbstractList<HistoryRecord>() {
+                @Override
+                public HistoryRecord get(int index) {
+                    return toRecord(index);
+                }
+
+                @Override
+                public int size() {
+                    return window.size();
+                }
+            };
+        }
+
+        public HistoryWindow getWindow() {
+            return window;
+        }
+
+        private HistoryRecord toRecord(int i) {
+            if (i < 0 || i >= window.size()) throw new IndexOutOfBoundsException("Index: " + i);
+            HistoryRecord r = new HistoryRecord(window.fromCurrency(i), window.toCurrency(i), window.amount(i), window.result(i));
+            r.timestamp = window.timestamp(i);
+            return r;
+        }
+
+        public void saveToFile(String filename) {
+            try (Writer writer = new FileWriter(filename)) {
+                CsvCodec.writeHistory(writer, window);
+            } catch (IOException e) {
+                System.err.println("Error saving history: " + e.getMessage());
+                return;
+            }
+            try {
+                HistoryJournal.removeSegments(Paths.get(filename));
+            } catch (IOException e) {
+                System.err.println("Error removing old history segments: " + e.getMessage());
+            }
+            rollupFile = Paths.get(rollupFileFor(filename));
+            saveRollup();
+        }
+
+        public void loadFromFile(String filename) {
+            window.close();
+            window = readFile(filename);
+            rollupFile = Paths.get(rollupFileFor(filename));
+            rollup = HistoryRollup.loadOrBuild(rollupFile, window);
+        }
+
+        public static String rollupFileFor(String filename) {
+            return filename + ".rollup";
+        }
+
+        // อ่านไฟล์ประวัติเข้า window ใหม่ ไม่แตะ window ที่ใช้อยู่ (เรียกนอก EDT ได้)
+        public static HistoryWindow readFile(String filename) {
+            HistoryStore store = new HistoryStore();
+            HistoryWindow loaded = new HistoryWindow(store, HistoryWindow.maxRowsFromProperties(), HistoryWindow.spillDirFor(filename));
+            List<Path> segments = HistoryJournal.segments(Paths.get(filename));
+            if (segments.isEmpty()) {
+                System.out.println("No existing history found.");
+                return loaded;
+            }
+            for (Path segment : segments) {
+                try {
+                    CsvCodec.readHistory(segment, store, loaded::spillLoaded);
+                } catch (IOException e) {
+                    System.err.println("Error loading history: " + e.getMessage());
+                }
+            }
+            loaded.finishLoad();
+            return loaded;
+        }
+
+        /**
+         * Switches to {@code loaded} (from {@link #readFile}) and its rollup
+         * (from {@link HistoryRollup#loadOrBuild}) and opens the journal.
+         * Records added while it was loading are appended after the loaded
+         * ones and written to the journal.
+         */
+        public synchronized void adopt(HistoryWindow loaded, HistoryRollup loadedRollup, String filename) {
+            // ปิดโปรแกรมไปแล้ว รายการที่ค้างถูกเขียนใน shutdown แล้ว ไม่เขียนซ้ำ
+            if (shutDown) return;
+            adopted = true;
+            HistoryWindow pending = window;
+            window = loaded;
+            rollup = loadedRollup;
+            rollupFile = Paths.get(rollupFileFor(filename));
+            openAsyncJournal(filename, HistoryPersister.DEFAULT_BATCH_SIZE, HistoryPersister.DEFAULT_FLUSH_INTERVAL_MILLIS);
+            for (int i = 0; i < pending.size(); i++) {
+                HistoryRecord r = new HistoryRecord(pending.fromCurrency(i), pending.toCurrency(i), pending.amount(i), pending.result(i));
+                r.timestamp = pending.timestamp(i);
+                addRecord(r);
+            }
+            // ย้ายรายการมาแล้ว ปิด window ชั่วคราวให้ thread spill กับโฟลเดอร์ชั่วคราวหายไปด้วย
+            pending.close();
+        }
+    }
+
+    // ---------- HistoryTableModel ----------
+    // จัดรูปแบบเฉพาะหน้าที่ตารางขอ ไม่สร้าง String ของทั้งประวัติ
+    // การกรอง/เรียงทำบน SwingWorker แล้วค่อยสลับ view บน EDT
+    static class HistoryTableModel extends AbstractTableModel {
+        private static final String[] COLUMNS = {"Time", "From", "Amount", "To", "Result"};
+        private static final int PAGE_SIZE = 256;
+        private static final int MAX_PAGES = 32;
+        private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+        private final HistoryWindow window;
+        private final int count;
+        private int[] view;
+        private final Map<Integer, String[][]> pages = new LinkedHashMap<Integer, String[][]>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, String[][]> eldest) {
+                return size() > MAX_PAGES;
+            }
+        };
+
+        private String filter = "";
+        private int sortColumn = -1;
+        private boolean ascending = true;
+        private SwingWorker<int[], Void> pending;
+        private Runnable onViewChanged = () -> {};
+
+        // แสดงเฉพาะรายการที่มีอยู่ตอนเปิดหน้าต่าง
+        public HistoryTableModel(HistoryWindow window) {
+            this.window = window;
+            this.count = window.size();
+        }
+
+        public void setOnViewChanged(Runnable onViewChanged) {
+            this.onViewChanged = onViewChanged;
+        }
+
+        public int getTotalCount() { return count; }
+
+        public boolean isBusy() { return pending != null; }
+
+        @Override
+        public int getRowCount() {
+            return view == null ? count : view.length;
+        }
+
+        @Override
+        public int getColumnCount() {
+            return COLUMNS.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            String name = COLUMNS[column];
+            if (column != sortColumn) return name;
+            return name + (ascending ? " ▲" : " ▼");
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            return pages.computeIfAbsent(row / PAGE_SIZE, this::formatPage)[row % PAGE_SIZE][column];
+        }
+
+        private String[][] formatPage(int page) {
+            int first = page * PAGE_SIZE;
+            int last = Math.min(getRowCount(), first + PAGE_SIZE);
+            String[][] cells = new String[last - first][];
+            StringBuilder sb = new StringBuilder(16);
+            for (int r = first; r < last; r++) {
+                int i = view == null ? r : view[r];
+                sb.setLength(0);
+                String amount = CsvCodec.appendFixed2(sb, window.amount(i)).toString();
+                sb.setLength(0);
+                String result = CsvCodec.appendFixed2(sb, window.result(i)).toString();
+                cells[r - first] = new String[] {
+                        window.timestamp(i).format(TIME_FORMAT), window.fromCurrency(i), amount, window.toCurrency(i), result};
+            }
+            return cells;
+        }
+
+        public void setFilter(String filter) {
+            this.filter = filter.trim().toUpperCase();
+            refresh();
+        }
+
+        // คลิกคอลัมน์เดิมซ้ำ = สลับทิศทาง
+        public void toggleSort(int column) {
+            ascending = column != sortColumn || !ascending;
+            sortColumn = column;
+            refresh();
+        }
+
+        private void refresh() {
+            if (pending != null) pending.cancel(true);
+            String f = filter;
+            int column = sortColumn;
+            boolean asc = ascending;
+            SwingWorker<int[], Void> worker = new SwingWorker<int[], Void>() {
+                @Override
+                protected int[] doInBackground() {
+                    return computeView(f, column, asc, this::isCancelled);
+                }
+
+                @Override
+                protected void done() {
+                    if (pending != this || isCancelled()) return;
+                    pending = null;
+                    try {
+                        view = get();
+                    } catch (Exception e) {
+                        System.err.println("Error filtering history: " + e.getMessage());
+                        return;
+                    }
+                    pages.clear();
+                    fireTableStructureChanged();
+                    onViewChanged.run();
+                }
+            };
+            pending = worker;
+            onViewChanged.run();
+            worker.execute();
+        }
+
+        // คืน null เมื่อไม่มีทั้ง filter และ sort (ใช้ลำดับเดิมของ window)
+        private int[] computeView(String f, int column, boolean asc, java.util.function.BooleanSupplier cancelled) {
+            if (f.isEmpty() && column < 0) return null;
+
+            List<String> codes = window.getCurrencies().codes();
+            boolean[] match = new boolean[codes.size()];
+            for (int id = 0; id < match.length; id++) match[id] = codes.get(id).contains(f);
+
+            int[] rows = new int[count];
+            int n = 0;
+            for (int i = 0; i < count; i++) {
+                if ((i & 0xFFFF) == 0 && cancelled.getAsBoolean()) return null;
+                if (f.isEmpty() || match[window.fromId(i)] || match[window.toId(i)]) rows[n++] = i;
+            }
+            rows = Arrays.copyOf(rows, n);
+            if (column < 0) return rows;
+
+            // แปลงค่าในคอลัมน์เป็น long ที่เรียงได้ แล้ว merge sort แบบ primitive (stable)
+            int[] rank = new int[codes.size()];
+            Integer[] byCode = new Integer[codes.size()];
+            for (int id = 0; id < byCode.length; id++) byCode[id] = id;
+            Arrays.sort(byCode, Comparator.comparing(codes::get));
+            for (int r = 0; r < byCode.length; r++) rank[byCode[r]] = r;
+
+            long[] keys = new long[n];
+            for (int k = 0; k < n; k++) {
+                int i = rows[k];
+                long key;
+                switch (column) {
+                    case 0: key = window.epochNanos(i); break;
+                    case 1: key = rank[window.fromId(i)]; break;
+                    case 2: key = sortableBits(window.amount(i)); break;
+                    case 3: key = rank[window.toId(i)]; break;
+                    default: key = sortableBits(window.result(i)); break;
+                }
+                keys[k] = asc ? key : ~key;
+            }
+            if (cancelled.getAsBoolean()) return null;
+            mergeSort(rows, keys, new int[n], new long[n], 0, n);
+            return rows;
+        }
+
+        private static long sortableBits(double value) {
+            long bits = Double.doubleToLongBits(value);
+            return bits ^ ((bits >> 63) & Long.MAX_VALUE);
+        }
+
+        private static void mergeSort(int[] rows, long[] keys, int[] rowTmp, long[] keyTmp, int lo, int hi) {
+            if (hi - lo < 2) return;
+            int mid = (lo + hi) >>> 1;
+            mergeSort(rows, keys, rowTmp, keyTmp, lo, mid);
+            mergeSort(rows, keys, rowTmp, keyTmp, mid, hi);
+            if (keys[mid - 1] <= keys[mid]) return;
+            System.arraycopy(rows, lo, rowTmp, lo, hi - lo);
+            System.arraycopy(keys, lo, keyTmp, lo, hi - lo);
+            int a = lo, b = mid, k = lo;
+            while (a < mid && b < hi) {
+                if (keyTmp[b] < keyTmp[a]) { rows[k] = rowTmp[b]; keys[k++] = keyTmp[b++]; }
+                else { rows[k] = rowTmp[a]; keys[k++] = keyTmp[a++]; }
+            }
+            while (a < mid) { rows[k] = rowTmp[a]; keys[k++] = keyTmp[a++]; }
+            while (b < hi) { rows[k] = rowTmp[b]; keys[k++] = keyTmp[b++]; }
+        }
+    }
+
+    // ---------- RollupTableModel ----------
+    // แสดง bucket จาก HistoryRollup: ยอดรวมต่อคู่ หรือรายวันของคู่เดียว
+    static class RollupTableModel extends AbstractTableModel {
+        private static final String[] PAIR_COLUMNS = {"From", "To", "Count", "Total amount", "Total result", "Average"};
+        private static final String[] DAY_COLUMNS = {"Day", "Count", "Total amount", "Total result", "Average", "Max"};
+
+        private final boolean byDay;
+        private List<HistoryRollup.Bucket> buckets = Collections.emptyList();
+
+        public RollupTableModel(boolean byDay) {
+            this.byDay = byDay;
+        }
+
+        public void setBuckets(List<HistoryRollup.Bucket> buckets) {
+            this.buckets = buckets;
+            fireTableDataChanged();
+        }
+
+        public HistoryRollup.Bucket getBucket(int row) {
+            return buckets.get(row);
+        }
+
+        @Override
+        public int getRowCount() {
+            return buckets.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return (byDay ? DAY_COLUMNS : PAIR_COLUMNS).length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return (byDay ? DAY_COLUMNS : PAIR_COLUMNS)[column];
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            HistoryRollup.Bucket b = buckets.get(row);
+            StringBuilder sb = new StringBuilder(16);
+            if (byDay) {
+                switch (column) {
+                    case 0: return b.getDay().toString();
+                    case 1: return b.getCount();
+                    case 2: return CsvCodec.appendFixed2(sb, b.getTotalAmount()).toString();
+                    case 3: return CsvCodec.appendFixed2(sb, b.getTotalResult()).toString();
+                    case 4: return CsvCodec.appendFixed2(sb, b.getAverageAmount()).toString();
+                    default: return CsvCodec.appendFixed2(sb, b.getMaxAmount()).toString();
+                }
+            }
+            switch (column) {
+                case 0: return b.getFromCurrency();
+                case 1: return b.getToCurrency();
+                case 2: return b.getCount();
+                case 3: return CsvCodec.appendFixed2(sb, b.getTotalAmount()).toString();
+                case 4: return CsvCodec.appendFixed2(sb, b.getTotalResult()).toString();
+                default: return CsvCodec.appendFixed2(sb, b.getAverageAmount()).toString();
+            }
+        }
+    }
+
+    // ---------- SplitColorPanel ----------
+    static class SplitColorPanel extends JPanel {
+        private Color leftColor;
+        private Color rightColor;
+
+        public SplitColorPanel(Color leftColor, Color rightColor) {
+            this.leftColor = leftColor;
+            this.rightColor = rightColor;
+            setLayout(null);
+        }
+
+        protected void paintComponent(Graphics g) {
+            super.paintComponent(g);
+            int width = getWidth();
+            int height = getHeight();
+            int leftWidth = (int)(width * 0.3);
+            int rightWidth = width - leftWidth;
+
+            g.setColor(leftColor);
+            g.fillRect(0, 0, leftWidth, height);
+
+            g.setColor(rightColor);
+            g.fillRect(leftWidth, 0, rightWidth, height);
+
+            Graphics2D g2d = (Graphics2D) g;
+            g2d.setColor(Color.BLACK);
+            g2d.setStroke(new BasicStroke(3));
+            g2d.drawLine(leftWidth, 0, leftWidth, height);
+        }
+    }
+
+    // ---------- CurrencyChartFrame (กราฟ) ----------
+    static class CurrencyChartFrame extends JFrame {
+        public CurrencyChartFrame(Map<String, Currency> currencies) {
+            setTitle("Currency Exchange Rate Chart");
+            setSize(900, 500);
+            setLocationRelativeTo(null);
+            setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
+            add(new CurrencyChartPanel(currencies));
+        }
+
+        // แท่งกราฟของเรท ณ ตอนเปิดหน้าต่าง คำนวณค่าสูงสุดและข้อความไว้ครั้งเดียว ไม่ทำซ้ำทุกครั้งที่ paint
+        static class CurrencyChartPanel extends JPanel {
+            private static final Font LABEL_FONT = new Font("Arial", Font.BOLD, 12);
+            private static final Color BAR_COLOR = new Color(70, 130, 180);
+
+            private final String[] codes;
+            private final double[] rates;
+            private final String[] labels;
+            private final double maxVal;
+            private final Rectangle2D.Double bar = new Rectangle2D.Double();
+
+            public CurrencyChartPanel(Map<String, Currency> data) {
+                codes = new String[data.size()];
+                rates = new double[data.size()];
+                labels = new String[data.size()];
+                double max = 0;
+                int i = 0;
+                for (Currency c : data.values()) {
+                    codes[i] = c.getCode();
+                    rates[i] = c.getRate();
+                    labels[i] = String.format("%.2f", c.getRate());
+                    max = Math.max(max, c.getRate());
+                    i++;
+                }
+                maxVal = i == 0 ? 1 : max;
+                setPreferredSize(new Dimension(700, 450));
+            }
+
+            @Override
+            protected void paintComponent(Graphics g) {
+                super.paintComponent(g);
+                if (codes.length == 0) return;
+                int width = getWidth();
+                int height = getHeight();
+                int margin = 50;
+                int barWidth = (width - 2 * margin) / codes.length;
+
+                int x = margin;
+                Graphics2D g2d = (Graphics2D) g;
+                g2d.setFont(LABEL_FONT);
+
+                for (int i = 0; i < codes.length; i++) {
+                    int barHeight = (int) ((rates[i] / maxVal) * (height - 2 * margin));
+                    g2d.setColor(BAR_COLOR); // สีแท่งกราฟ
+                    bar.setRect(x, height - margin - barHeight, barWidth - 10, barHeight);
+                    g2d.fill(bar);
+
+                    g2d.setColor(Color.BLACK);
+                    g2d.draw(bar);
+
+                    // เขียนชื่อสกุลเงินใต้แท่ง
+                    g2d.drawString(codes[i], x, height - margin + 15);
+
+                    // เขียนค่า rate บนแท่ง
+                    g2d.drawString(labels[i], x, height - margin - barHeight - 5);
+
+                    x += barWidth;
+                }
+
+                // แกน X และ Y
+                g2d.drawLine(margin, height - margin, width - margin, height - margin); // แกน X
+                g2d.drawLine(margin, margin, margin, height - margin); // แกน Y
+
+                // ชื่อแกน
+                g2d.drawString("Currency", width / 2, height - 10);
+                g2d.drawString("Rate", 10, height / 2);
+            }
+        }
+    }
+
+    // ---------- main ----------
+    // เปิดไฟล์ log ไม่ได้ก็ยังเก็บประวัติเรทในหน่วยความจำ
+    private static RateHistory openRateHistory(String ratesFile) {
+        try {
+            return new RateHistory(RateHistory.logFileFor(ratesFile));
+        } catch (IOException e) {
+            System.err.println("Error opening rate history: " + e.getMessage());
+            return new RateHistory();
+        }
+    }
+
+    public static void main(String[] args) {
+        Metrics.startReporterFromProperty();
+        EdtMetrics.install();
+        // อ่านไฟล์ทั้งหมดพร้อมกันบน thread พื้นหลัง หน้าต่างแสดงได้ทันทีแล้วค่อยเปิดใช้ทีละส่วน
+        CompletableFuture<Map<String, Double>> ratesLoad = CompletableFuture.supplyAsync(() -> CurrencyManager.readRates("rates.csv"));
+        CompletableFuture<RateHistory> rateHistoryLoad = CompletableFuture.supplyAsync(() -> openRateHistory("rates.csv"));
+        CompletableFuture<HistoryWindow> historyLoad = CompletableFuture.supplyAsync(() -> ExchangeHistory.readFile("history.csv"))
+                .exceptionally(ex -> {
+                    System.err.println("Error loading history: " + ex.getMessage());
+                    return new HistoryWindow();
+                });
+        // rollup ที่บันทึกไว้ใช้ต่อได้ถ้ายังตรงกับประวัติ ไม่งั้นสร้างใหม่จากแถวที่โหลด
+        // ไฟล์ rollup เสียแบบที่ loadOrBuild ไม่ทันจับ ให้สร้างใหม่ ไม่งั้นประวัติจะไม่ถูก adopt ทั้ง session
+        CompletableFuture<HistoryRollup> rollupLoad = historyLoad.thenApplyAsync(rows -> {
+            try {
+                return HistoryRollup.loadOrBuild(Paths.get(ExchangeHistory.rollupFileFor("history.csv")), rows);
+            } catch (RuntimeException e) {
+                System.err.println("Error loading history rollup: " + e.getMessage());
+                return HistoryRollup.build(rows);
+            }
+        });
+
+        CurrencyManager manager = new CurrencyManager();
+        CurrencyConverter converter = new CurrencyConverter(manager);
+
+        ExchangeHistory history = new ExchangeHistory();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> history.shutdown("history.csv")));
+
+        JFrame f = new JFrame("Exchange Money");
+        f.setSize(620, 430);
+        f.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        f.setLocationRelativeTo(null);
+
+        JPanel p = new SplitColorPanel(new Color(102, 204, 255), new Color(153, 204, 255));
+        p.setBounds(0, 0, 620, 430);
+
+        JLabel l1 = new JLabel("Currency Money");
+        l1.setFont(new Font("Comic Sans MS", Font.BOLD, 25));
+        l1.setBounds(300, 15, 200, 50);
+
+        //JLabel l2 = new JLabel("Amount : ");
+        //l2.setFont(new Font("Comic Sans MS", Font.BOLD, 18));
+        //l2.setBounds(290,80,200,50);
+
+        //JLabel l3 = new JLabel(" To ");
+        //l3.setFont(new Font("Comic Sans MS", Font.BOLD, 18));
+        //l3.setBounds(380,135,200,50);
+
+        JTextField af = new JTextField();
+        af.setBounds(250, 92, 150, 35);
+        af.addKeyListener(new KeyAdapter() {
+            public void keyTyped(KeyEvent e) {
+                if (!Character.isDigit(e.getKeyChar()) && e.getKeyChar() != '.') {
+                    e.consume();
+                }
+            }
+        });
+
+        JComboBox<String> currency1 = new JComboBox<>();
+        currency1.setBounds(440, 93, 100, 35);
+
+        JComboBox<String> currency2 = new JComboBox<>();
+        currency2.setBounds(440, 193, 100, 35);
+
+        // ใส่รายการสกุลเงินใหม่โดยคงตัวที่เลือกไว้
+        Runnable refreshCurrencies = () -> {
+            String[] updated = manager.getAllCurrencies().stream().map(Currency::getCode).toArray(String[]::new);
+            Object selected1 = currency1.getSelectedItem();
+            Object selected2 = currency2.getSelectedItem();
+            currency1.setModel(new DefaultComboBoxModel<>(updated));
+            currency2.setModel(new DefaultComboBoxModel<>(updated));
+            if (selected1 != null) currency1.setSelectedItem(selected1);
+            if (selected2 != null) currency2.setSelectedItem(selected2);
+        };
+
+        JButton b1 = new JButton("Convert");
+        b1.setFont(new Font("Comic Sans MS", Font.BOLD, 15));
+        b1.setBounds(350,250,100,35);
+
+        JLabel rl = new JLabel("Loading rates...");
+        rl.setFont(new Font("Comic Sans MS", Font.BOLD, 20));
+        rl.setBounds(292, 163, 300, 30);
+
+        JLabel l4 = new JLabel("History...");
+        l4.setFont(new Font("Comic Sans MS", Font.BOLD, 20));
+        l4.setBounds(60,15,200,50);
+
+        JButton b2 = new JButton("Show");
+        b2.setFont(new Font("Comic Sans MS", Font.BOLD, 15));
+        b2.setBounds(54,65,85,30);
+
+        JLabel l5 = new JLabel("Exchange rate");
+        l5.setFont(new Font("Comic Sans MS", Font.BOLD, 19));
+        l5.setBounds(30,130,200,50);
+
+        JButton b3 = new JButton("Show");
+        b3.setFont(new Font("Comic Sans MS", Font.BOLD, 15));
+        b3.setBounds(54,180,85,30);
+
+        JButton b4 = new JButton("Trend");
+        b4.setFont(new Font("Comic Sans MS", Font.BOLD, 15));
+        b4.setBounds(54,220,85,30);
+
+        JButton b5 = new JButton("Summary");
+        b5.setFont(new Font("Comic Sans MS", Font.BOLD, 13));
+        b5.setBounds(54,260,85,30);
+
+        p.add(l1);
+        //p.add(l2);
+        //p.add(l3);
+        p.add(af);
+        p.add(currency1);
+        p.add(currency2);
+        p.add(b1);
+        p.add(rl);
+        p.add(l4);
+        p.add(b2);
+        p.add(l5);
+        p.add(b3);
+        p.add(b4);
+        p.add(b5);
+
+        f.add(p);
+        f.setLayout(null);
+
+        // ยังใช้ไม่ได้จนกว่าข้อมูลที่ต้องใช้จะโหลดเสร็จ
+        b1.setEnabled(false);
+        b2.setEnabled(false);
+        b3.setEnabled(false);
+        b4.setEnabled(false);
+        b5.setEnabled(false);
+        f.setVisible(true);
+
+        // เรทพร้อม: แปลงค่าได้เลย ไม่ต้องรอประวัติ
+        ratesLoad.thenAccept(rates -> SwingUtilities.invokeLater(() -> {
+            if (rates == null) {
+                rl.setText("Error loading rates");
+                return;
+            }
+            manager.applyRates(rates);
+            refreshCurrencies.run();
+            rl.setText("Result");
+            b1.setEnabled(true);
+            b3.setEnabled(true);
+        }));
+
+        // ประวัติพร้อม: รายการที่แปลงระหว่างโหลดถูกต่อท้ายแล้วเขียนลง journal
+        historyLoad.thenAcceptBoth(rollupLoad, (loaded, rollup) -> SwingUtilities.invokeLater(() -> {
+            history.adopt(loaded, rollup, "history.csv");
+            l4.setText("History");
+            b2.setEnabled(true);
+            b5.setEnabled(true);
+        }));
+
+        // ประวัติเรทบันทึกเรทตั้งต้น แล้วเริ่มเฝ้า rates.csv (เช่นบันทึกจาก AdminGUI)
+        rateHistoryLoad.thenAcceptBoth(ratesLoad, (rateHistory, rates) -> {
+            if (rates != null) {
+                long loadedAt = System.currentTimeMillis();
+                for (Map.Entry<String, Double> entry : rates.entrySet()) rateHistory.record(entry.getKey(), loadedAt, entry.getValue());
+                rateHistory.flush();
+            }
+            try {
+                new RatesWatcher(Paths.get("rates.csv"), RatesWatcher.DEFAULT_DEBOUNCE_MILLIS, () -> {
+                    Map<String, Double> changed = CurrencyManager.readRates("rates.csv");
+                    if (changed == null) return;
+                    long changedAt = System.currentTimeMillis();
+                    for (Map.Entry<String, Double> entry : changed.entrySet()) rateHistory.record(entry.getKey(), changedAt, entry.getValue());
+                    rateHistory.flush();
+                    SwingUtilities.invokeLater(() -> {
+                        if (manager.applyRates(changed)) refreshCurrencies.run();
+                    });
+                });
+            } catch (IOException ex) {
+                System.err.println("Error watching rates file: " + ex.getMessage());
+            }
+        });
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            RateHistory rateHistory = rateHistoryLoad.getNow(null);
+            if (rateHistory == null) return;
+            try {
+                rateHistory.close();
+            } catch (IOException ex) {
+                System.err.println("Error closing rate history: " + ex.getMessage());
+            }
+        }));
+        CompletableFuture.allOf(rateHistoryLoad, historyLoad).thenRun(() -> SwingUtilities.invokeLater(() -> b4.setEnabled(true)));
+
+        // Event: Convert button
+        b1.addActionListener(e -> {
+            String from = (String) currency1.getSelectedItem();
+            String to = (String) currency2.getSelectedItem();
+            String amountStr = af.getText();
+
+            if (amountStr.isEmpty()) {
+                JOptionPane.showMessageDialog(f, "Please enter an amount");
+                return;
+            }
+
+            try {
+                int fromScale = FixedPoint.scale(from);
+                int toScale = FixedPoint.scale(to);
+                long amount = FixedPoint.parse(amountStr.trim(), fromScale, FixedPoint.DEFAULT_ROUNDING);
+                if (amount <= 0) {
+                    JOptionPane.showMessageDialog(f, "Amount must be positive");
+                    return;
+                }
+
+                long result = converter.convertMinor(from, to, amount);
+                rl.setText(FixedPoint.format(amount, fromScale) + " " + from + " = " + FixedPoint.format(result, toScale) + " " + to);
+
+                // บันทึกประวัติ
+                HistoryRecord record = new HistoryRecord(from, to,
+                        FixedPoint.toDouble(amount, fromScale), FixedPoint.toDouble(result, toScale));
+                history.addRecord(record);
+
+            } catch (NumberFormatException ex) {
+                JOptionPane.showMessageDialog(f, "Invalid amount");
+            } catch (IllegalArgumentException ex) {
+                JOptionPane.showMessageDialog(f, ex.getMessage());
+            } catch (ArithmeticException ex) {
+                JOptionPane.showMessageDialog(f, "Amount out of range");
+            }
+        });
+
+        // Event: Show History button (b2)
+        b2.addActionListener(e -> {
+            HistoryTableModel model = new HistoryTableModel(history.getWindow());
+            if (model.getTotalCount() == 0) {
+                JOptionPane.showMessageDialog(f, "No history available");
+                return;
+            }
+            JTable table = new JTable(model);
+            table.setFillsViewportHeight(true);
+            table.getTableHeader().setReorderingAllowed(false);
+            table.getTableHeader().addMouseListener(new MouseAdapter() {
+                public void mouseClicked(MouseEvent me) {
+                    int column = table.columnAtPoint(me.getPoint());
+                    if (column >= 0) model.toggleSort(table.convertColumnIndexToModel(column));
+                }
+            });
+
+            JTextField filter = new JTextField();
+            filter.getDocument().addDocumentListener(new DocumentListener() {
+                public void insertUpdate(DocumentEvent de) { model.setFilter(filter.getText()); }
+                public void removeUpdate(DocumentEvent de) { model.setFilter(filter.getText()); }
+                public void changedUpdate(DocumentEvent de) { model.setFilter(filter.getText()); }
+            });
+
+            JLabel status = new JLabel();
+            Runnable updateStatus = () -> status.setText(model.isBusy() ? "Working..."
+                    : model.getRowCount() + " of " + model.getTotalCount() + " records");
+            model.setOnViewChanged(updateStatus);
+            updateStatus.run();
+
+            JPanel top = new JPanel(new BorderLayout(5, 0));
+            top.add(new JLabel("Currency:"), BorderLayout.WEST);
+            top.add(filter, BorderLayout.CENTER);
+
+            JScrollPane scroll = new JScrollPane(table);
+            scroll.setPreferredSize(new Dimension(520, 300));
+
+            JPanel panel = new JPanel(new BorderLayout(0, 5));
+            panel.add(top, BorderLayout.NORTH);
+            panel.add(scroll, BorderLayout.CENTER);
+            panel.add(status, BorderLayout.SOUTH);
+            JOptionPane.showMessageDialog(f, panel, "Exchange History", JOptionPane.INFORMATION_MESSAGE);
+        });
+
+        // Event: Rate / volume time-series chart button (b4)
+        b4.addActionListener(e -> new TimeSeriesChartFrame(rateHistoryLoad.join(), history.getWindow()).setVisible(true));
+
+        // Event: Summary button (b5) ยอดรวมต่อคู่ เลือกแถวเพื่อดูรายวัน
+        b5.addActionListener(e -> {
+            HistoryRollup rollup = history.getRollup();
+            if (rollup.size() == 0) {
+                JOptionPane.showMessageDialog(f, "No history available");
+                return;
+            }
+            RollupTableModel pairs = new RollupTableModel(false);
+            RollupTableModel days = new RollupTableModel(true);
+            pairs.setBuckets(rollup.pairTotals(null, null));
+
+            JTable pairTable = new JTable(pairs);
+            pairTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+            pairTable.getTableHeader().setReorderingAllowed(false);
+            JTable dayTable = new JTable(days);
+            dayTable.getTableHeader().setReorderingAllowed(false);
+
+            JLabel status = new JLabel(rollup.size() + " records in " + rollup.bucketCount() + " daily buckets");
+            pairTable.getSelectionModel().addListSelectionListener(le -> {
+                if (le.getValueIsAdjusting()) return;
+                int row = pairTable.getSelectedRow();
+                if (row < 0) {
+                    days.setBuckets(Collections.emptyList());
+                    return;
+                }
+                HistoryRollup.Bucket pair = pairs.getBucket(row);
+                days.setBuckets(rollup.query(pair.getFromCurrency(), pair.getToCurrency(), null, null));
+            });
+
+            JScrollPane pairScroll = new JScrollPane(pairTable);
+            pairScroll.setPreferredSize(new Dimension(560, 160));
+            JScrollPane dayScroll = new JScrollPane(dayTable);
+            dayScroll.setPreferredSize(new Dimension(560, 160));
+
+            JPanel panel = new JPanel(new BorderLayout(0, 5));
+            panel.add(pairScroll, BorderLayout.NORTH);
+            panel.add(dayScroll, BorderLayout.CENTER);
+            panel.add(status, BorderLayout.SOUTH);
+            JOptionPane.showMessageDialog(f, panel, "Exchange Summary", JOptionPane.INFORMATION_MESSAGE);
+        });
+
+        // Event: Show Exchange rate Chart button (b3)
+        b3.addActionListener(e -> {
+            CurrencyChartFrame chartFrame = new CurrencyChartFrame(manager.currencies);
+            chartFrame.setVisible(true);
+        });
+    }
+}
\ No newline at end of file